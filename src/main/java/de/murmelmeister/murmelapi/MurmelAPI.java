@@ -13,30 +13,45 @@ import de.murmelmeister.murmelapi.time.PlayTime;
 import de.murmelmeister.murmelapi.time.QuitLogger;
 import de.murmelmeister.murmelapi.user.User;
 import de.murmelmeister.murmelapi.user.UserProvider;
+import de.murmelmeister.murmelapi.utils.database.ParallelInitializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * The MurmelAPI main class.
  */
 public final class MurmelAPI {
-    private static final Group GROUP;
-    private static final User USER;
-    private static final Permission PERMISSION;
-    private static final PlayTime PLAY_TIME;
-    private static final JoinLogger JOIN_LOGGER;
-    private static final QuitLogger QUIT_LOGGER;
-
-    private static final Mute MUTE;
-    private static final Ban BAN;
+    private static final Logger LOGGER = LoggerFactory.getLogger(MurmelAPI.class);
+    private static final Lazy<Group> GROUP = new Lazy<>(GroupProvider::new);
+    private static final Lazy<User> USER = new Lazy<>(UserProvider::new);
+    private static final Lazy<Permission> PERMISSION = new Lazy<>(() -> new PermissionProvider(GROUP.get(), USER.get()));
+    private static final Lazy<Mute> MUTE = new Lazy<>(MuteProvider::new);
+    private static final Lazy<Ban> BAN = new Lazy<>(BanProvider::new);
 
-    static {
-        GROUP = new GroupProvider();
-        USER = new UserProvider();
-        PERMISSION = new PermissionProvider(GROUP, USER);
-        PLAY_TIME = USER.getPlayTime();
-        JOIN_LOGGER = USER.getJoinLogger();
-        QUIT_LOGGER = USER.getQuitLogger();
-        MUTE = new MuteProvider();
-        BAN = new BanProvider();
+    /**
+     * Initializes all providers in parallel instead of on their first use, for example while the server starts.
+     * Without this call every provider is created when its getter is called for the first time.
+     */
+    public static void initialize() {
+        long start = System.nanoTime();
+        try (ParallelInitializer initializer = new ParallelInitializer()) {
+            CompletableFuture<Group> group = initializer.start(MurmelAPI::getGroup);
+            CompletableFuture<User> user = initializer.start(MurmelAPI::getUser);
+            CompletableFuture<Mute> mute = initializer.start(MurmelAPI::getMute);
+            CompletableFuture<Ban> ban = initializer.start(MurmelAPI::getBan);
+            ParallelInitializer.await(group);
+            ParallelInitializer.await(user);
+            ParallelInitializer.await(mute);
+            ParallelInitializer.await(ban);
+        }
+        getPermission();
+        LOGGER.info("MurmelAPI initialized in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
     }
 
     /**
@@ -45,7 +60,7 @@ public final class MurmelAPI {
      * @return the group provider
      */
     public static Group getGroup() {
-        return GROUP;
+        return GROUP.get();
     }
 
     /**
@@ -54,7 +69,7 @@ public final class MurmelAPI {
      * @return the user provider
      */
     public static User getUser() {
-        return USER;
+        return USER.get();
     }
 
     /**
@@ -63,7 +78,7 @@ public final class MurmelAPI {
      * @return the permission provider
      */
     public static Permission getPermission() {
-        return PERMISSION;
+        return PERMISSION.get();
     }
 
     /**
@@ -72,7 +87,7 @@ public final class MurmelAPI {
      * @return the play time provider
      */
     public static PlayTime getPlayTime() {
-        return PLAY_TIME;
+        return USER.get().getPlayTime();
     }
 
     /**
@@ -81,7 +96,7 @@ public final class MurmelAPI {
      * @return the join logger provider
      */
     public static JoinLogger getJoinLogger() {
-        return JOIN_LOGGER;
+        return USER.get().getJoinLogger();
     }
 
     /**
@@ -90,7 +105,7 @@ public final class MurmelAPI {
      * @return the quit logger provider
      */
     public static QuitLogger getQuitLogger() {
-        return QUIT_LOGGER;
+        return USER.get().getQuitLogger();
     }
 
     /**
@@ -99,7 +114,7 @@ public final class MurmelAPI {
      * @return the mute provider
      */
     public static Mute getMute() {
-        return MUTE;
+        return MUTE.get();
     }
 
     /**
@@ -108,6 +123,30 @@ public final class MurmelAPI {
      * @return the ban provider
      */
     public static Ban getBan() {
-        return BAN;
+        return BAN.get();
+    }
+
+    // Creates a provider on its first use, a creation that failed, for example while the database was down, is tried again by the next call
+    private static final class Lazy<T> implements Supplier<T> {
+        private final Lock lock = new ReentrantLock();
+        private final Supplier<T> factory;
+        private volatile T value;
+
+        private Lazy(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public T get() {
+            T result = value;
+            if (result != null) return result;
+            lock.lock();
+            try {
+                if (value == null) value = factory.get();
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 }
@@ -3,6 +3,8 @@ package de.murmelmeister.murmelapi.bansystem.ban;
 import de.murmelmeister.murmelapi.bansystem.log.Log;
 import de.murmelmeister.murmelapi.bansystem.reason.Reason;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The Ban interface defines methods to manage user bans within a system.
  */
@@ -61,4 +63,39 @@ public sealed interface Ban permits BanProvider {
      * @return The Log instance configured for this Ban system.
      */
     Log getLog();
+
+    /**
+     * Asynchronous variant of {@link #ban(int, int, int, long)}.
+     *
+     * @param userId    The ID of the user.
+     * @param creatorId The ID of the user who is performing the action.
+     * @param reasonId  The ID of the reason.
+     * @param time      The duration in milliseconds.
+     * @return A future completed when the user is banned.
+     */
+    CompletableFuture<Void> banAsync(int userId, int creatorId, int reasonId, long time);
+
+    /**
+     * Asynchronous variant of {@link #unban(int)}.
+     *
+     * @param userId The ID of the user.
+     * @return A future completed when the user is no longer banned.
+     */
+    CompletableFuture<Void> unbanAsync(int userId);
+
+    /**
+     * Asynchronous variant of {@link #getExpiredTime(int)}.
+     *
+     * @param userId The ID of the user.
+     * @return A future completed with the expiration time in milliseconds since the epoch.
+     */
+    CompletableFuture<Long> getExpiredTimeAsync(int userId);
+
+    /**
+     * Asynchronous variant of {@link #isBanned(int)}.
+     *
+     * @param userId The ID of the user to check.
+     * @return A future completed with true if the user is banned, false otherwise.
+     */
+    CompletableFuture<Boolean> isBannedAsync(int userId);
 }
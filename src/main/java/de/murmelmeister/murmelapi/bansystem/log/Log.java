@@ -47,6 +47,30 @@ public sealed interface Log permits LogProvider {
      */
     List<Integer> getLogs(int userId);
 
+    /**
+     * Retrieves the log IDs associated with the specified user ID as a primitive array, without boxing every ID.
+     *
+     * @param userId The ID of the user for whom the logs will be retrieved.
+     * @return An array of the log IDs.
+     */
+    int[] getLogArray(int userId);
+
+    /**
+     * Retrieves the log entry with the specified log ID with all its details in a single query.
+     *
+     * @param logId The ID of the log entry.
+     * @return The log entry, or null if no log entry with the specified log ID exists.
+     */
+    LogEntry getEntry(int logId);
+
+    /**
+     * Retrieves all log entries associated with the specified user ID with all their details in a single query.
+     *
+     * @param userId The ID of the user for whom the log entries will be retrieved.
+     * @return A list of the log entries of the user.
+     */
+    List<LogEntry> getEntries(int userId);
+
     /**
      * Retrieves the user ID associated with the specified log ID.
      *
@@ -0,0 +1,14 @@
+package de.murmelmeister.murmelapi.bansystem.log;
+
+/**
+ * A log entry of the ban system, read as a whole row.
+ *
+ * @param logId       The ID of the log entry
+ * @param userId      The ID of the user associated with the log entry
+ * @param creatorId   The ID of the user who created the log entry
+ * @param reasonId    The ID of the reason for the log entry
+ * @param createdTime The time the log entry was created, in milliseconds since the epoch
+ * @param expiredTime The time the log entry expires, in milliseconds since the epoch, or -1 if it never expires
+ */
+public record LogEntry(int logId, int userId, int creatorId, int reasonId, long createdTime, long expiredTime) {
+}
@@ -2,64 +2,116 @@ package de.murmelmeister.murmelapi.bansystem.log;
 
 import de.murmelmeister.murmelapi.bansystem.reason.Reason;
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.RowMapper;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import de.murmelmeister.murmelapi.utils.database.Subsystem;
 
 import java.text.SimpleDateFormat;
 import java.util.List;
 
 public final class LogProvider implements Log {
+    private static final RowMapper<LogEntry> ENTRY_MAPPER = resultSet -> new LogEntry(resultSet.getInt("LogID"), resultSet.getInt("UserID"),
+            resultSet.getInt("CreatorID"), resultSet.getInt("ReasonID"), resultSet.getLong("CreatedTime"), resultSet.getLong("ExpiredTime"));
+
     private final Reason reason;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
 
+    private final ProcedureRegistry procedures;
+    private final StoredProcedure exists;
+    private final StoredProcedure entry;
+    private final StoredProcedure userId;
+    private final StoredProcedure creatorId;
+    private final StoredProcedure createdTime;
+    private final StoredProcedure selectExpiredTime;
+    private final StoredProcedure reasonId;
+    private final StoredProcedure logIds;
+    private final StoredProcedure entries;
+    private final StoredProcedure insert;
+    private final StoredProcedure remove;
+    private final StoredProcedure delete;
+    private final StoredProcedure updateExpiredTime;
+    private final StoredProcedure updateReasonId;
+
     public LogProvider(String tableName, Reason reason) {
         this.reason = reason;
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-    }
-
-    public void createTable(String tableName) {
-        Database.createTable(tableName, "LogID INT PRIMARY KEY AUTO_INCREMENT, UserID INT, CreatorID INT, ReasonID INT, CreatedTime BIGINT, ExpiredTime BIGINT");
+        this.procedures = new ProcedureRegistry(tableName, "LogID INT PRIMARY KEY AUTO_INCREMENT, UserID INT, CreatorID INT, ReasonID INT, CreatedTime BIGINT, ExpiredTime BIGINT")
+                .subsystem(Subsystem.LOGGING)
+                .index("UserID", "UserID")
+                .index("ExpiredTime", "ExpiredTime");
+        this.exists = procedures.exists("Exists", "id INT", "LogID=id");
+        this.entry = procedures.selectRow("Entry", "id INT", "LogID=id");
+        this.userId = procedures.selectColumn("UserID", "UserID", "id INT", "LogID=id");
+        this.creatorId = procedures.selectColumn("CreatorID", "CreatorID", "id INT", "LogID=id");
+        this.createdTime = procedures.selectColumn("CreatedTime", "CreatedTime", "id INT", "LogID=id");
+        this.selectExpiredTime = procedures.selectColumn("ExpiredTime", "ExpiredTime", "id INT", "LogID=id");
+        this.reasonId = procedures.selectColumn("ReasonID", "ReasonID", "id INT", "LogID=id");
+        this.logIds = procedures.selectColumns("LogIDs", "LogID", "uid INT", "UserID=uid");
+        this.entries = procedures.selectRows("Entries", "uid INT", "UserID=uid");
+        this.insert = procedures.statement("Insert", "uid INT, cid INT, rid INT, created BIGINT, expired BIGINT",
+                "INSERT INTO [TABLE] (UserID, CreatorID, ReasonID, CreatedTime, ExpiredTime) VALUES (uid, cid, rid, created, expired); SELECT LAST_INSERT_ID() AS id;");
+        this.remove = procedures.statement("Remove", "id INT", "DELETE FROM [TABLE] WHERE LogID=id;");
+        this.delete = procedures.statement("Delete", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;");
+        this.updateExpiredTime = procedures.statement("Update_ExpiredTime", "id INT, expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE LogID=id;");
+        this.updateReasonId = procedures.statement("Update_ReasonID", "id INT, rid INT", "UPDATE [TABLE] SET ReasonID=rid WHERE LogID=id;");
+        procedures.createAll();
     }
 
     @Override
     public boolean existsLog(int logId) {
-        return Database.callExists(Procedure.LOG_GET.getName(), logId);
+        return Database.callExists(exists.name(), logId);
     }
 
     @Override
     public int addLog(int userId, int creatorId, int reasonId, long time) {
         if (!this.reason.exists(reasonId)) throw new IllegalArgumentException("Reason does not exist");
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        return Database.callUpdate(-1, "id", int.class, Procedure.LOG_ADD.getName(), userId, creatorId, reasonId, System.currentTimeMillis(), expired);
+        return Database.callUpdate(-1, "id", int.class, insert.name(), userId, creatorId, reasonId, System.currentTimeMillis(), expired);
     }
 
     @Override
     public void removeLog(int logId) {
-        Database.callUpdate(Procedure.LOG_REMOVE.getName(), logId);
+        Database.callUpdate(remove.name(), logId);
     }
 
     @Override
     public void deleteLog(int userId) {
-        Database.callUpdate(Procedure.LOG_DELETE.getName(), userId);
+        Database.callUpdate(delete.name(), userId);
     }
 
     @Override
     public List<Integer> getLogs(int userId) {
-        return Database.callQueryList("LogID", int.class, Procedure.LOG_ID.getName(), userId);
+        return Database.callQueryList("LogID", int.class, logIds.name(), userId);
+    }
+
+    @Override
+    public int[] getLogArray(int userId) {
+        return Database.callQueryInts("LogID", logIds.name(), userId);
+    }
+
+    @Override
+    public LogEntry getEntry(int logId) {
+        return Database.callQueryRow(entry.name(), ENTRY_MAPPER, logId);
+    }
+
+    @Override
+    public List<LogEntry> getEntries(int userId) {
+        return Database.callQueryRows(entries.name(), ENTRY_MAPPER, userId);
     }
 
     @Override
     public int getUserId(int logId) {
-        return Database.callQuery(-2, "UserID", int.class, Procedure.LOG_ID.getName(), logId);
+        return Database.callQuery(-2, "UserID", int.class, userId.name(), logId);
     }
 
     @Override
     public int getCreatorId(int logId) {
-        return Database.callQuery(-2, "CreatorID", int.class, Procedure.LOG_ID.getName(), logId);
+        return Database.callQuery(-2, "CreatorID", int.class, creatorId.name(), logId);
     }
 
     @Override
     public long getCreatedTime(int logId) {
-        return Database.callQuery(-1L, "CreatedTime", long.class, Procedure.LOG_ID.getName(), logId);
+        return Database.callQuery(-1L, "CreatedTime", long.class, createdTime.name(), logId);
     }
 
     @Override
@@ -69,7 +121,7 @@ public final class LogProvider implements Log {
 
     @Override
     public long getExpiredTime(int logId) {
-        return Database.callQuery(-2L, "ExpiredTime", long.class, Procedure.LOG_ID.getName(), logId);
+        return Database.callQuery(-2L, "ExpiredTime", long.class, selectExpiredTime.name(), logId);
     }
 
     @Override
@@ -81,7 +133,7 @@ public final class LogProvider implements Log {
     @Override
     public String setExpiredTime(int logId, long time) {
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        Database.callUpdate(Procedure.LOG_EXPIRED.getName(), logId, expired);
+        Database.callUpdate(updateExpiredTime.name(), logId, expired);
         return getExpiredDate(logId);
     }
 
@@ -89,7 +141,7 @@ public final class LogProvider implements Log {
     public String addExpiredTime(int logId, long time) {
         long current = getExpiredTime(logId);
         long expired = current == -1 ? System.currentTimeMillis() + time : current + time;
-        Database.callUpdate(Procedure.LOG_EXPIRED.getName(), logId, expired);
+        Database.callUpdate(updateExpiredTime.name(), logId, expired);
         return getExpiredDate(logId);
     }
 
@@ -97,54 +149,22 @@ public final class LogProvider implements Log {
     public String removeExpiredTime(int logId, long time) {
         long current = getExpiredTime(logId);
         long expired = current == -1 ? System.currentTimeMillis() : current - time;
-        Database.callUpdate(Procedure.LOG_EXPIRED.getName(), logId, expired);
+        Database.callUpdate(updateExpiredTime.name(), logId, expired);
         return getExpiredDate(logId);
     }
 
     @Override
     public int getReasonId(int logId) {
-        return Database.callQuery(-1, "ReasonID", int.class, Procedure.LOG_ID.getName(), logId);
+        return Database.callQuery(-1, "ReasonID", int.class, reasonId.name(), logId);
     }
 
     @Override
     public void setReasonId(int logId, int reasonId) {
-        Database.callUpdate(Procedure.LOG_REASON_UPDATE.getName(), logId, reasonId);
+        Database.callUpdate(updateReasonId.name(), logId, reasonId);
     }
 
     @Override
     public String getReason(int logId) {
         return this.reason.get(getReasonId(logId));
     }
-
-    private enum Procedure {
-        LOG_ADD("Log_Add", "uid INT, cid INT, rid INT, created BIGINT, expired BIGINT",
-                "INSERT INTO [TABLE] (UserID, CreatorID, ReasonID, CreatedTime, ExpiredTime) VALUES (uid, cid, rid, created, expired); SELECT LAST_INSERT_ID() AS id;"),
-        LOG_REMOVE("Log_Remove", "id INT", "DELETE FROM [TABLE] WHERE LogID=id;"),
-        LOG_DELETE("Log_Delete", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;"),
-        LOG_ID("Log_ID", "uid INT", "SELECT * FROM [TABLE] WHERE UserID=uid;"),
-        LOG_GET("Log_Get", "id INT", "SELECT * FROM [TABLE] WHERE LogID=id;"),
-        LOG_EXPIRED("Log_Expired", "id INT, expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE LogID=id;"),
-        LOG_REASON_UPDATE("Log_Reason_Update", "id INT, rid INT", "UPDATE [TABLE] SET ReasonID=rid WHERE LogID=id;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
-
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
-    }
 }
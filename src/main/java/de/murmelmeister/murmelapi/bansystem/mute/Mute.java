@@ -4,6 +4,8 @@ package de.murmelmeister.murmelapi.bansystem.mute;
 import de.murmelmeister.murmelapi.bansystem.log.Log;
 import de.murmelmeister.murmelapi.bansystem.reason.Reason;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The Mute interface represents operations related to muting and unmuting users
  * in a system, including actions that define the duration and reason for the mute.
@@ -63,4 +65,39 @@ public sealed interface Mute permits MuteProvider {
      * @return The log object that stores and retrieves entries related to mute actions.
      */
     Log getLog();
+
+    /**
+     * Asynchronous variant of {@link #mute(int, int, int, long)}.
+     *
+     * @param userId    The ID of the user.
+     * @param creatorId The ID of the user who is performing the action.
+     * @param reasonId  The ID of the reason.
+     * @param time      The duration in milliseconds.
+     * @return A future completed when the user is muted.
+     */
+    CompletableFuture<Void> muteAsync(int userId, int creatorId, int reasonId, long time);
+
+    /**
+     * Asynchronous variant of {@link #unmute(int)}.
+     *
+     * @param userId The ID of the user.
+     * @return A future completed when the user is no longer muted.
+     */
+    CompletableFuture<Void> unmuteAsync(int userId);
+
+    /**
+     * Asynchronous variant of {@link #getExpiredTime(int)}.
+     *
+     * @param userId The ID of the user.
+     * @return A future completed with the expiration time in milliseconds since the epoch.
+     */
+    CompletableFuture<Long> getExpiredTimeAsync(int userId);
+
+    /**
+     * Asynchronous variant of {@link #isMuted(int)}.
+     *
+     * @param userId The ID of the user to check.
+     * @return A future completed with true if the user is muted, false otherwise.
+     */
+    CompletableFuture<Boolean> isMutedAsync(int userId);
 }
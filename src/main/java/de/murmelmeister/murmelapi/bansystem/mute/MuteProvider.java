@@ -5,39 +5,46 @@ import de.murmelmeister.murmelapi.bansystem.log.LogProvider;
 import de.murmelmeister.murmelapi.bansystem.reason.Reason;
 import de.murmelmeister.murmelapi.bansystem.reason.ReasonProvider;
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import de.murmelmeister.murmelapi.utils.database.Subsystem;
 
 import java.text.SimpleDateFormat;
+import java.util.concurrent.CompletableFuture;
 
 public final class MuteProvider implements Mute {
+    private final ProcedureRegistry procedures = new ProcedureRegistry("Mute_List", "UserID INT, ExpiredTime BIGINT")
+            .subsystem(Subsystem.BAN)
+            .primaryKey("UserID");
+    private final StoredProcedure insert = procedures.statement("Insert", "uid INT, expired BIGINT", "INSERT INTO [TABLE] VALUES (uid, expired) ON DUPLICATE KEY UPDATE ExpiredTime=expired;");
+    private final StoredProcedure delete = procedures.statement("Delete", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;");
+    private final StoredProcedure expiredTime = procedures.selectColumn("ExpiredTime", "ExpiredTime", "uid INT", "UserID=uid");
+
     private final Reason reason;
     private final Log log;
 
     public MuteProvider() {
         this.reason = new ReasonProvider("Mute_Reason");
         this.log = new LogProvider("Mute_Log", reason);
-        String tableName = "Mute_List";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-    }
-
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "UserID INT, ExpiredTime BIGINT");
+        procedures.createAll();
     }
 
     @Override
     public void mute(int userId, int creatorId, int reasonId, long time) {
-        int logId = log.addLog(userId, creatorId, reasonId, time);
-        Database.callUpdate(Procedure.MUTE_ADD.getName(), userId, log.getExpiredTime(logId));
+        Database.inTransaction(Subsystem.BAN, transaction -> {
+            int logId = log.addLog(userId, creatorId, reasonId, time);
+            Database.callUpdate(insert.name(), userId, log.getExpiredTime(logId));
+        });
     }
 
     @Override
     public void unmute(int userId) {
-        Database.callUpdate(Procedure.MUTE_REMOVE.getName(), userId);
+        Database.callUpdate(delete.name(), userId);
     }
 
     @Override
     public long getExpiredTime(int userId) {
-        return Database.callQuery(-2L, "ExpiredTime", long.class, Procedure.MUTE_GET.getName(), userId);
+        return Database.callQuery(-2L, "ExpiredTime", long.class, expiredTime.name(), userId);
     }
 
     @Override
@@ -53,39 +60,32 @@ public final class MuteProvider implements Mute {
     }
 
     @Override
-    public Reason getReason() {
-        return reason;
+    public CompletableFuture<Void> muteAsync(int userId, int creatorId, int reasonId, long time) {
+        return Database.async().run(() -> mute(userId, creatorId, reasonId, time));
     }
 
     @Override
-    public Log getLog() {
-        return log;
+    public CompletableFuture<Void> unmuteAsync(int userId) {
+        return Database.async().run(() -> unmute(userId));
     }
 
-    private enum Procedure {
-        MUTE_ADD("Mute_Add", "uid INT, expired BIGINT", "INSERT INTO [TABLE] VALUES (uid, expired);"),
-        MUTE_REMOVE("Mute_Remove", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;"),
-        MUTE_GET("Mute_Get", "uid INT", "SELECT * FROM [TABLE] WHERE UserID=uid;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
+    @Override
+    public CompletableFuture<Long> getExpiredTimeAsync(int userId) {
+        return Database.async().supply(() -> getExpiredTime(userId));
+    }
 
-        public String getName() {
-            return name;
-        }
+    @Override
+    public CompletableFuture<Boolean> isMutedAsync(int userId) {
+        return Database.async().supply(() -> isMuted(userId));
+    }
 
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
+    @Override
+    public Reason getReason() {
+        return reason;
+    }
 
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
+    @Override
+    public Log getLog() {
+        return log;
     }
 }
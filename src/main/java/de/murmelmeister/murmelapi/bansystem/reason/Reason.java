@@ -50,4 +50,11 @@ public sealed interface Reason permits ReasonProvider {
      * @return A list of integers representing the IDs of all reasons.
      */
     List<Integer> getIds();
+
+    /**
+     * Retrieves all reason IDs as a primitive array, without boxing every ID.
+     *
+     * @return An array of the IDs of all reasons.
+     */
+    int[] getIdArray();
 }
@@ -300,4 +300,18 @@ public abstract class MurmelMemory {
                 result.add(String.valueOf(object));
         return result;
     }
+
+    /**
+     * Retrieves all keys that start with the specified prefix.
+     *
+     * @param prefix the prefix of the keys to be returned, for example a section followed by a dot
+     * @return a set containing the matching keys in insertion order
+     */
+    public Set<String> getKeys(String prefix) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String key : data.keySet())
+            if (key.startsWith(prefix))
+                result.add(key);
+        return result;
+    }
 }
@@ -6,6 +6,7 @@ import de.murmelmeister.murmelapi.group.settings.GroupColorSettings;
 import de.murmelmeister.murmelapi.group.settings.GroupSettings;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Group interface to manage groups.
@@ -84,6 +85,13 @@ public sealed interface Group permits GroupProvider {
      */
     List<Integer> getUniqueIds();
 
+    /**
+     * Obtains all unique ids of the groups as a primitive array, without boxing every id.
+     *
+     * @return An array of all unique ids of the groups.
+     */
+    int[] getUniqueIdArray();
+
     /**
      * Obtains a list of all names of the groups.
      *
@@ -129,4 +137,47 @@ public sealed interface Group permits GroupProvider {
      * @return The permission of the group.
      */
     GroupPermission getPermission();
+
+    /**
+     * Asynchronous variant of {@link #existsGroup(String)}.
+     *
+     * @param name The name of the group.
+     * @return A future completed with true if the group exists, otherwise false.
+     */
+    CompletableFuture<Boolean> existsGroupAsync(String name);
+
+    /**
+     * Asynchronous variant of {@link #createNewGroup(String, int, int, String)}.
+     *
+     * @param name      The name of the group.
+     * @param creatorId The creator id of the group.
+     * @param sortId    The sort id of the group.
+     * @param teamId    The team id of the group.
+     * @return A future completed when the group is created.
+     */
+    CompletableFuture<Void> createNewGroupAsync(String name, int creatorId, int sortId, String teamId);
+
+    /**
+     * Asynchronous variant of {@link #deleteGroup(int)}.
+     *
+     * @param id The id of the group.
+     * @return A future completed when the group is deleted.
+     */
+    CompletableFuture<Void> deleteGroupAsync(int id);
+
+    /**
+     * Asynchronous variant of {@link #getUniqueId(String)}.
+     *
+     * @param name The name of the group.
+     * @return A future completed with the unique id of the group.
+     */
+    CompletableFuture<Integer> getUniqueIdAsync(String name);
+
+    /**
+     * Asynchronous variant of {@link #getName(int)}.
+     *
+     * @param id The id of the group.
+     * @return A future completed with the name of the group.
+     */
+    CompletableFuture<String> getNameAsync(int id);
 }
@@ -6,44 +6,61 @@ import de.murmelmeister.murmelapi.group.permission.GroupPermission;
 import de.murmelmeister.murmelapi.group.permission.GroupPermissionProvider;
 import de.murmelmeister.murmelapi.group.settings.*;
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ParallelInitializer;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public final class GroupProvider implements Group {
+    private final ProcedureRegistry procedures = new ProcedureRegistry("Groups", "ID INT PRIMARY KEY AUTO_INCREMENT, GroupName VARCHAR(100)")
+            .uniqueKey("GroupName", "GroupName");
+    private final StoredProcedure existsId = procedures.exists("Exists_ID", "gid INT", "ID=gid");
+    private final StoredProcedure existsName = procedures.exists("Exists_Name", "gName VARCHAR(100)", "GroupName=gName");
+    private final StoredProcedure idByName = procedures.selectColumn("ID_Name", "ID", "gName VARCHAR(100)", "GroupName=gName");
+    private final StoredProcedure nameById = procedures.selectColumn("Name_ID", "GroupName", "gid INT", "ID=gid");
+    private final StoredProcedure allIds = procedures.selectColumns("All_ID", "ID", "", "");
+    private final StoredProcedure allNames = procedures.selectColumns("All_Name", "GroupName", "", "");
+    private final StoredProcedure insert = procedures.statement("Insert", "gName VARCHAR(100)", "INSERT INTO [TABLE] (GroupName) VALUES (gName);");
+    private final StoredProcedure delete = procedures.statement("Delete", "gid INT", "DELETE FROM [TABLE] WHERE ID=gid;");
+    private final StoredProcedure renameById = procedures.statement("RenameByID", "gid INT, gName VARCHAR(100)", "UPDATE [TABLE] SET GroupName=gName WHERE ID=gid;");
+    private final StoredProcedure renameByName = procedures.statement("RenameByName", "oldGroup VARCHAR(100), newGroup VARCHAR(100)", "UPDATE [TABLE] SET GroupName=newGroup WHERE GroupName=oldGroup;");
+
     private final GroupSettings settings;
     private final GroupColorSettings colorSettings;
     private final GroupParent parent;
     private final GroupPermission permission;
 
     public GroupProvider() {
-        String tableName = "Groups";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-        this.settings = new GroupSettingsProvider();
-        this.colorSettings = new GroupColorSettingsProvider();
-        this.parent = new GroupParentProvider();
-        this.permission = new GroupPermissionProvider();
+        try (ParallelInitializer initializer = new ParallelInitializer()) {
+            CompletableFuture<GroupSettings> settings = initializer.start(GroupSettingsProvider::new);
+            CompletableFuture<GroupColorSettings> colorSettings = initializer.start(GroupColorSettingsProvider::new);
+            CompletableFuture<GroupParent> parent = initializer.start(GroupParentProvider::new);
+            CompletableFuture<GroupPermission> permission = initializer.start(GroupPermissionProvider::new);
+            procedures.createAll();
+            this.settings = ParallelInitializer.await(settings);
+            this.colorSettings = ParallelInitializer.await(colorSettings);
+            this.parent = ParallelInitializer.await(parent);
+            this.permission = ParallelInitializer.await(permission);
+        }
         createDefaultGroup();
     }
 
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "ID INT PRIMARY KEY AUTO_INCREMENT, GroupName VARCHAR(100)");
-    }
-
     @Override
     public boolean existsGroup(int id) {
-        return Database.callExists(Procedure.GROUP_ID.getName(), id);
+        return Database.callExists(existsId.name(), id);
     }
 
     @Override
     public boolean existsGroup(String name) {
-        return Database.callExists(Procedure.GROUP_NAME.getName(), name);
+        return Database.callExists(existsName.name(), name);
     }
 
     @Override
     public void createNewGroup(String name, int creatorId, int sortId, String teamId) {
         if (existsGroup(name)) return;
-        Database.callUpdate(Procedure.GROUP_INSERT.getName(), name);
+        Database.callUpdate(insert.name(), name);
         int id = getUniqueId(name);
         String team = teamId + getName(id);
         settings.createGroup(id, creatorId, sortId, team);
@@ -52,41 +69,73 @@ public final class GroupProvider implements Group {
 
     @Override
     public void deleteGroup(int id) {
-        permission.clearPermission(id);
-        parent.clearParent(id);
-        colorSettings.deleteGroup(id);
-        settings.deleteGroup(id);
-        Database.callUpdate(Procedure.GROUP_DELETE.getName(), id);
+        Database.inTransaction(transaction -> {
+            permission.clearPermission(id);
+            parent.clearParent(id);
+            colorSettings.deleteGroup(id);
+            settings.deleteGroup(id);
+            Database.callUpdate(delete.name(), id);
+        });
     }
 
     @Override
     public int getUniqueId(String name) {
-        return Database.callQuery(-1, "ID", int.class, Procedure.GROUP_NAME.getName(), name);
+        return Database.callQuery(-1, "ID", int.class, idByName.name(), name);
     }
 
     @Override
     public String getName(int id) {
-        return Database.callQuery(null, "GroupName", String.class, Procedure.GROUP_ID.getName(), id);
+        return Database.callQuery(null, "GroupName", String.class, nameById.name(), id);
     }
 
     @Override
     public void rename(int id, String newName) {
-        Database.callUpdate(Procedure.GROUP_RENAME_BY_ID.getName(), id, newName);
+        Database.callUpdate(renameById.name(), id, newName);
     }
 
     @Override
     public void rename(String oldName, String newName) {
-        Database.callUpdate(Procedure.GROUP_RENAME_BY_NAME.getName(), oldName, newName);
+        Database.callUpdate(renameByName.name(), oldName, newName);
     }
 
     @Override
     public List<Integer> getUniqueIds() {
-        return Database.callQueryList("ID", int.class, Procedure.GROUP_ALL.getName());
+        return Database.callQueryList("ID", int.class, allIds.name());
+    }
+
+    @Override
+    public int[] getUniqueIdArray() {
+        return Database.callQueryInts("ID", allIds.name());
     }
 
     @Override
     public List<String> getNames() {
-        return Database.callQueryList("GroupName", String.class, Procedure.GROUP_ALL.getName());
+        return Database.callQueryList("GroupName", String.class, allNames.name());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsGroupAsync(String name) {
+        return Database.async().supply(() -> existsGroup(name));
+    }
+
+    @Override
+    public CompletableFuture<Void> createNewGroupAsync(String name, int creatorId, int sortId, String teamId) {
+        return Database.async().run(() -> createNewGroup(name, creatorId, sortId, teamId));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteGroupAsync(int id) {
+        return Database.async().run(() -> deleteGroup(id));
+    }
+
+    @Override
+    public CompletableFuture<Integer> getUniqueIdAsync(String name) {
+        return Database.async().supply(() -> getUniqueId(name));
+    }
+
+    @Override
+    public CompletableFuture<String> getNameAsync(int id) {
+        return Database.async().supply(() -> getName(id));
     }
 
     @Override
@@ -99,7 +148,7 @@ public final class GroupProvider implements Group {
         int id = 1;
         if (existsGroup(id)) return id;
         String name = "default";
-        Database.callUpdate(Procedure.GROUP_INSERT.getName(), name);
+        Database.callUpdate(insert.name(), name);
         int creatorId = -1;
         String team = 9999 + getName(id);
         settings.createGroup(id, creatorId, 0, team);
@@ -131,35 +180,4 @@ public final class GroupProvider implements Group {
     public GroupPermission getPermission() {
         return permission;
     }
-
-    private enum Procedure {
-        GROUP_ID("Groups_ID", "gid INT", "SELECT * FROM [TABLE] WHERE ID=gid;"),
-        GROUP_NAME("Groups_Name", "gName VARCHAR(100)", "SELECT * FROM [TABLE] WHERE GroupName=gName;"),
-        GROUP_INSERT("Groups_Insert", "gName VARCHAR(100)", "INSERT INTO [TABLE] (GroupName) VALUES (gName);"),
-        GROUP_DELETE("Groups_Delete", "gid INT", "DELETE FROM [TABLE] WHERE ID=gid;"),
-        GROUP_ALL("Groups_All", "", "SELECT * FROM [TABLE];"),
-        GROUP_RENAME_BY_ID("Groups_RenameByID", "gid INT, gName VARCHAR(100)", "UPDATE [TABLE] SET GroupName=gName WHERE ID=gid;"),
-        GROUP_RENAME_BY_NAME("Groups_RenameByName", "oldGroup VARCHAR(100), newGroup VARCHAR(100)", "UPDATE [TABLE] SET GroupName=newGroup WHERE GroupName=oldGroup;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
-
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
-    }
 }
@@ -1,6 +1,7 @@
 package de.murmelmeister.murmelapi.group.parent;
 
 import de.murmelmeister.murmelapi.group.Group;
+import de.murmelmeister.murmelapi.permission.ParentGrant;
 
 import java.util.List;
 
@@ -50,6 +51,14 @@ public sealed interface GroupParent permits GroupParentProvider {
      */
     List<Integer> getParentIds(int groupId);
 
+    /**
+     * Obtains all parent ids of a group as a primitive array, without boxing every id.
+     *
+     * @param groupId The id of the group.
+     * @return An array of all parent ids of the group.
+     */
+    int[] getParentIdArray(int groupId);
+
     /**
      * Obtains all parent names of a group.
      *
@@ -59,6 +68,23 @@ public sealed interface GroupParent permits GroupParentProvider {
      */
     List<String> getParentNames(Group group, int groupId);
 
+    /**
+     * Obtains a parent of a group with all its details in a single query.
+     *
+     * @param groupId  The id of the group.
+     * @param parentId The id of the parent.
+     * @return The parent with its details, or null if the group does not have the parent.
+     */
+    ParentGrant getGrant(int groupId, int parentId);
+
+    /**
+     * Obtains all parents of a group with all their details in a single query.
+     *
+     * @param groupId The id of the group.
+     * @return A list of all parents of the group with their details.
+     */
+    List<ParentGrant> getGrants(int groupId);
+
     /**
      * Obtains the creator id of a parent.
      *
@@ -1,65 +1,100 @@
 package de.murmelmeister.murmelapi.group.parent;
 
 import de.murmelmeister.murmelapi.group.Group;
+import de.murmelmeister.murmelapi.permission.ParentGrant;
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.RowMapper;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import de.murmelmeister.murmelapi.utils.database.Subsystem;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public final class GroupParentProvider implements GroupParent {
+    private static final RowMapper<ParentGrant> GRANT_MAPPER = resultSet -> new ParentGrant(resultSet.getInt("GroupID"),
+            resultSet.getInt("CreatorID"), resultSet.getInt("ParentID"), resultSet.getLong("CreatedTime"), resultSet.getLong("ExpiredTime"));
+
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+    private final ProcedureRegistry procedures = new ProcedureRegistry("GroupParent", "GroupID INT, CreatorID INT, ParentID INT, CreatedTime BIGINT, ExpiredTime BIGINT")
+            .subsystem(Subsystem.PERMISSION)
+            .uniqueKey("GroupParent", "GroupID, ParentID")
+            .index("ExpiredTime", "ExpiredTime");
+    private final StoredProcedure exists = procedures.exists("Exists", "gid INT, pid INT", "GroupID=gid AND ParentID=pid");
+    private final StoredProcedure selectGrant = procedures.selectRow("Grant", "gid INT, pid INT", "GroupID=gid AND ParentID=pid");
+    private final StoredProcedure selectCreatorId = procedures.selectColumn("CreatorID", "CreatorID", "gid INT, pid INT", "GroupID=gid AND ParentID=pid");
+    private final StoredProcedure selectCreatedTime = procedures.selectColumn("CreatedTime", "CreatedTime", "gid INT, pid INT", "GroupID=gid AND ParentID=pid");
+    private final StoredProcedure selectExpiredTime = procedures.selectColumn("ExpiredTime", "ExpiredTime", "gid INT, pid INT", "GroupID=gid AND ParentID=pid");
+    private final StoredProcedure selectParentIds = procedures.selectColumns("ParentIDs", "ParentID", "gid INT", "GroupID=gid");
+    private final StoredProcedure selectGrants = procedures.selectRows("Grants", "gid INT", "GroupID=gid");
+    private final String scanExpiredBefore = procedures.scan("*", "ExpiredTime <> -1 AND ExpiredTime <= ?");
+    private final StoredProcedure add = procedures.statement("Add", "gid INT, creator INT, pid INT, created BIGINT, expired BIGINT", "INSERT INTO [TABLE] VALUES (gid, creator, pid, created, expired);");
+    private final StoredProcedure remove = procedures.statement("Remove", "gid INT, pid INT", "DELETE FROM [TABLE] WHERE GroupID=gid AND ParentID=pid;");
+    private final StoredProcedure clear = procedures.statement("Clear", "gid INT", "DELETE FROM [TABLE] WHERE GroupID=gid;");
+    private final StoredProcedure updateExpired = procedures.statement("Expired", "gid INT, pid INT, expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE GroupID=gid AND ParentID=pid;");
 
     public GroupParentProvider() {
-        String tableName = "GroupParent";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-    }
-
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "GroupID INT, CreatorID INT, ParentID INT, CreatedTime BIGINT, ExpiredTime BIGINT");
+        procedures.createAll();
     }
 
     @Override
     public boolean existsParent(int groupId, int parentId) {
-        return Database.callExists(Procedure.GROUP_PARENT_PARENT.getName(), groupId, parentId);
+        return Database.callExists(exists.name(), groupId, parentId);
     }
 
     @Override
     public void addParent(int groupId, int creatorId, int parentId, long time) {
         if (existsParent(groupId, parentId)) return;
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        Database.callUpdate(Procedure.GROUP_PARENT_ADD.getName(), groupId, creatorId, parentId, System.currentTimeMillis(), expired);
+        Database.callUpdate(add.name(), groupId, creatorId, parentId, System.currentTimeMillis(), expired);
     }
 
     @Override
     public void removeParent(int groupId, int parentId) {
-        Database.callUpdate(Procedure.GROUP_PARENT_REMOVE.getName(), groupId, parentId);
+        Database.callUpdate(remove.name(), groupId, parentId);
     }
 
     @Override
     public void clearParent(int groupId) {
-        Database.callUpdate(Procedure.GROUP_PARENT_CLEAR.getName(), groupId);
+        Database.callUpdate(clear.name(), groupId);
     }
 
     @Override
     public List<Integer> getParentIds(int groupId) {
-        return Database.callQueryList("ParentID", int.class, Procedure.GROUP_PARENT_GROUP_ID.getName(), groupId);
+        return Database.callQueryList("ParentID", int.class, selectParentIds.name(), groupId);
+    }
+
+    @Override
+    public int[] getParentIdArray(int groupId) {
+        return Database.callQueryInts("ParentID", selectParentIds.name(), groupId);
     }
 
     @Override
     public List<String> getParentNames(Group group, int groupId) {
-        return getParentIds(groupId).parallelStream().map(group::getName).collect(Collectors.toList());
+        return Arrays.stream(getParentIdArray(groupId)).parallel().mapToObj(group::getName).collect(Collectors.toList());
+    }
+
+    @Override
+    public ParentGrant getGrant(int groupId, int parentId) {
+        return Database.callQueryRow(selectGrant.name(), GRANT_MAPPER, groupId, parentId);
+    }
+
+    @Override
+    public List<ParentGrant> getGrants(int groupId) {
+        return Database.callQueryRows(selectGrants.name(), GRANT_MAPPER, groupId);
     }
 
     @Override
     public int getCreatorId(int groupId, int parentId) {
-        return Database.callQuery(-2, "CreatorID", int.class, Procedure.GROUP_PARENT_PARENT.getName(), groupId, parentId);
+        return Database.callQuery(-2, "CreatorID", int.class, selectCreatorId.name(), groupId, parentId);
     }
 
     @Override
     public long getCreatedTime(int groupId, int parentId) {
-        return Database.callQuery(-1L, "CreatedTime", long.class, Procedure.GROUP_PARENT_PARENT.getName(), groupId, parentId);
+        return Database.callQuery(-1L, "CreatedTime", long.class, selectCreatedTime.name(), groupId, parentId);
     }
 
     @Override
@@ -69,7 +104,7 @@ public final class GroupParentProvider implements GroupParent {
 
     @Override
     public long getExpiredTime(int groupId, int parentId) {
-        return Database.callQuery(-2L, "ExpiredTime", long.class, Procedure.GROUP_PARENT_PARENT.getName(), groupId, parentId);
+        return Database.callQuery(-2L, "ExpiredTime", long.class, selectExpiredTime.name(), groupId, parentId);
     }
 
     @Override
@@ -81,7 +116,7 @@ public final class GroupParentProvider implements GroupParent {
     @Override
     public String setExpiredTime(int groupId, int parentId, long time) {
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        Database.callUpdate(Procedure.GROUP_PARENT_EXPIRED.getName(), groupId, parentId, expired);
+        Database.callUpdate(updateExpired.name(), groupId, parentId, expired);
         return getExpiredDate(groupId, parentId);
     }
 
@@ -89,7 +124,7 @@ public final class GroupParentProvider implements GroupParent {
     public String addExpiredTime(int groupId, int parentId, long time) {
         long current = getExpiredTime(groupId, parentId);
         long expired = current == -1 ? System.currentTimeMillis() + time : current + time;
-        Database.callUpdate(Procedure.GROUP_PARENT_EXPIRED.getName(), groupId, parentId, expired);
+        Database.callUpdate(updateExpired.name(), groupId, parentId, expired);
         return getExpiredDate(groupId, parentId);
     }
 
@@ -97,47 +132,14 @@ public final class GroupParentProvider implements GroupParent {
     public String removeExpiredTime(int groupId, int parentId, long time) {
         long current = getExpiredTime(groupId, parentId);
         long expired = current == -1 ? System.currentTimeMillis() : current - time;
-        Database.callUpdate(Procedure.GROUP_PARENT_EXPIRED.getName(), groupId, parentId, expired);
+        Database.callUpdate(updateExpired.name(), groupId, parentId, expired);
         return getExpiredDate(groupId, parentId);
     }
 
     @Override
     public void loadExpired(Group group) {
-        for (int groupId : group.getUniqueIds())
-            for (int parentId : getParentIds(groupId)) {
-                long time = getExpiredTime(groupId, parentId);
-                if (time == -1) continue;
-                if (time <= System.currentTimeMillis()) removeParent(groupId, parentId);
-            }
-    }
-
-    private enum Procedure {
-        GROUP_PARENT_GROUP_ID("GroupParent_GroupID", "gid INT", "SELECT * FROM [TABLE] WHERE GroupID=gid;"),
-        GROUP_PARENT_PARENT("GroupParent_Parent", "gid INT, pid INT", "SELECT * FROM [TABLE] WHERE GroupID=gid AND ParentID=pid;"),
-        GROUP_PARENT_ADD("GroupParent_Add", "gid INT, creator INT, pid INT, created BIGINT, expired BIGINT", "INSERT INTO [TABLE] VALUES (gid, creator, pid, created, expired);"),
-        GROUP_PARENT_REMOVE("GroupParent_Remove", "gid INT, pid INT", "DELETE FROM [TABLE] WHERE GroupID=gid AND ParentID=pid;"),
-        GROUP_PARENT_CLEAR("GroupParent_Clear", "gid INT", "DELETE FROM [TABLE] WHERE GroupID=gid;"),
-        GROUP_PARENT_EXPIRED("GroupParent_Expired", "gid INT, pid INT, expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE GroupID=gid AND ParentID=pid;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
-
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
+        List<ParentGrant> expired = new ArrayList<>();
+        Database.forEach(scanExpiredBefore, GRANT_MAPPER, expired::add, System.currentTimeMillis());
+        for (ParentGrant grant : expired) removeParent(grant.ownerId(), grant.parentId());
     }
 }
@@ -2,6 +2,7 @@ package de.murmelmeister.murmelapi.group.permission;
 
 import de.murmelmeister.murmelapi.group.Group;
 import de.murmelmeister.murmelapi.group.parent.GroupParent;
+import de.murmelmeister.murmelapi.permission.PermissionGrant;
 
 import java.util.List;
 
@@ -60,6 +61,23 @@ public sealed interface GroupPermission permits GroupPermissionProvider {
      */
     List<String> getAllPermissions(GroupParent groupParent, int groupId);
 
+    /**
+     * Obtains a permission of a group with all its details in a single query.
+     *
+     * @param groupId    The id of the group.
+     * @param permission The permission.
+     * @return The permission with its details, or null if the group does not have the permission.
+     */
+    PermissionGrant getGrant(int groupId, String permission);
+
+    /**
+     * Obtains all permissions of a group with all their details in a single query.
+     *
+     * @param groupId The id of the group.
+     * @return A list of all permissions of the group with their details.
+     */
+    List<PermissionGrant> getGrants(int groupId);
+
     /**
      * Obtains the creator id of a permission.
      *
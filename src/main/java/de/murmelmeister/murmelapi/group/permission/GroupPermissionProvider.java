@@ -2,66 +2,94 @@ package de.murmelmeister.murmelapi.group.permission;
 
 import de.murmelmeister.murmelapi.group.Group;
 import de.murmelmeister.murmelapi.group.parent.GroupParent;
+import de.murmelmeister.murmelapi.permission.PermissionGrant;
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.RowMapper;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import de.murmelmeister.murmelapi.utils.database.Subsystem;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 public final class GroupPermissionProvider implements GroupPermission {
+    private static final RowMapper<PermissionGrant> GRANT_MAPPER = resultSet -> new PermissionGrant(resultSet.getInt("GroupID"),
+            resultSet.getInt("CreatorID"), resultSet.getString("Permission"), resultSet.getLong("CreatedTime"), resultSet.getLong("ExpiredTime"));
+
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+    private final ProcedureRegistry procedures = new ProcedureRegistry("GroupPermission", "GroupID INT, CreatorID INT, Permission VARCHAR(1000), CreatedTime BIGINT, ExpiredTime BIGINT")
+            .subsystem(Subsystem.PERMISSION)
+            .index("GroupPermission", "GroupID, Permission(191)")
+            .index("ExpiredTime", "ExpiredTime");
+    private final StoredProcedure exists = procedures.exists("Exists", "gid INT, perm VARCHAR(1000)", "GroupID=gid AND Permission=perm");
+    private final StoredProcedure selectGrant = procedures.selectRow("Grant", "gid INT, perm VARCHAR(1000)", "GroupID=gid AND Permission=perm");
+    private final StoredProcedure selectCreatorId = procedures.selectColumn("CreatorID", "CreatorID", "gid INT, perm VARCHAR(1000)", "GroupID=gid AND Permission=perm");
+    private final StoredProcedure selectCreatedTime = procedures.selectColumn("CreatedTime", "CreatedTime", "gid INT, perm VARCHAR(1000)", "GroupID=gid AND Permission=perm");
+    private final StoredProcedure selectExpiredTime = procedures.selectColumn("ExpiredTime", "ExpiredTime", "gid INT, perm VARCHAR(1000)", "GroupID=gid AND Permission=perm");
+    private final StoredProcedure selectPermissions = procedures.selectColumns("Permissions", "Permission", "gid INT", "GroupID=gid");
+    private final StoredProcedure selectGrants = procedures.selectRows("Grants", "gid INT", "GroupID=gid");
+    private final String scanExpiredBefore = procedures.scan("*", "ExpiredTime <> -1 AND ExpiredTime <= ?");
+    private final StoredProcedure add = procedures.statement("Add", "gid INT, creator INT, perm VARCHAR(1000), created BIGINT, expired BIGINT", "INSERT INTO [TABLE] VALUES (gid, creator, perm, created, expired);");
+    private final StoredProcedure remove = procedures.statement("Remove", "gid INT, perm VARCHAR(1000)", "DELETE FROM [TABLE] WHERE GroupID=gid AND Permission=perm;");
+    private final StoredProcedure clear = procedures.statement("Clear", "gid INT", "DELETE FROM [TABLE] WHERE GroupID=gid;");
+    private final StoredProcedure updateExpired = procedures.statement("Expired", "gid INT, perm VARCHAR(1000), expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE GroupID=gid AND Permission=perm;");
 
     public GroupPermissionProvider() {
-        String tableName = "GroupPermission";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-    }
-
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "GroupID INT, CreatorID INT, Permission VARCHAR(1000), CreatedTime BIGINT, ExpiredTime BIGINT");
+        procedures.createAll();
     }
 
     @Override
     public boolean existsPermission(int groupId, String permission) {
-        return Database.callExists(Procedure.GROUP_PERMISSION_PERMISSION.getName(), groupId, permission);
+        return Database.callExists(exists.name(), groupId, permission);
     }
 
     @Override
     public void addPermission(int groupId, int creatorId, String permission, long time) {
         if (existsPermission(groupId, permission)) return;
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        Database.callUpdate(Procedure.GROUP_PERMISSION_ADD.getName(), groupId, creatorId, permission, System.currentTimeMillis(), expired);
+        Database.callUpdate(add.name(), groupId, creatorId, permission, System.currentTimeMillis(), expired);
     }
 
     @Override
     public void removePermission(int groupId, String permission) {
-        Database.callUpdate(Procedure.GROUP_PERMISSION_REMOVE.getName(), groupId, permission);
+        Database.callUpdate(remove.name(), groupId, permission);
     }
 
     @Override
     public void clearPermission(int groupId) {
-        Database.callUpdate(Procedure.GROUP_PERMISSION_CLEAR.getName(), groupId);
+        Database.callUpdate(clear.name(), groupId);
     }
 
     @Override
     public List<String> getPermissions(int groupId) {
-        return Database.callQueryList("Permission", String.class, Procedure.GROUP_PERMISSION_GROUP_ID.getName(), groupId);
+        return Database.callQueryList("Permission", String.class, selectPermissions.name(), groupId);
     }
 
     @Override
     public List<String> getAllPermissions(GroupParent groupParent, int groupId) {
         Set<String> permissions = Collections.synchronizedSet(new LinkedHashSet<>(getPermissions(groupId)));
-        groupParent.getParentIds(groupId).parallelStream().map(parentId -> getAllPermissions(groupParent, parentId)).forEach(permissions::addAll);
+        Arrays.stream(groupParent.getParentIdArray(groupId)).parallel().mapToObj(parentId -> getAllPermissions(groupParent, parentId)).forEach(permissions::addAll);
         return new ArrayList<>(permissions);
     }
 
+    @Override
+    public PermissionGrant getGrant(int groupId, String permission) {
+        return Database.callQueryRow(selectGrant.name(), GRANT_MAPPER, groupId, permission);
+    }
+
+    @Override
+    public List<PermissionGrant> getGrants(int groupId) {
+        return Database.callQueryRows(selectGrants.name(), GRANT_MAPPER, groupId);
+    }
+
     @Override
     public int getCreatorId(int groupId, String permission) {
-        return Database.callQuery(-2, "CreatorID", int.class, Procedure.GROUP_PERMISSION_PERMISSION.getName(), groupId, permission);
+        return Database.callQuery(-2, "CreatorID", int.class, selectCreatorId.name(), groupId, permission);
     }
 
     @Override
     public long getCreatedTime(int groupId, String permission) {
-        return Database.callQuery(-1L, "CreatedTime", long.class, Procedure.GROUP_PERMISSION_PERMISSION.getName(), groupId, permission);
+        return Database.callQuery(-1L, "CreatedTime", long.class, selectCreatedTime.name(), groupId, permission);
     }
 
     @Override
@@ -71,7 +99,7 @@ public final class GroupPermissionProvider implements GroupPermission {
 
     @Override
     public long getExpiredTime(int groupId, String permission) {
-        return Database.callQuery(-2L, "ExpiredTime", long.class, Procedure.GROUP_PERMISSION_PERMISSION.getName(), groupId, permission);
+        return Database.callQuery(-2L, "ExpiredTime", long.class, selectExpiredTime.name(), groupId, permission);
     }
 
     @Override
@@ -83,7 +111,7 @@ public final class GroupPermissionProvider implements GroupPermission {
     @Override
     public String setExpiredTime(int groupId, String permission, long time) {
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        Database.callUpdate(Procedure.GROUP_PERMISSION_EXPIRED.getName(), groupId, permission, expired);
+        Database.callUpdate(updateExpired.name(), groupId, permission, expired);
         return getExpiredDate(groupId, permission);
     }
 
@@ -91,7 +119,7 @@ public final class GroupPermissionProvider implements GroupPermission {
     public String addExpiredTime(int groupId, String permission, long time) {
         long current = getExpiredTime(groupId, permission);
         long expired = current == -1 ? System.currentTimeMillis() + time : current + time;
-        Database.callUpdate(Procedure.GROUP_PERMISSION_EXPIRED.getName(), groupId, permission, expired);
+        Database.callUpdate(updateExpired.name(), groupId, permission, expired);
         return getExpiredDate(groupId, permission);
     }
 
@@ -99,47 +127,14 @@ public final class GroupPermissionProvider implements GroupPermission {
     public String removeExpiredTime(int groupId, String permission, long time) {
         long current = getExpiredTime(groupId, permission);
         long expired = current == -1 ? System.currentTimeMillis() : current - time;
-        Database.callUpdate(Procedure.GROUP_PERMISSION_EXPIRED.getName(), groupId, permission, expired);
+        Database.callUpdate(updateExpired.name(), groupId, permission, expired);
         return getExpiredDate(groupId, permission);
     }
 
     @Override
     public void loadExpired(Group group) {
-        for (int groupId : group.getUniqueIds())
-            for (String permission : getPermissions(groupId)) {
-                long time = getExpiredTime(groupId, permission);
-                if (time == -1) continue;
-                if (time <= System.currentTimeMillis()) removePermission(groupId, permission);
-            }
-    }
-
-    private enum Procedure {
-        GROUP_PERMISSION_GROUP_ID("GroupPermission_GroupID", "gid INT", "SELECT * FROM [TABLE] WHERE GroupID=gid;"),
-        GROUP_PERMISSION_PERMISSION("GroupPermission_Permission", "gid INT, perm VARCHAR(1000)", "SELECT * FROM [TABLE] WHERE GroupID=gid AND Permission=perm;"),
-        GROUP_PERMISSION_ADD("GroupPermission_Add", "gid INT, creator INT, perm VARCHAR(1000), created BIGINT, expired BIGINT", "INSERT INTO [TABLE] VALUES (gid, creator, perm, created, expired);"),
-        GROUP_PERMISSION_REMOVE("GroupPermission_Remove", "gid INT, perm VARCHAR(1000)", "DELETE FROM [TABLE] WHERE GroupID=gid AND Permission=perm;"),
-        GROUP_PERMISSION_CLEAR("GroupPermission_Clear", "gid INT", "DELETE FROM [TABLE] WHERE GroupID=gid;"),
-        GROUP_PERMISSION_EXPIRED("GroupPermission_Expired", "gid INT, perm VARCHAR(1000), expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE GroupID=gid AND Permission=perm;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
-
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
+        List<PermissionGrant> expired = new ArrayList<>();
+        Database.forEach(scanExpiredBefore, GRANT_MAPPER, expired::add, System.currentTimeMillis());
+        for (PermissionGrant grant : expired) removePermission(grant.ownerId(), grant.permission());
     }
 }
@@ -0,0 +1,64 @@
+package de.murmelmeister.murmelapi.group.settings;
+
+/**
+ * The color settings of a group, read as a whole row.
+ *
+ * @param groupId    The id of the group
+ * @param creatorId  The id of the last editor of the settings
+ * @param editedTime The time the settings were last edited, in milliseconds since the epoch
+ * @param chatPrefix The chat prefix of the group
+ * @param chatSuffix The chat suffix of the group
+ * @param chatColor  The chat color of the group
+ * @param tabPrefix  The tab prefix of the group
+ * @param tabSuffix  The tab suffix of the group
+ * @param tabColor   The tab color of the group
+ * @param tagPrefix  The tag prefix of the group
+ * @param tagSuffix  The tag suffix of the group
+ * @param tagColor   The tag color of the group
+ */
+public record GroupColorRow(int groupId, int creatorId, long editedTime,
+                            String chatPrefix, String chatSuffix, String chatColor,
+                            String tabPrefix, String tabSuffix, String tabColor,
+                            String tagPrefix, String tagSuffix, String tagColor) {
+    /**
+     * Obtains the prefix of the given type.
+     *
+     * @param type The type of the group color
+     * @return the prefix of the given type
+     */
+    public String prefix(GroupColorType type) {
+        return switch (type) {
+            case CHAT -> chatPrefix;
+            case TAB -> tabPrefix;
+            case TAG -> tagPrefix;
+        };
+    }
+
+    /**
+     * Obtains the suffix of the given type.
+     *
+     * @param type The type of the group color
+     * @return the suffix of the given type
+     */
+    public String suffix(GroupColorType type) {
+        return switch (type) {
+            case CHAT -> chatSuffix;
+            case TAB -> tabSuffix;
+            case TAG -> tagSuffix;
+        };
+    }
+
+    /**
+     * Obtains the color of the given type.
+     *
+     * @param type The type of the group color
+     * @return the color of the given type
+     */
+    public String color(GroupColorType type) {
+        return switch (type) {
+            case CHAT -> chatColor;
+            case TAB -> tabColor;
+            case TAG -> tagColor;
+        };
+    }
+}
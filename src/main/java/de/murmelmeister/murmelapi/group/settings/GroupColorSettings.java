@@ -46,6 +46,14 @@ public sealed interface GroupColorSettings permits GroupColorSettingsProvider {
      */
     void deleteGroup(int groupId);
 
+    /**
+     * Obtains all color settings of a group in a single query.
+     *
+     * @param groupId The id of the group.
+     * @return The color settings of the group, or null if the group has no color settings.
+     */
+    GroupColorRow getRow(int groupId);
+
     /**
      * Obtains the creator id of a group.
      *
@@ -0,0 +1,31 @@
+package de.murmelmeister.murmelapi.permission;
+
+/**
+ * A parent group assigned to a user or a group, read as a whole row.
+ *
+ * @param ownerId     The id of the user or group the parent belongs to
+ * @param creatorId   The id of the creator of the parent
+ * @param parentId    The id of the parent group
+ * @param createdTime The time the parent was added, in milliseconds since the epoch
+ * @param expiredTime The time the parent expires, in milliseconds since the epoch, or -1 if it never expires
+ */
+public record ParentGrant(int ownerId, int creatorId, int parentId, long createdTime, long expiredTime) {
+    /**
+     * Checks whether the parent never expires.
+     *
+     * @return true if the parent never expires, otherwise false
+     */
+    public boolean isPermanent() {
+        return expiredTime == -1;
+    }
+
+    /**
+     * Checks whether the parent is expired at the given time.
+     *
+     * @param now The time to check against, in milliseconds since the epoch
+     * @return true if the parent is expired, otherwise false
+     */
+    public boolean isExpired(long now) {
+        return !isPermanent() && expiredTime <= now;
+    }
+}
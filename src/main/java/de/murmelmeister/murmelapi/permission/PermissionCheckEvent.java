@@ -0,0 +1,33 @@
+package de.murmelmeister.murmelapi.permission;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event of {@link Permission#hasPermission(java.util.UUID, String)}.
+ * The threshold can be changed per recording, for example with
+ * {@code -XX:StartFlightRecording:de.murmelmeister.murmelapi.PermissionCheck#threshold=0ms}.
+ */
+@Name("de.murmelmeister.murmelapi.PermissionCheck")
+@Label("Permission Check")
+@Category({"MurmelAPI", "Permission"})
+@Description("A permission check of a user including its groups")
+@Threshold("1 ms")
+final class PermissionCheckEvent extends Event {
+    @Label("User ID")
+    int userId;
+
+    @Label("Permission")
+    String permission;
+
+    @Label("Result")
+    boolean result;
+
+    @Label("Database Calls")
+    @Description("The number of database calls made by the check")
+    long databaseCalls;
+}
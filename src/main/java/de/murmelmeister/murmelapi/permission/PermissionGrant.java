@@ -0,0 +1,31 @@
+package de.murmelmeister.murmelapi.permission;
+
+/**
+ * A permission granted to a user or a group, read as a whole row.
+ *
+ * @param ownerId     The id of the user or group the permission belongs to
+ * @param creatorId   The id of the creator of the permission
+ * @param permission  The permission
+ * @param createdTime The time the permission was created, in milliseconds since the epoch
+ * @param expiredTime The time the permission expires, in milliseconds since the epoch, or -1 if it never expires
+ */
+public record PermissionGrant(int ownerId, int creatorId, String permission, long createdTime, long expiredTime) {
+    /**
+     * Checks whether the permission never expires.
+     *
+     * @return true if the permission never expires, otherwise false
+     */
+    public boolean isPermanent() {
+        return expiredTime == -1;
+    }
+
+    /**
+     * Checks whether the permission is expired at the given time.
+     *
+     * @param now The time to check against, in milliseconds since the epoch
+     * @return true if the permission is expired, otherwise false
+     */
+    public boolean isExpired(long now) {
+        return !isPermanent() && expiredTime <= now;
+    }
+}
@@ -2,6 +2,7 @@ package de.murmelmeister.murmelapi.permission;
 
 import de.murmelmeister.murmelapi.group.Group;
 import de.murmelmeister.murmelapi.user.User;
+import de.murmelmeister.murmelapi.utils.Database;
 
 import java.util.*;
 
@@ -9,14 +10,29 @@ public record PermissionProvider(Group group, User user) implements Permission {
     @Override
     public List<String> getPermissions(int userId) {
         Set<String> permissions = new LinkedHashSet<>(user.getPermission().getPermissions(userId));
-        for (int parentId : user.getParent().getParentIds(userId))
+        for (int parentId : user.getParent().getParentIdArray(userId))
             permissions.addAll(group.getPermission().getAllPermissions(group.getParent(), parentId));
         return new ArrayList<>(permissions);
     }
 
     @Override
     public boolean hasPermission(UUID uuid, String permission) {
-        Set<String> permissions = new LinkedHashSet<>(getPermissions(user.getId(uuid)));
+        PermissionCheckEvent event = new PermissionCheckEvent();
+        event.begin();
+        long calls = Database.getThreadCallCount();
+        int userId = user.getId(uuid);
+        boolean result = hasPermission(new LinkedHashSet<>(getPermissions(userId)), permission);
+        if (event.shouldCommit()) {
+            event.userId = userId;
+            event.permission = permission;
+            event.result = result;
+            event.databaseCalls = Database.getThreadCallCount() - calls;
+            event.commit();
+        }
+        return result;
+    }
+
+    private static boolean hasPermission(Set<String> permissions, String permission) {
         if (permissions.contains("-" + permission)) return false;
         if (permissions.contains("*")) return true;
         return permissions.contains(permission);
@@ -1,73 +1,61 @@
 package de.murmelmeister.murmelapi.time;
 
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import de.murmelmeister.murmelapi.utils.database.Subsystem;
 
 import java.text.SimpleDateFormat;
 import java.util.List;
 
 public final class JoinLoggerProvider implements JoinLogger {
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+    private final ProcedureRegistry procedures = new ProcedureRegistry("JoinLogger", "TimeID INT PRIMARY KEY AUTO_INCREMENT, UserID INT, JoinDate BIGINT")
+            .subsystem(Subsystem.LOGGING)
+            .index("UserID", "UserID");
+    private final StoredProcedure insert = procedures.statement("Insert", "uid INT, jDate BIGINT", "INSERT INTO [TABLE] (UserID, JoinDate) VALUES (uid, jDate); SELECT LAST_INSERT_ID() AS id;");
+    private final StoredProcedure delete = procedures.statement("DeleteUser", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;");
+    private final StoredProcedure timeIds = procedures.selectColumns("TimeIDs", "TimeID", "uid INT", "UserID=uid");
+    private final StoredProcedure times = procedures.selectColumns("JoinDates", "JoinDate", "uid INT", "UserID=uid");
+    private final StoredProcedure time = procedures.selectColumn("JoinDate", "JoinDate", "tid INT, uid INT", "TimeID=tid AND UserID=uid");
 
     public JoinLoggerProvider() {
-        String tableName = "JoinLogger";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-    }
-
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "TimeID INT PRIMARY KEY AUTO_INCREMENT, UserID INT, JoinDate BIGINT");
+        procedures.createAll();
     }
 
     @Override
     public int createJoinDate(int userId) {
-        return Database.callUpdate(-1, "id", int.class, Procedure.JOIN_LOGGER_INSERT.getName(), userId, System.currentTimeMillis());
+        // A lost log entry must not block the join or quit
+        return Database.withFallback(-1, () -> Database.callUpdate(-1, "id", int.class, insert.name(), userId, System.currentTimeMillis()));
     }
 
     @Override
     public void deleteUser(int userId) {
-        Database.callUpdate(Procedure.JOIN_LOGGER_DELETE_USER.getName(), userId);
+        Database.callUpdate(delete.name(), userId);
     }
 
     @Override
     public List<Integer> getTimeIds(int userId) {
-        return Database.callQueryList("TimeID", int.class, Procedure.JOIN_LOGGER_GET_USER.getName(), userId);
+        return Database.callQueryList("TimeID", int.class, timeIds.name(), userId);
     }
 
     @Override
-    public long getJoinTime(int timeId, int userId) {
-        return Database.callQuery(-1L, "JoinDate", long.class, Procedure.JOIN_LOGGER_GET_TIME.getName(), timeId, userId);
+    public int[] getTimeIdArray(int userId) {
+        return Database.callQueryInts("TimeID", timeIds.name(), userId);
     }
 
     @Override
-    public String getJoinDate(int timeId, int userId) {
-        return dateFormat.format(getJoinTime(timeId, userId));
+    public long[] getJoinTimes(int userId) {
+        return Database.callQueryLongs("JoinDate", times.name(), userId);
     }
 
-    private enum Procedure {
-        JOIN_LOGGER_INSERT("JoinLogger_Insert", "uid INT, jDate BIGINT", "INSERT INTO [TABLE] (UserID, JoinDate) VALUES (uid, jDate); SELECT LAST_INSERT_ID() AS id;"),
-        JOIN_LOGGER_DELETE_USER("JoinLogger_DeleteUser", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;"),
-        JOIN_LOGGER_GET_USER("JoinLogger_GetUser", "uid INT", "SELECT * FROM [TABLE] WHERE UserID=uid;"),
-        JOIN_LOGGER_GET_TIME("JoinLogger_GetTime", "tid INT, uid INT", "SELECT * FROM [TABLE] WHERE TimeID=tid AND UserID=uid;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
+    @Override
+    public long getJoinTime(int timeId, int userId) {
+        return Database.callQuery(-1L, "JoinDate", long.class, time.name(), timeId, userId);
+    }
 
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
+    @Override
+    public String getJoinDate(int timeId, int userId) {
+        return dateFormat.format(getJoinTime(timeId, userId));
     }
 }
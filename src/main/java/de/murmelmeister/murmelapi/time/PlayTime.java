@@ -1,5 +1,7 @@
 package de.murmelmeister.murmelapi.time;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The PlayTime interface provides methods to manage and manipulate play time for users.
  */
@@ -36,6 +38,7 @@ public sealed interface PlayTime permits PlayTimeProvider {
 
     /**
      * Sets the play time for a user with the specified user ID.
+     * The update is written behind, see {@link de.murmelmeister.murmelapi.utils.database.WriteBehindQueue}.
      *
      * @param userId The ID of the user
      * @param time   The play time to set for the user, in seconds
@@ -80,4 +83,29 @@ public sealed interface PlayTime permits PlayTimeProvider {
      * @param userId The ID of the user whose play time needs to be reset
      */
     void resetTime(int userId);
+
+    /**
+     * Asynchronous variant of {@link #getTime(int)}.
+     *
+     * @param userId The ID of the user
+     * @return a future completed with the play time of the user, in seconds
+     */
+    CompletableFuture<Integer> getTimeAsync(int userId);
+
+    /**
+     * Asynchronous variant of {@link #setTime(int, int)}.
+     *
+     * @param userId The ID of the user
+     * @param time   The play time to set for the user, in seconds
+     * @return a future completed when the play time is set
+     */
+    CompletableFuture<Void> setTimeAsync(int userId, int time);
+
+    /**
+     * Asynchronous variant of {@link #addTime(int)}.
+     *
+     * @param userId The ID of the user whose play time will be incremented by one unit
+     * @return a future completed when the play time is incremented
+     */
+    CompletableFuture<Void> addTimeAsync(int userId);
 }
@@ -1,72 +1,86 @@
 package de.murmelmeister.murmelapi.time;
 
-import de.murmelmeister.murmelapi.user.User;
+import de.murmelmeister.murmelapi.user.UserSession;
+import de.murmelmeister.murmelapi.user.UserSessions;
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import de.murmelmeister.murmelapi.utils.database.Subsystem;
 
-public final class PlayTimeProvider implements PlayTime {
-    public PlayTimeProvider(User user) {
-        String tableName = "PlayTime";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-        loadTables(user);
-    }
+import java.util.concurrent.CompletableFuture;
 
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "UserID INT PRIMARY KEY, Seconds INT");
+public final class PlayTimeProvider implements PlayTime {
+    private final String tableName = "PlayTime";
+    private final ProcedureRegistry procedures = new ProcedureRegistry(tableName, "UserID INT PRIMARY KEY, Seconds INT")
+            .subsystem(Subsystem.PLAY_TIME);
+    private final StoredProcedure exists = procedures.exists("Exists", "uid INT", "UserID=uid");
+    private final StoredProcedure seconds = procedures.selectColumn("Seconds", "Seconds", "uid INT", "UserID=uid");
+    // A row that a login on another server inserts at the same time is kept instead of failing the startup
+    private final StoredProcedure backfill = procedures.statement("Backfill", "",
+            "INSERT INTO [TABLE] (UserID, Seconds) SELECT u.ID, 0 FROM User u WHERE NOT EXISTS (SELECT 1 FROM [TABLE] p WHERE p.UserID=u.ID) " +
+            "ON DUPLICATE KEY UPDATE [TABLE].UserID=[TABLE].UserID;");
+    private final StoredProcedure insert = procedures.statement("Insert", "uid INT, sec INT", "INSERT INTO [TABLE] VALUES (uid, sec);");
+    private final StoredProcedure delete = procedures.statement("Delete", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;");
+    private final StoredProcedure update = procedures.statement("Update", "uid INT, sec INT", "UPDATE [TABLE] SET Seconds=sec WHERE UserID=uid;");
+
+    public PlayTimeProvider() {
+        procedures.createAll();
+        Database.callUpdate(backfill.name());
     }
 
     @Override
     public boolean existsUser(int userId) {
-        return Database.callExists(Procedure.PLAY_TIME_USER_ID.getName(), userId);
+        return Database.callExists(exists.name(), userId);
     }
 
     @Override
     public void createUser(int userId) {
-        if (existsUser(userId)) return;
-        Database.callUpdate(Procedure.PLAY_TIME_INSERT.getName(), userId, 0);
+        Database.withTableLock(tableName, userId, () -> {
+            if (existsUser(userId)) return;
+            Database.callUpdate(insert.name(), userId, 0);
+        });
     }
 
     @Override
     public void deleteUser(int userId) {
-        Database.callUpdate(Procedure.PLAY_TIME_DELETE.getName(), userId);
+        Database.getWriteBehind().discard(update.name(), userId);
+        Database.callUpdate(delete.name(), userId);
     }
 
     @Override
     public int getTime(int userId) {
-        return Database.callQuery(-1, "Seconds", int.class, Procedure.PLAY_TIME_USER_ID.getName(), userId);
+        UserSession session = UserSessions.get(userId);
+        if (session != null) return session.getPlayTime();
+        Object[] pending = Database.getWriteBehind().getPending(update.name(), userId);
+        if (pending != null) return (int) pending[1];
+        return Database.callQuery(-1, "Seconds", int.class, seconds.name(), userId);
     }
 
     @Override
     public void setTime(int userId, int time) {
-        Database.callUpdate(Procedure.PLAY_TIME_UPDATE.getName(), userId, time);
+        Database.getWriteBehind().enqueue(update.name(), userId, userId, time);
+        UserSession session = UserSessions.get(userId);
+        if (session != null) session.setPlayTime(time);
     }
 
     @Override
     public void addTime(int userId) {
-        int current = getTime(userId);
-        ++current;
-        setTime(userId, current);
+        changeTime(userId, 1);
     }
 
     @Override
     public void addTime(int userId, PlayTimeType type, int time) {
-        int current = getTime(userId);
-        current = current + type.toSeconds(time);
-        setTime(userId, current);
+        changeTime(userId, type.toSeconds(time));
     }
 
     @Override
     public void removeTime(int userId) {
-        int current = getTime(userId);
-        --current;
-        setTime(userId, current);
+        changeTime(userId, -1);
     }
 
     @Override
     public void removeTime(int userId, PlayTimeType type, int time) {
-        int current = getTime(userId);
-        current = current - type.toSeconds(time);
-        setTime(userId, current);
+        changeTime(userId, -type.toSeconds(time));
     }
 
     @Override
@@ -74,36 +88,25 @@ public final class PlayTimeProvider implements PlayTime {
         setTime(userId, 0);
     }
 
-    private void loadTables(User user) {
-        for (int userId : user.getIds())
-            createUser(userId);
+    @Override
+    public CompletableFuture<Integer> getTimeAsync(int userId) {
+        return Database.async().supply(() -> getTime(userId));
     }
 
-    private enum Procedure {
-        PLAY_TIME_USER_ID("PlayTime_UserID", "uid INT", "SELECT * FROM [TABLE] WHERE UserID=uid;"),
-        PLAY_TIME_INSERT("PlayTime_Insert", "uid INT, sec INT", "INSERT INTO [TABLE] VALUES (uid, sec);"),
-        PLAY_TIME_DELETE("PlayTime_Delete", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;"),
-        PLAY_TIME_UPDATE("PlayTime_Update", "uid INT, sec INT", "UPDATE [TABLE] SET Seconds=sec WHERE UserID=uid;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
-
-        public String getName() {
-            return name;
-        }
+    @Override
+    public CompletableFuture<Void> setTimeAsync(int userId, int time) {
+        return Database.async().run(() -> setTime(userId, time));
+    }
 
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
+    @Override
+    public CompletableFuture<Void> addTimeAsync(int userId) {
+        return Database.async().run(() -> addTime(userId));
+    }
 
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
+    private void changeTime(int userId, int seconds) {
+        Database.withTableLock(tableName, userId, () -> {
+            int current = getTime(userId);
+            setTime(userId, current + seconds);
+        });
     }
 }
@@ -10,6 +10,7 @@ public sealed interface QuitLogger permits QuitLoggerProvider {
      * Logs the quit date for a user identified by the given userId.
      *
      * @param userId The ID of the user whose quit date is to be recorded
+     * @return the time ID of the record, or -1 if it was not recorded because the database is unavailable
      */
     int createQuitDate(int userId);
 
@@ -28,6 +29,22 @@ public sealed interface QuitLogger permits QuitLoggerProvider {
      */
     List<Integer> getTimeIds(int userId);
 
+    /**
+     * Retrieves the time IDs associated with a specific user as a primitive array, without boxing every ID.
+     *
+     * @param userId The ID of the user whose time IDs are to be retrieved.
+     * @return An array of time IDs associated with the given user ID.
+     */
+    int[] getTimeIdArray(int userId);
+
+    /**
+     * Retrieves all quit times of a specific user as a primitive array, without boxing every time.
+     *
+     * @param userId The ID of the user whose quit times are to be retrieved.
+     * @return An array of quit times in milliseconds since epoch, in the same order as the time IDs.
+     */
+    long[] getQuitTimes(int userId);
+
     /**
      * Retrieves the quit time for a user identified by the given userId and timeId.
      *
@@ -0,0 +1,303 @@
+package de.murmelmeister.murmelapi.user;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory cache of {@link UserIdentity user identities}, looked up by unique id, id or username.
+ * Usernames are compared case-insensitively like the default collation of the user table.
+ * Lookups are lock-free, changes and evictions are serialized by a lock.
+ * The entries of online users are pinned, the others are evicted least recently used first once the maximum size is exceeded.
+ * A load that raced with an invalidation of the same user or username is not cached, see {@link #getVersion()}.
+ * Invalidations leave a tombstone per key, so invalidations of other users do not keep loads from being cached.
+ * The cache is local to this server, usernames changed by other servers are corrected on the next join.
+ * (Thread-safe)
+ */
+public final class IdentityCache {
+    private static final int MAX_TOMBSTONES = 4096;
+
+    private final Map<UUID, Entry> byUniqueId = new ConcurrentHashMap<>();
+    private final Map<Integer, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byUsername = new ConcurrentHashMap<>();
+    private final Set<UUID> pinned = ConcurrentHashMap.newKeySet();
+    private final AtomicLong version = new AtomicLong();
+    // Keys are unique ids, ids and lowercase usernames, their types keep them apart
+    private final Map<Object, Long> tombstones = new ConcurrentHashMap<>();
+    private volatile long prunedVersion;
+    private final Lock lock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile int maximumSize = 10000;
+
+    /**
+     * Sets the number of entries above which offline users are evicted. The default is 10000.
+     *
+     * @param maximumSize The maximum number of entries, must be positive
+     */
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("maximumSize must be positive");
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Obtains a cached identity by the unique id.
+     *
+     * @param uuid The unique id of the user
+     * @return the identity, or null if it is not cached
+     */
+    public UserIdentity getByUniqueId(UUID uuid) {
+        return access(byUniqueId.get(uuid));
+    }
+
+    /**
+     * Obtains a cached identity by the id.
+     *
+     * @param id The id of the user
+     * @return the identity, or null if it is not cached
+     */
+    public UserIdentity getById(int id) {
+        return access(byId.get(id));
+    }
+
+    /**
+     * Obtains a cached identity by the username.
+     *
+     * @param username The username of the user, in any case
+     * @return the identity, or null if it is not cached
+     */
+    public UserIdentity getByUsername(String username) {
+        return access(byUsername.get(key(username)));
+    }
+
+    /**
+     * Obtains the version of the cache, which changes on every invalidation.
+     * Read it before loading an identity from the database and pass it to {@link #put(UserIdentity, long)}.
+     * Only invalidations of the loaded user or its username after this version keep the identity from being cached.
+     *
+     * @return the current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Caches a loaded identity, unless its unique id, id or username was invalidated since the load started.
+     *
+     * @param identity The identity loaded from the database
+     * @param version  The version read before the load
+     */
+    public void put(UserIdentity identity, long version) {
+        lock.lock();
+        try {
+            if (isInvalidatedAfter(identity, version)) return;
+            Entry previous = byId.get(identity.id());
+            if (previous != null) unlink(previous);
+            previous = byUniqueId.get(identity.uuid());
+            if (previous != null) unlink(previous);
+            Entry entry = new Entry(identity);
+            byUniqueId.put(identity.uuid(), entry);
+            byId.put(identity.id(), entry);
+            byUsername.put(key(identity.username()), entry);
+            if (byId.size() > maximumSize) evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the identity of a user.
+     *
+     * @param uuid The unique id of the user
+     */
+    public void invalidate(UUID uuid) {
+        lock.lock();
+        try {
+            long current = version.incrementAndGet();
+            tombstone(uuid, current);
+            Entry entry = byUniqueId.get(uuid);
+            if (entry != null) invalidateEntry(entry, current);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the identity that is cached for a username, for example because the name was taken by another user.
+     *
+     * @param username The username, in any case
+     */
+    public void invalidateUsername(String username) {
+        lock.lock();
+        try {
+            long current = version.incrementAndGet();
+            tombstone(key(username), current);
+            Entry entry = byUsername.get(key(username));
+            if (entry != null) invalidateEntry(entry, current);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all identities, pinned users stay pinned.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            // Every load that started before is refused, the tombstones are not needed anymore
+            prunedVersion = version.incrementAndGet();
+            tombstones.clear();
+            byUniqueId.clear();
+            byId.clear();
+            byUsername.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pins the identity of an online user, so it is not evicted.
+     *
+     * @param uuid The unique id of the user
+     */
+    public void pin(UUID uuid) {
+        pinned.add(uuid);
+    }
+
+    /**
+     * Unpins the identity of a user that went offline.
+     *
+     * @param uuid The unique id of the user
+     */
+    public void unpin(UUID uuid) {
+        pinned.remove(uuid);
+    }
+
+    /**
+     * Obtains the number of cached identities.
+     *
+     * @return the size of the cache
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Obtains the number of lookups that were answered from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Obtains the number of lookups that had to read the database.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Obtains the share of lookups that were answered from the cache.
+     *
+     * @return the hit rate between 0 and 1, or 0 if nothing was looked up
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * Obtains the number of identities that were evicted because the cache was full.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private UserIdentity access(Entry entry) {
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.lastAccess = System.nanoTime();
+        return entry.identity;
+    }
+
+    private boolean isInvalidatedAfter(UserIdentity identity, long version) {
+        if (version < prunedVersion) return true;
+        return tombstones.getOrDefault(identity.uuid(), 0L) > version || tombstones.getOrDefault(identity.id(), 0L) > version
+               || tombstones.getOrDefault(key(identity.username()), 0L) > version;
+    }
+
+    private void invalidateEntry(Entry entry, long version) {
+        UserIdentity identity = entry.identity;
+        tombstone(identity.uuid(), version);
+        tombstone(identity.id(), version);
+        tombstone(key(identity.username()), version);
+        unlink(entry);
+    }
+
+    private void tombstone(Object key, long version) {
+        if (tombstones.size() >= MAX_TOMBSTONES) {
+            // Loads that started before the oldest dropped tombstone are refused instead
+            prunedVersion = version;
+            tombstones.clear();
+        }
+        tombstones.put(key, version);
+    }
+
+    private void unlink(Entry entry) {
+        UserIdentity identity = entry.identity;
+        byUniqueId.remove(identity.uuid(), entry);
+        byId.remove(identity.id(), entry);
+        byUsername.remove(key(identity.username()), entry);
+    }
+
+    private void evict() {
+        // Evicts a tenth of the entries at once, so the sort is paid once per many inserts
+        int target = maximumSize - maximumSize / 10;
+        // The access times are copied, lookups keep updating them during the sort
+        List<Candidate> candidates = new ArrayList<>(byId.size());
+        for (Entry entry : byId.values())
+            if (!pinned.contains(entry.identity.uuid())) candidates.add(new Candidate(entry, entry.lastAccess));
+        candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+        for (int i = 0; i < candidates.size() && byId.size() > target; i++) {
+            unlink(candidates.get(i).entry());
+            evictions.increment();
+        }
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private record Candidate(Entry entry, long lastAccess) {
+    }
+
+    private static final class Entry {
+        private final UserIdentity identity;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(UserIdentity identity) {
+            this.identity = identity;
+        }
+    }
+}
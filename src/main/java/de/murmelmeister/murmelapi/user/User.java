@@ -6,9 +6,15 @@ import de.murmelmeister.murmelapi.time.QuitLogger;
 import de.murmelmeister.murmelapi.user.parent.UserParent;
 import de.murmelmeister.murmelapi.user.permission.UserPermission;
 import de.murmelmeister.murmelapi.user.settings.UserSettings;
+import de.murmelmeister.murmelapi.utils.IntObjectMap;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * User interface to manage users.
@@ -95,6 +101,74 @@ public sealed interface User permits UserProvider {
      */
     String getUsername(int id);
 
+    /**
+     * Obtains the id, unique id and username of a user at once.
+     * Identities are cached, see {@link #getIdentityCache()}.
+     *
+     * @param uuid The unique id of the user.
+     * @return The identity of the user, or null if the user does not exist.
+     */
+    UserIdentity getIdentity(UUID uuid);
+
+    /**
+     * Obtains the id, unique id and username of a user at once.
+     *
+     * @param id The id of the user.
+     * @return The identity of the user, or null if the user does not exist.
+     */
+    UserIdentity getIdentity(int id);
+
+    /**
+     * Obtains the id, unique id and username of a user at once.
+     *
+     * @param username The username of the user, in any case.
+     * @return The identity of the user, or null if the user does not exist.
+     */
+    UserIdentity getIdentity(String username);
+
+    /**
+     * Obtains the identities of many users at once, for example for a tab list.
+     * Duplicate ids are looked up once, cached identities are taken from the cache and the others are read in chunked queries.
+     *
+     * @param ids The ids of the users.
+     * @return The identities by id, users that do not exist are missing.
+     */
+    IntObjectMap<UserIdentity> getIdentities(int[] ids);
+
+    /**
+     * Obtains the identities of many users at once.
+     * Duplicate unique ids are looked up once, cached identities are taken from the cache and the others are read in chunked queries.
+     *
+     * @param uuids The unique ids of the users.
+     * @return The identities by unique id, users that do not exist are missing.
+     */
+    Map<UUID, UserIdentity> getIdentities(Collection<UUID> uuids);
+
+    /**
+     * Obtains the usernames of many users at once, see {@link #getIdentities(int[])}.
+     * The id -1 is mapped to "CONSOLE".
+     *
+     * @param ids The ids of the users.
+     * @return The usernames by id, users that do not exist are missing.
+     */
+    IntObjectMap<String> getUsernames(int[] ids);
+
+    /**
+     * Obtains the unique ids of many users at once, see {@link #getIdentities(int[])}.
+     *
+     * @param ids The ids of the users.
+     * @return The unique ids by id, users that do not exist are missing.
+     */
+    IntObjectMap<UUID> getUniqueIds(int[] ids);
+
+    /**
+     * Obtains the ids of many users at once, see {@link #getIdentities(Collection)}.
+     *
+     * @param uuids The unique ids of the users.
+     * @return The ids by unique id, users that do not exist are missing.
+     */
+    Map<UUID, Integer> getIds(Collection<UUID> uuids);
+
     /**
      * Renames a user.
      *
@@ -124,16 +198,87 @@ public sealed interface User permits UserProvider {
      */
     List<Integer> getIds();
 
+    /**
+     * Obtains all ids as a primitive array, without boxing every id.
+     *
+     * @return An array of all ids.
+     */
+    int[] getIdArray();
+
+    /**
+     * Passes every unique id to the consumer while they are streamed from the database,
+     * without holding all of them in memory.
+     * The consumer must not call other database methods.
+     *
+     * @param consumer The consumer of the unique ids.
+     */
+    void forEachUniqueId(Consumer<UUID> consumer);
+
+    /**
+     * Passes every username to the consumer while they are streamed from the database,
+     * without holding all of them in memory.
+     * The consumer must not call other database methods.
+     *
+     * @param consumer The consumer of the usernames.
+     */
+    void forEachUsername(Consumer<String> consumer);
+
+    /**
+     * Passes every id to the consumer while they are streamed from the database,
+     * without holding all of them in memory.
+     * The consumer must not call other database methods.
+     *
+     * @param consumer The consumer of the ids.
+     */
+    void forEachId(IntConsumer consumer);
+
     /**
      * Join a user to the server.
      * Create a new user if the user does not exist.
      * Check if the user changes their name and rename them.
+     * The user, their settings and their play time are created and the name is updated in a single database call.
+     * The identity of the user stays cached and a {@link UserSession} is held until {@link #quitUser(UUID)}.
+     * {@link #quitUser(UUID)} must be called when the user leaves, otherwise the identity and the session are never released
+     * and the reads of the user keep answering from the session instead of the database.
      *
      * @param uuid     The unique id of the user.
      * @param username The username of the user.
      */
     void joinUser(UUID uuid, String username);
 
+    /**
+     * Marks a user as left the server.
+     * The session of the user is closed, the cached identity of an online user is never evicted, after the quit it may be evicted again.
+     *
+     * @param uuid The unique id of the user.
+     */
+    void quitUser(UUID uuid);
+
+    /**
+     * Obtains the usernames that start with a prefix for tab completion, ignoring the case.
+     * All usernames are loaded into the {@link #getUsernameIndex() username index} on the first call,
+     * later calls do not access the database.
+     *
+     * @param prefix The prefix of the username.
+     * @param limit  The maximum number of usernames.
+     * @return The matching usernames in alphabetical order.
+     */
+    List<String> completeUsername(String prefix, int limit);
+
+    /**
+     * Obtains the cache of the user identities, for example to read its hit and miss statistics.
+     *
+     * @return The identity cache.
+     */
+    IdentityCache getIdentityCache();
+
+    /**
+     * Obtains the index of the usernames used for tab completion, for example to read its memory footprint.
+     *
+     * @return The username index.
+     */
+    UsernameIndex getUsernameIndex();
+
     /**
      * Load all expired things.
      */
@@ -180,4 +325,62 @@ public sealed interface User permits UserProvider {
      * @return The QuitLogger instance associated with the user.
      */
     QuitLogger getQuitLogger();
+
+    /**
+     * Asynchronous variant of {@link #existsUser(UUID)}.
+     *
+     * @param uuid The unique id of the user.
+     * @return A future completed with true if the user exists, otherwise false.
+     */
+    CompletableFuture<Boolean> existsUserAsync(UUID uuid);
+
+    /**
+     * Asynchronous variant of {@link #createNewUser(UUID, String)}.
+     *
+     * @param uuid     The unique id of the user.
+     * @param username The username of the user.
+     * @return A future completed when the user is created.
+     */
+    CompletableFuture<Void> createNewUserAsync(UUID uuid, String username);
+
+    /**
+     * Asynchronous variant of {@link #deleteUser(UUID)}.
+     *
+     * @param uuid The unique id of the user.
+     * @return A future completed when the user is deleted.
+     */
+    CompletableFuture<Void> deleteUserAsync(UUID uuid);
+
+    /**
+     * Asynchronous variant of {@link #getId(UUID)}.
+     *
+     * @param uuid The unique id of the user.
+     * @return A future completed with the id of the user.
+     */
+    CompletableFuture<Integer> getIdAsync(UUID uuid);
+
+    /**
+     * Asynchronous variant of {@link #getUniqueId(int)}.
+     *
+     * @param id The id of the user.
+     * @return A future completed with the unique id of the user.
+     */
+    CompletableFuture<UUID> getUniqueIdAsync(int id);
+
+    /**
+     * Asynchronous variant of {@link #getUsername(int)}.
+     *
+     * @param id The id of the user.
+     * @return A future completed with the username of the user.
+     */
+    CompletableFuture<String> getUsernameAsync(int id);
+
+    /**
+     * Asynchronous variant of {@link #joinUser(UUID, String)}.
+     *
+     * @param uuid     The unique id of the user.
+     * @param username The username of the user.
+     * @return A future completed when the user has joined.
+     */
+    CompletableFuture<Void> joinUserAsync(UUID uuid, String username);
 }
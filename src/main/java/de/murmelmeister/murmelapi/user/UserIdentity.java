@@ -0,0 +1,13 @@
+package de.murmelmeister.murmelapi.user;
+
+import java.util.UUID;
+
+/**
+ * The identity of a user, read as a whole row of the user table.
+ *
+ * @param id       The id of the user
+ * @param uuid     The unique id of the user
+ * @param username The username of the user
+ */
+public record UserIdentity(int id, UUID uuid, String username) {
+}
@@ -8,11 +8,74 @@ import de.murmelmeister.murmelapi.user.permission.UserPermissionProvider;
 import de.murmelmeister.murmelapi.user.settings.UserSettings;
 import de.murmelmeister.murmelapi.user.settings.UserSettingsProvider;
 import de.murmelmeister.murmelapi.utils.Database;
-
+import de.murmelmeister.murmelapi.utils.IntObjectMap;
+import de.murmelmeister.murmelapi.utils.database.ParallelInitializer;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.RowMapper;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import de.murmelmeister.murmelapi.utils.database.UuidCodec;
+import de.murmelmeister.murmelapi.utils.database.UuidMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public final class UserProvider implements User {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserProvider.class);
+    private static final RowMapper<UserIdentity> IDENTITY_MAPPER = resultSet -> new UserIdentity(resultSet.getInt("ID"),
+            UuidCodec.read(resultSet, "UUID"), resultSet.getString("Username"));
+    private static final String DEDUPLICATION_LOCK = "MurmelAPI_UserDeduplication";
+    private static final Duration DEDUPLICATION_LOCK_TIMEOUT = Duration.ofMinutes(5);
+    private static final RowMapper<Login> LOGIN_MAPPER = resultSet -> new Login(resultSet.getInt("id"), resultSet.getString("Previous"));
+
+    private final String uuidType = Database.getUuidStorage().getColumnType();
+    private final ProcedureRegistry procedures = new ProcedureRegistry("User", "ID INT PRIMARY KEY AUTO_INCREMENT, UUID " + uuidType + ", Username VARCHAR(100)")
+            .uniqueKey("UniqueID", "UUID")
+            .index("Username", "Username");
+    private final StoredProcedure existsUniqueId = procedures.exists("Exists_UniqueID", "uid " + uuidType, "UUID=uid");
+    private final StoredProcedure existsUsername = procedures.exists("Exists_Username", "user VARCHAR(100)", "Username=user");
+    private final StoredProcedure identityByUniqueId = procedures.selectRow("Identity_UniqueID", "uid " + uuidType, "UUID=uid");
+    private final StoredProcedure identityById = procedures.selectRow("Identity_ID", "uid INT", "ID=uid");
+    private final StoredProcedure identityByUsername = procedures.selectRow("Identity_Username", "user VARCHAR(100)", "Username=user");
+    private final StoredProcedure allIds = procedures.selectColumns("All_ID", "ID", "", "");
+    private final StoredProcedure allUniqueIds = procedures.selectColumns("All_UniqueID", "UUID", "", "");
+    private final StoredProcedure allUsernames = procedures.selectColumns("All_Username", "Username", "", "");
+    private final String scanIds = procedures.scan("ID", "");
+    private final String scanUniqueIds = procedures.scan("UUID", "");
+    private final String scanUsernames = procedures.scan("Username", "");
+    private final StoredProcedure insert = procedures.statement("Insert", "uid " + uuidType + ", user VARCHAR(100)", "INSERT INTO [TABLE] (UUID, Username) VALUES (uid, user);");
+    private final StoredProcedure delete = procedures.statement("Delete", "uid " + uuidType, "DELETE FROM [TABLE] WHERE UUID=uid;");
+    private final StoredProcedure rename = procedures.statement("Rename", "uid INT, user VARCHAR(100)", "UPDATE [TABLE] SET Username=user WHERE ID=uid;");
+    // LAST_INSERT_ID(ID) returns the id of an existing user, the settings and the play time have no auto increment and keep it
+    // The previous username is returned for the username index, it is null for a new user
+    private final StoredProcedure login = procedures.statement("Login", "uid " + uuidType + ", user VARCHAR(100), now BIGINT",
+            "DECLARE previous VARCHAR(100) DEFAULT NULL; " +
+            "SET previous = (SELECT Username FROM [TABLE] WHERE UUID=uid); " +
+            "INSERT INTO [TABLE] (UUID, Username) VALUES (uid, user) ON DUPLICATE KEY UPDATE ID=LAST_INSERT_ID(ID), Username=user; " +
+            "INSERT INTO UserSettings (ID, FirstJoin, LastQuit, Online) VALUES (LAST_INSERT_ID(), now, now, FALSE) ON DUPLICATE KEY UPDATE ID=ID; " +
+            "INSERT INTO PlayTime (UserID, Seconds) VALUES (LAST_INSERT_ID(), 0) ON DUPLICATE KEY UPDATE UserID=UserID; " +
+            "SELECT LAST_INSERT_ID() AS id, previous AS Previous;");
+    private final StoredProcedure session = procedures.statement("Session", "uid INT",
+            "SELECT ID, UUID, Username FROM [TABLE] WHERE ID=uid; " +
+            "SELECT FirstJoin, LastQuit, Online FROM UserSettings WHERE ID=uid; " +
+            "SELECT * FROM UserPermission WHERE UserID=uid; " +
+            "SELECT * FROM UserParent WHERE UserID=uid; " +
+            "SELECT Seconds FROM PlayTime WHERE UserID=uid;");
+    private final IdentityCache identities = new IdentityCache();
+    private final UsernameIndex usernames = new UsernameIndex();
+
     private final UserSettings settings;
     private final UserParent parent;
     private final UserPermission permission;
@@ -22,109 +85,345 @@ public final class UserProvider implements User {
     private final QuitLogger quitLogger;
 
     public UserProvider() {
-        String tableName = "User";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-        this.settings = new UserSettingsProvider(this);
-        this.parent = new UserParentProvider();
-        this.permission = new UserPermissionProvider();
-        this.playTime = new PlayTimeProvider(this);
-        this.joinLogger = new JoinLoggerProvider();
-        this.quitLogger = new QuitLoggerProvider();
+        UuidMigration.migrate(procedures, "UUID", "ID");
+        addUniqueIdKey();
+        procedures.createAll();
+        // The login relies on the key, without it every join would insert another user
+        if (!hasUniqueIdKey())
+            throw new IllegalStateException("Key UniqueID of table " + procedures.getTableName() + " is missing, the users cannot log in");
+        // The settings and the play time fill their tables from the user table, so it has to exist first
+        try (ParallelInitializer initializer = new ParallelInitializer()) {
+            CompletableFuture<UserSettings> settings = initializer.start(() -> new UserSettingsProvider());
+            CompletableFuture<UserParent> parent = initializer.start(UserParentProvider::new);
+            CompletableFuture<UserPermission> permission = initializer.start(UserPermissionProvider::new);
+            CompletableFuture<PlayTime> playTime = initializer.start(() -> new PlayTimeProvider());
+            CompletableFuture<JoinLogger> joinLogger = initializer.start(JoinLoggerProvider::new);
+            CompletableFuture<QuitLogger> quitLogger = initializer.start(QuitLoggerProvider::new);
+            this.settings = ParallelInitializer.await(settings);
+            this.parent = ParallelInitializer.await(parent);
+            this.permission = ParallelInitializer.await(permission);
+            this.playTime = ParallelInitializer.await(playTime);
+            this.joinLogger = ParallelInitializer.await(joinLogger);
+            this.quitLogger = ParallelInitializer.await(quitLogger);
+        }
     }
 
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "ID INT PRIMARY KEY AUTO_INCREMENT, UUID VARCHAR(36), Username VARCHAR(100)");
+    /**
+     * Adds the key on the UUID column if it is missing, users created twice before the key existed are removed first.
+     * The user with the lowest id is kept, it is the one that the lookups by UUID returned so far.
+     */
+    private void addUniqueIdKey() {
+        String tableName = procedures.getTableName();
+        if (!Database.exists("SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=?", tableName)) return;
+        if (hasUniqueIdKey()) return;
+        Database.withNamedLock(DEDUPLICATION_LOCK, DEDUPLICATION_LOCK_TIMEOUT, () -> {
+            // Another server may have added the key while this one waited
+            if (hasUniqueIdKey()) return;
+            long duplicates = Database.query(0L, "duplicates", long.class,
+                    "SELECT COUNT(*) - COUNT(DISTINCT UUID) AS duplicates FROM " + tableName + " WHERE UUID IS NOT NULL");
+            if (duplicates > 0) LOGGER.warn("Removing {} users of table {} with a duplicate UUID", duplicates, tableName);
+            // Locked, so no login inserts another duplicate before the key exists
+            Database.updateLocked(List.of(tableName, tableName + " AS duplicate", tableName + " AS kept"),
+                    "DELETE duplicate FROM " + tableName + " AS duplicate JOIN " + tableName + " AS kept ON kept.UUID=duplicate.UUID AND kept.ID<duplicate.ID",
+                    procedures.getIndexes().stream().filter(index -> index.name().equals("UniqueID")).findFirst().orElseThrow().getAddQuery(tableName));
+        });
+    }
+
+    private boolean hasUniqueIdKey() {
+        return Database.exists("SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=? AND INDEX_NAME=? LIMIT 1",
+                procedures.getTableName(), "UniqueID");
     }
 
     @Override
     public boolean existsUser(UUID uuid) {
-        return Database.callExists(Procedure.USER_UNIQUE_ID.getName(), uuid);
+        return identities.getByUniqueId(uuid) != null || Database.callExists(existsUniqueId.name(), uuid);
     }
 
     @Override
     public boolean existsUser(String username) {
-        return Database.callExists(Procedure.USER_USERNAME.getName(), username);
+        return identities.getByUsername(username) != null || Database.callExists(existsUsername.name(), username);
     }
 
     @Override
     public void createNewUser(UUID uuid, String username) {
-        if (existsUser(uuid)) return;
-        Database.callUpdate(Procedure.USER_INSERT.getName(), uuid, username);
-        int id = getId(uuid);
-        settings.createUser(id);
-        playTime.createUser(id);
+        Database.withTableLock("User", uuid, () -> {
+            // The cache is not asked, the user may have been deleted by another server
+            if (Database.callExists(existsUniqueId.name(), uuid)) return;
+            identities.invalidate(uuid);
+            identities.invalidateUsername(username);
+            try {
+                Database.inTransaction(transaction -> {
+                    Database.callUpdate(insert.name(), uuid, username);
+                    int id = getId(uuid);
+                    settings.createUser(id);
+                    playTime.createUser(id);
+                });
+            } catch (RuntimeException e) {
+                // The identity was cached inside the transaction that was rolled back
+                identities.invalidate(uuid);
+                throw e;
+            }
+            usernames.add(username);
+        });
     }
 
     @Override
     public void deleteUser(UUID uuid) {
-        int id = getId(uuid);
-        playTime.deleteUser(id);
-        permission.clearPermission(id);
-        parent.clearParent(id);
-        settings.deleteUser(id);
-        joinLogger.deleteUser(id);
-        quitLogger.deleteUser(id);
-        Database.callUpdate(Procedure.USER_DELETE.getName(), id);
+        String username = getUsername(uuid);
+        try {
+            Database.inTransaction(transaction -> {
+                int id = getId(uuid);
+                playTime.deleteUser(id);
+                permission.clearPermission(id);
+                parent.clearParent(id);
+                settings.deleteUser(id);
+                joinLogger.deleteUser(id);
+                quitLogger.deleteUser(id);
+                Database.callUpdate(delete.name(), uuid);
+            });
+            if (username != null) usernames.remove(username);
+        } finally {
+            UserIdentity identity = identities.getByUniqueId(uuid);
+            if (identity != null) UserSessions.close(identity.id());
+            identities.invalidate(uuid);
+        }
     }
 
     @Override
     public int getId(UUID uuid) {
-        return Database.callQuery(-2, "ID", int.class, Procedure.USER_UNIQUE_ID.getName(), uuid);
+        UserIdentity identity = getIdentity(uuid);
+        return identity == null ? -2 : identity.id();
     }
 
     @Override
     public int getId(String username) {
-        return Database.callQuery(-2, "ID", int.class, Procedure.USER_USERNAME.getName(), username);
+        UserIdentity identity = getIdentity(username);
+        return identity == null ? -2 : identity.id();
     }
 
     @Override
     public UUID getUniqueId(String username) {
-        int id = getId(username);
-        return Database.callQuery(null, "UUID", UUID.class, Procedure.USER_ID.getName(), id);
+        UserIdentity identity = getIdentity(username);
+        return identity == null ? null : identity.uuid();
     }
 
     @Override
     public UUID getUniqueId(int id) {
-        return id == -1 ? null : Database.callQuery(null, "UUID", UUID.class, Procedure.USER_ID.getName(), id);
+        if (id == -1) return null;
+        UserIdentity identity = getIdentity(id);
+        return identity == null ? null : identity.uuid();
     }
 
     @Override
     public String getUsername(UUID uuid) {
-        int id = getId(uuid);
-        return Database.callQuery(null, "Username", String.class, Procedure.USER_ID.getName(), id);
+        UserIdentity identity = getIdentity(uuid);
+        return identity == null ? null : identity.username();
     }
 
     @Override
     public String getUsername(int id) {
-        return id == -1 ? "CONSOLE" : Database.callQuery(null, "Username", String.class, Procedure.USER_ID.getName(), id);
+        if (id == -1) return "CONSOLE";
+        UserIdentity identity = getIdentity(id);
+        return identity == null ? null : identity.username();
+    }
+
+    @Override
+    public UserIdentity getIdentity(UUID uuid) {
+        UserIdentity identity = identities.getByUniqueId(uuid);
+        if (identity != null) return identity;
+        long version = identities.getVersion();
+        return cache(Database.callQueryRow(identityByUniqueId.name(), IDENTITY_MAPPER, uuid), version);
+    }
+
+    @Override
+    public UserIdentity getIdentity(int id) {
+        UserIdentity identity = identities.getById(id);
+        if (identity != null) return identity;
+        long version = identities.getVersion();
+        return cache(Database.callQueryRow(identityById.name(), IDENTITY_MAPPER, id), version);
+    }
+
+    @Override
+    public UserIdentity getIdentity(String username) {
+        UserIdentity identity = identities.getByUsername(username);
+        if (identity != null) return identity;
+        long version = identities.getVersion();
+        return cache(Database.callQueryRow(identityByUsername.name(), IDENTITY_MAPPER, username), version);
+    }
+
+    @Override
+    public IntObjectMap<UserIdentity> getIdentities(int[] ids) {
+        IntObjectMap<UserIdentity> result = new IntObjectMap<>(ids.length);
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        List<Object> missing = new ArrayList<>();
+        for (int i = 0; i < sorted.length; i++) {
+            int id = sorted[i];
+            if (i > 0 && id == sorted[i - 1]) continue;
+            UserIdentity identity = identities.getById(id);
+            if (identity != null) result.put(id, identity);
+            else if (id != -1) missing.add(id);
+        }
+        if (missing.isEmpty()) return result;
+        long version = identities.getVersion();
+        Database.forEachIn("SELECT ID, UUID, Username FROM " + procedures.getTableName() + " WHERE ID IN ([IN])", missing.toArray(), IDENTITY_MAPPER, identity -> {
+            identities.put(identity, version);
+            result.put(identity.id(), identity);
+        });
+        return result;
+    }
+
+    @Override
+    public Map<UUID, UserIdentity> getIdentities(Collection<UUID> uuids) {
+        Map<UUID, UserIdentity> result = HashMap.newHashMap(uuids.size());
+        Set<UUID> missing = new LinkedHashSet<>();
+        for (UUID uuid : uuids) {
+            if (result.containsKey(uuid) || missing.contains(uuid)) continue;
+            UserIdentity identity = identities.getByUniqueId(uuid);
+            if (identity != null) result.put(uuid, identity);
+            else missing.add(uuid);
+        }
+        if (missing.isEmpty()) return result;
+        long version = identities.getVersion();
+        Database.forEachIn("SELECT ID, UUID, Username FROM " + procedures.getTableName() + " WHERE UUID IN ([IN])", missing.toArray(), IDENTITY_MAPPER, identity -> {
+            identities.put(identity, version);
+            result.put(identity.uuid(), identity);
+        });
+        return result;
+    }
+
+    @Override
+    public IntObjectMap<String> getUsernames(int[] ids) {
+        IntObjectMap<UserIdentity> found = getIdentities(ids);
+        IntObjectMap<String> result = new IntObjectMap<>(found.size() + 1);
+        found.forEach((id, identity) -> result.put(id, identity.username()));
+        for (int id : ids) {
+            if (id == -1) {
+                result.put(-1, "CONSOLE");
+                break;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public IntObjectMap<UUID> getUniqueIds(int[] ids) {
+        IntObjectMap<UserIdentity> found = getIdentities(ids);
+        IntObjectMap<UUID> result = new IntObjectMap<>(found.size());
+        found.forEach((id, identity) -> result.put(id, identity.uuid()));
+        return result;
+    }
+
+    @Override
+    public Map<UUID, Integer> getIds(Collection<UUID> uuids) {
+        Map<UUID, UserIdentity> found = getIdentities(uuids);
+        Map<UUID, Integer> result = HashMap.newHashMap(found.size());
+        for (UserIdentity identity : found.values()) result.put(identity.uuid(), identity.id());
+        return result;
     }
 
     @Override
     public void rename(UUID uuid, String newName) {
-        int id = getId(uuid);
-        Database.callUpdate(Procedure.USER_RENAME.getName(), id, newName);
+        UserIdentity identity = getIdentity(uuid);
+        try {
+            if (identity == null) return;
+            Database.callUpdate(rename.name(), identity.id(), newName);
+            usernames.rename(identity.username(), newName);
+        } finally {
+            identities.invalidate(uuid);
+            identities.invalidateUsername(newName);
+        }
     }
 
     @Override
     public List<UUID> getUniqueIds() {
-        return Database.callQueryList("UUID", UUID.class, Procedure.USER_ALL.getName());
+        return Database.callQueryList("UUID", UUID.class, allUniqueIds.name());
     }
 
     @Override
     public List<String> getUsernames() {
-        return Database.callQueryList("Username", String.class, Procedure.USER_ALL.getName());
+        return Database.callQueryList("Username", String.class, allUsernames.name());
     }
 
     @Override
     public List<Integer> getIds() {
-        return Database.callQueryList("ID", int.class, Procedure.USER_ALL.getName());
+        return Database.callQueryList("ID", int.class, allIds.name());
+    }
+
+    @Override
+    public int[] getIdArray() {
+        return Database.callQueryInts("ID", allIds.name());
+    }
+
+    @Override
+    public void forEachUniqueId(Consumer<UUID> consumer) {
+        Database.forEach(scanUniqueIds, resultSet -> UuidCodec.read(resultSet, "UUID"), consumer);
+    }
+
+    @Override
+    public void forEachUsername(Consumer<String> consumer) {
+        Database.forEach(scanUsernames, resultSet -> resultSet.getString("Username"), consumer);
+    }
+
+    @Override
+    public void forEachId(IntConsumer consumer) {
+        Database.forEach(scanIds, resultSet -> resultSet.getInt("ID"), consumer::accept);
     }
 
     @Override
     public void joinUser(UUID uuid, String username) {
-        createNewUser(uuid, username);
-        if (!getUsername(uuid).equals(username)) rename(uuid, username);
+        identities.pin(uuid);
+        // The name may have belonged to another user, who keeps it in the database until their next join
+        identities.invalidateUsername(username);
+        long version = identities.getVersion();
+        Login result = Database.callUpdateRow(login.name(), LOGIN_MAPPER, uuid, username, System.currentTimeMillis());
+        if (result == null || result.id() <= 0) return;
+        if (result.previous() == null) usernames.add(username);
+        else if (!result.previous().equals(username)) usernames.rename(result.previous(), username);
+        identities.put(new UserIdentity(result.id(), uuid, username), version);
+        openSession(result.id());
+    }
+
+    @Override
+    public void quitUser(UUID uuid) {
+        UserIdentity identity = identities.getByUniqueId(uuid);
+        if (identity != null) UserSessions.close(identity.id());
+        identities.unpin(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsUserAsync(UUID uuid) {
+        return Database.async().supply(() -> existsUser(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> createNewUserAsync(UUID uuid, String username) {
+        return Database.async().run(() -> createNewUser(uuid, username));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteUserAsync(UUID uuid) {
+        return Database.async().run(() -> deleteUser(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Integer> getIdAsync(UUID uuid) {
+        return Database.async().supply(() -> getId(uuid));
+    }
+
+    @Override
+    public CompletableFuture<UUID> getUniqueIdAsync(int id) {
+        return Database.async().supply(() -> getUniqueId(id));
+    }
+
+    @Override
+    public CompletableFuture<String> getUsernameAsync(int id) {
+        return Database.async().supply(() -> getUsername(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> joinUserAsync(UUID uuid, String username) {
+        return Database.async().run(() -> joinUser(uuid, username));
     }
 
     @Override
@@ -133,6 +432,23 @@ public final class UserProvider implements User {
         permission.loadExpired(this);
     }
 
+    @Override
+    public List<String> completeUsername(String prefix, int limit) {
+        // The first completion streams all names into the index, later ones only search it
+        if (!usernames.isLoaded()) usernames.load(this::forEachUsername);
+        return usernames.complete(prefix, limit);
+    }
+
+    @Override
+    public IdentityCache getIdentityCache() {
+        return identities;
+    }
+
+    @Override
+    public UsernameIndex getUsernameIndex() {
+        return usernames;
+    }
+
     @Override
     public UserSettings getSettings() {
         return settings;
@@ -163,34 +479,23 @@ public final class UserProvider implements User {
         return quitLogger;
     }
 
-    private enum Procedure {
-        USER_UNIQUE_ID("User_UniqueID", "uid VARCHAR(36)", "SELECT * FROM [TABLE] WHERE UUID=uid;"),
-        USER_USERNAME("User_Username", "user VARCHAR(100)", "SELECT * FROM [TABLE] WHERE Username=user;"),
-        USER_ID("User_ID", "uid INT", "SELECT * FROM [TABLE] WHERE ID=uid;"),
-        USER_ALL("User_All", "", "SELECT * FROM [TABLE];"),
-        USER_INSERT("User_Insert", "uid VARCHAR(36), user VARCHAR(100)", "INSERT INTO [TABLE] (UUID, Username) VALUES (uid, user);"),
-        USER_DELETE("User_Delete", "uid VARCHAR(36)", "DELETE FROM [TABLE] WHERE UUID=uid;"),
-        USER_RENAME("User_Rename", "uid INT, user VARCHAR(100)", "UPDATE [TABLE] SET Username=user WHERE ID=uid;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
-
-        public String getName() {
-            return name;
+    private void openSession(int id) {
+        try {
+            // The session is read from the database, the play time and the settings of a quick rejoin may still be queued
+            Database.getWriteBehind().flush(id);
+            UserSession session = Database.callQueryResults(this.session.name(), UserSession::read, id);
+            if (session != null) UserSessions.open(session);
+        } catch (RuntimeException e) {
+            // Without a session the providers read from the database
+            LOGGER.warn("The session of user {} could not be loaded", id, e);
         }
+    }
 
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
+    private UserIdentity cache(UserIdentity identity, long version) {
+        if (identity != null) identities.put(identity, version);
+        return identity;
+    }
 
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
+    private record Login(int id, String previous) {
     }
 }
@@ -0,0 +1,200 @@
+package de.murmelmeister.murmelapi.user;
+
+import de.murmelmeister.murmelapi.permission.ParentGrant;
+import de.murmelmeister.murmelapi.permission.PermissionGrant;
+import de.murmelmeister.murmelapi.utils.database.MultiResultSet;
+import de.murmelmeister.murmelapi.utils.database.UuidCodec;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Snapshot of the rows of an online user, loaded at the join with a single call and held until the quit, see {@link UserSessions}.
+ * The providers answer the reads of online users from the session and write their changes through to it.
+ * Changes made by other servers to the settings and the play time become visible with the next join.
+ * Bans and mutes are not held, they are always read from the database.
+ * The permissions and the parents are read from the database again once they are older than {@link #GRANTS_TIME_TO_LIVE},
+ * so grants that another server changed or removed as expired stop applying here after at most that time.
+ * Updates of the user that are still queued for writing are flushed before the session is loaded.
+ * (Thread-safe)
+ */
+public final class UserSession {
+    /**
+     * The time after which the permissions and the parents of a session are read from the database again.
+     */
+    public static final Duration GRANTS_TIME_TO_LIVE = Duration.ofSeconds(5);
+    private static final long GRANTS_TIME_TO_LIVE_NANOS = GRANTS_TIME_TO_LIVE.toNanos();
+
+    private final UserIdentity identity;
+    private final long firstJoinTime;
+    private volatile long lastQuitTime;
+    private volatile boolean online;
+    private volatile List<PermissionGrant> permissions;
+    private volatile List<ParentGrant> parents;
+    private volatile long permissionsLoaded;
+    private volatile long parentsLoaded;
+    private volatile int playTime;
+
+    private UserSession(UserIdentity identity, long firstJoinTime, long lastQuitTime, boolean online, List<PermissionGrant> permissions,
+                        List<ParentGrant> parents, int playTime) {
+        this.identity = identity;
+        this.firstJoinTime = firstJoinTime;
+        this.lastQuitTime = lastQuitTime;
+        this.online = online;
+        this.permissions = List.copyOf(permissions);
+        this.parents = List.copyOf(parents);
+        this.permissionsLoaded = System.nanoTime();
+        this.parentsLoaded = permissionsLoaded;
+        this.playTime = playTime;
+    }
+
+    /**
+     * Reads a session from the result sets of the procedure {@code User_Session}.
+     * The result sets are the user, the settings, the permissions, the parents and the play time.
+     *
+     * @param results The result sets of the procedure
+     * @return the session, or null if the user does not exist
+     * @throws SQLException If a result set cannot be read
+     */
+    static UserSession read(MultiResultSet results) throws SQLException {
+        UserIdentity identity = results.nextRow(resultSet -> new UserIdentity(resultSet.getInt("ID"), UuidCodec.read(resultSet, "UUID"), resultSet.getString("Username")));
+        long[] settings = results.nextRow(resultSet -> new long[]{resultSet.getLong("FirstJoin"), resultSet.getLong("LastQuit"), resultSet.getByte("Online")});
+        List<PermissionGrant> permissions = results.next(resultSet -> new PermissionGrant(resultSet.getInt("UserID"), resultSet.getInt("CreatorID"),
+                resultSet.getString("Permission"), resultSet.getLong("CreatedTime"), resultSet.getLong("ExpiredTime")));
+        List<ParentGrant> parents = results.next(resultSet -> new ParentGrant(resultSet.getInt("UserID"), resultSet.getInt("CreatorID"),
+                resultSet.getInt("ParentID"), resultSet.getLong("CreatedTime"), resultSet.getLong("ExpiredTime")));
+        Integer playTime = results.nextRow(resultSet -> resultSet.getInt("Seconds"));
+        if (identity == null) return null;
+        return new UserSession(identity, settings == null ? -1 : settings[0], settings == null ? -1 : settings[1], settings != null && settings[2] == 1,
+                permissions, parents, playTime == null ? -1 : playTime);
+    }
+
+    /**
+     * Obtains the identity of the user.
+     *
+     * @return the identity
+     */
+    public UserIdentity getIdentity() {
+        return identity;
+    }
+
+    /**
+     * Obtains the time of the first join.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getFirstJoinTime() {
+        return firstJoinTime;
+    }
+
+    /**
+     * Obtains the time of the last quit.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getLastQuitTime() {
+        return lastQuitTime;
+    }
+
+    /**
+     * Updates the time of the last quit after the change was written to the database.
+     *
+     * @param lastQuitTime The time in milliseconds since the epoch
+     */
+    public void setLastQuitTime(long lastQuitTime) {
+        this.lastQuitTime = lastQuitTime;
+    }
+
+    /**
+     * Checks whether the user is marked as online in the settings.
+     *
+     * @return true if the user is online, otherwise false
+     */
+    public boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * Updates the online status after the change was written to the database.
+     *
+     * @param online Whether the user is online
+     */
+    public void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    /**
+     * Obtains the permissions granted directly to the user.
+     *
+     * @return an unmodifiable list of the permissions
+     */
+    public List<PermissionGrant> getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * Updates the permissions granted directly to the user after the change was written to the database.
+     *
+     * @param permissions The permissions as stored in the database
+     */
+    public void setPermissions(List<PermissionGrant> permissions) {
+        this.permissions = List.copyOf(permissions);
+        this.permissionsLoaded = System.nanoTime();
+    }
+
+    /**
+     * Checks whether the permissions were read from the database longer than {@link #GRANTS_TIME_TO_LIVE} ago.
+     *
+     * @return true if the permissions have to be read again, otherwise false
+     */
+    public boolean arePermissionsExpired() {
+        return System.nanoTime() - permissionsLoaded > GRANTS_TIME_TO_LIVE_NANOS;
+    }
+
+    /**
+     * Obtains the parent groups of the user.
+     *
+     * @return an unmodifiable list of the parents
+     */
+    public List<ParentGrant> getParents() {
+        return parents;
+    }
+
+    /**
+     * Updates the parent groups of the user after the change was written to the database.
+     *
+     * @param parents The parents as stored in the database
+     */
+    public void setParents(List<ParentGrant> parents) {
+        this.parents = List.copyOf(parents);
+        this.parentsLoaded = System.nanoTime();
+    }
+
+    /**
+     * Checks whether the parents were read from the database longer than {@link #GRANTS_TIME_TO_LIVE} ago.
+     *
+     * @return true if the parents have to be read again, otherwise false
+     */
+    public boolean areParentsExpired() {
+        return System.nanoTime() - parentsLoaded > GRANTS_TIME_TO_LIVE_NANOS;
+    }
+
+    /**
+     * Obtains the play time of the user.
+     *
+     * @return the play time in seconds
+     */
+    public int getPlayTime() {
+        return playTime;
+    }
+
+    /**
+     * Updates the play time of the user after the change was written to the database.
+     *
+     * @param playTime The play time in seconds
+     */
+    public void setPlayTime(int playTime) {
+        this.playTime = playTime;
+    }
+}
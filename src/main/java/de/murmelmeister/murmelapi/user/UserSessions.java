@@ -0,0 +1,43 @@
+package de.murmelmeister.murmelapi.user;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The sessions of the users that are online on this server, by user id.
+ * A session is opened by {@link User#joinUser(java.util.UUID, String)} and closed by {@link User#quitUser(java.util.UUID)}.
+ * (Thread-safe)
+ */
+public final class UserSessions {
+    private static final Map<Integer, UserSession> SESSIONS = new ConcurrentHashMap<>();
+
+    private UserSessions() {
+    }
+
+    /**
+     * Obtains the session of an online user.
+     *
+     * @param userId The id of the user
+     * @return the session, or null if the user is not online on this server
+     */
+    public static UserSession get(int userId) {
+        return SESSIONS.get(userId);
+    }
+
+    /**
+     * Obtains the number of open sessions.
+     *
+     * @return the number of sessions
+     */
+    public static int size() {
+        return SESSIONS.size();
+    }
+
+    static void open(UserSession session) {
+        SESSIONS.put(session.getIdentity().id(), session);
+    }
+
+    static void close(int userId) {
+        SESSIONS.remove(userId);
+    }
+}
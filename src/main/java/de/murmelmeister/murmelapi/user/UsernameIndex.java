@@ -0,0 +1,337 @@
+package de.murmelmeister.murmelapi.user;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Case-insensitive prefix index over all usernames for tab completion.
+ * The names are kept sorted in one char array with an offset per name, so a million names of ten characters
+ * take about 24 MB instead of the roughly 57 MB of a sorted list of strings, see {@link #getMemoryFootprint()}.
+ * A completion binary searches the first match and reads the following names, which is O(log n + k).
+ * Changes are collected in a small sorted overlay that is merged into the array once it exceeds {@value #MERGE_THRESHOLD} entries.
+ * Changes before the names are loaded are ignored, the load reads them from the database.
+ * Letters are compared ignoring the case of ASCII letters, which covers all Minecraft usernames.
+ * (Thread-safe)
+ */
+public final class UsernameIndex {
+    private static final int MERGE_THRESHOLD = 4096;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock loadLock = new ReentrantLock();
+    private final NavigableMap<String, String> added = new TreeMap<>();
+    private final Set<String> removed = new HashSet<>();
+    private char[] chars = new char[0];
+    private int[] offsets = {0};
+    private boolean loaded;
+    private boolean loading;
+
+    /**
+     * Loads all names unless they were loaded already.
+     * The names are read and sorted without blocking changes or completions,
+     * changes made while the names are loaded are kept in the overlay and applied on top of them.
+     *
+     * @param loader Passes every username to the consumer, usually a streaming query of the user table
+     */
+    public void load(Consumer<Consumer<String>> loader) {
+        loadLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                if (loaded) return;
+                loading = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Names names;
+            try {
+                List<String> sorted = new ArrayList<>();
+                loader.accept(sorted::add);
+                sorted.sort(UsernameIndex::compare);
+                names = build(sorted);
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    loading = false;
+                    added.clear();
+                    removed.clear();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                chars = names.chars();
+                offsets = names.offsets();
+                loading = false;
+                loaded = true;
+                if (added.size() + removed.size() > MERGE_THRESHOLD) merge();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the names were loaded.
+     *
+     * @return true if the names were loaded, otherwise false
+     */
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a username.
+     *
+     * @param username The username
+     */
+    public void add(String username) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded && !loading) return;
+            String key = key(username);
+            added.put(key, username);
+            removed.remove(key);
+            if (loaded && added.size() + removed.size() > MERGE_THRESHOLD) merge();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a username.
+     *
+     * @param username The username, in any case
+     */
+    public void remove(String username) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded && !loading) return;
+            String key = key(username);
+            added.remove(key);
+            removed.add(key);
+            if (loaded && added.size() + removed.size() > MERGE_THRESHOLD) merge();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces a username.
+     *
+     * @param oldName The previous username, in any case
+     * @param newName The new username
+     */
+    public void rename(String oldName, String newName) {
+        lock.writeLock().lock();
+        try {
+            remove(oldName);
+            add(newName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtains the usernames that start with a prefix, ignoring the case.
+     *
+     * @param prefix The prefix, an empty prefix matches all names
+     * @param limit  The maximum number of names
+     * @return the matching usernames in alphabetical order
+     */
+    public List<String> complete(String prefix, int limit) {
+        String key = key(prefix);
+        List<String> result = new ArrayList<>(Math.clamp(limit, 0, 64));
+        lock.readLock().lock();
+        try {
+            int index = lowerBound(key);
+            int count = offsets.length - 1;
+            Iterator<Map.Entry<String, String>> overlay = added.tailMap(key, true).entrySet().iterator();
+            Map.Entry<String, String> next = overlay.hasNext() ? overlay.next() : null;
+            if (next != null && !next.getKey().startsWith(key)) next = null;
+            while (result.size() < limit) {
+                boolean inArray = index < count && startsWith(index, key);
+                if (!inArray && next == null) break;
+                String name = inArray ? name(index) : null;
+                int order = !inArray ? 1 : next == null ? -1 : compare(name, next.getKey());
+                if (order < 0) {
+                    if (!removed.contains(key(name))) result.add(name);
+                    index++;
+                } else {
+                    // A name of the overlay replaces the same name in the array, for example after a change of its case
+                    if (order == 0) index++;
+                    result.add(next.getValue());
+                    next = overlay.hasNext() ? overlay.next() : null;
+                    if (next != null && !next.getKey().startsWith(key)) next = null;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Obtains the number of indexed usernames, including changes that were not merged yet.
+     *
+     * @return the approximate number of usernames
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return offsets.length - 1 + added.size() - removed.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimates the heap memory used by the index.
+     * The sorted array costs two bytes per character and four bytes per name, every unmerged change about 100 bytes.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getMemoryFootprint() {
+        lock.readLock().lock();
+        try {
+            return 2L * chars.length + 4L * offsets.length + 100L * (added.size() + removed.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Copies the names of the array and the overlay into new arrays without creating a string per name
+    private void merge() {
+        int count = offsets.length - 1;
+        int length = chars.length;
+        for (String name : added.values()) length += name.length();
+        char[] newChars = new char[length];
+        int[] newOffsets = new int[count + added.size() + 1];
+        int size = 0;
+        int position = 0;
+        Iterator<Map.Entry<String, String>> overlay = added.entrySet().iterator();
+        Map.Entry<String, String> next = overlay.hasNext() ? overlay.next() : null;
+        for (int i = 0; i < count; i++) {
+            while (next != null && compare(i, next.getKey()) > 0) {
+                newOffsets[size++] = position;
+                next.getValue().getChars(0, next.getValue().length(), newChars, position);
+                position += next.getValue().length();
+                next = overlay.hasNext() ? overlay.next() : null;
+            }
+            if (next != null && compare(i, next.getKey()) == 0) continue;
+            if (!removed.isEmpty() && removed.contains(key(name(i)))) continue;
+            int nameLength = offsets[i + 1] - offsets[i];
+            newOffsets[size++] = position;
+            System.arraycopy(chars, offsets[i], newChars, position, nameLength);
+            position += nameLength;
+        }
+        while (next != null) {
+            newOffsets[size++] = position;
+            next.getValue().getChars(0, next.getValue().length(), newChars, position);
+            position += next.getValue().length();
+            next = overlay.hasNext() ? overlay.next() : null;
+        }
+        newOffsets[size] = position;
+        added.clear();
+        removed.clear();
+        this.chars = position == newChars.length ? newChars : Arrays.copyOf(newChars, position);
+        this.offsets = size + 1 == newOffsets.length ? newOffsets : Arrays.copyOf(newOffsets, size + 1);
+    }
+
+    private static Names build(List<String> sorted) {
+        int length = 0;
+        for (String name : sorted) length += name.length();
+        char[] newChars = new char[length];
+        int[] newOffsets = new int[sorted.size() + 1];
+        int count = 0;
+        int position = 0;
+        String previous = null;
+        for (String name : sorted) {
+            // Names that only differ in case are indexed once
+            if (previous != null && compare(previous, name) == 0) continue;
+            name.getChars(0, name.length(), newChars, position);
+            newOffsets[count++] = position;
+            position += name.length();
+            previous = name;
+        }
+        newOffsets[count] = position;
+        return new Names(position == newChars.length ? newChars : Arrays.copyOf(newChars, position),
+                count + 1 == newOffsets.length ? newOffsets : Arrays.copyOf(newOffsets, count + 1));
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = offsets.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, key) < 0) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private int compare(int index, String key) {
+        int start = offsets[index];
+        int length = offsets[index + 1] - start;
+        int common = Math.min(length, key.length());
+        for (int i = 0; i < common; i++) {
+            int difference = lower(chars[start + i]) - key.charAt(i);
+            if (difference != 0) return difference;
+        }
+        return length - key.length();
+    }
+
+    private boolean startsWith(int index, String key) {
+        int start = offsets[index];
+        if (offsets[index + 1] - start < key.length()) return false;
+        for (int i = 0; i < key.length(); i++)
+            if (lower(chars[start + i]) != key.charAt(i)) return false;
+        return true;
+    }
+
+    private String name(int index) {
+        return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    private static int compare(String first, String second) {
+        int common = Math.min(first.length(), second.length());
+        for (int i = 0; i < common; i++) {
+            int difference = lower(first.charAt(i)) - lower(second.charAt(i));
+            if (difference != 0) return difference;
+        }
+        return first.length() - second.length();
+    }
+
+    private static String key(String username) {
+        char[] key = username.toCharArray();
+        for (int i = 0; i < key.length; i++) key[i] = lower(key[i]);
+        return new String(key);
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private record Names(char[] chars, int[] offsets) {
+    }
+}
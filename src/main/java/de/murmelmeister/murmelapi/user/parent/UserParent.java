@@ -1,6 +1,7 @@
 package de.murmelmeister.murmelapi.user.parent;
 
 import de.murmelmeister.murmelapi.group.Group;
+import de.murmelmeister.murmelapi.permission.ParentGrant;
 import de.murmelmeister.murmelapi.user.User;
 
 import java.util.List;
@@ -59,6 +60,14 @@ public sealed interface UserParent permits UserParentProvider {
      */
     List<Integer> getParentIds(int userId);
 
+    /**
+     * Obtains all parent ids of a user as a primitive array, without boxing every id.
+     *
+     * @param userId The id of the user.
+     * @return An array of all parent ids of the user.
+     */
+    int[] getParentIdArray(int userId);
+
     /**
      * Obtains all parent names of a user.
      *
@@ -68,6 +77,23 @@ public sealed interface UserParent permits UserParentProvider {
      */
     List<String> getParentNames(Group group, int userId);
 
+    /**
+     * Obtains a parent of a user with all its details in a single query.
+     *
+     * @param userId   The id of the user.
+     * @param parentId The id of the parent.
+     * @return The parent with its details, or null if the user does not have the parent.
+     */
+    ParentGrant getGrant(int userId, int parentId);
+
+    /**
+     * Obtains all parents of a user with all their details in a single query.
+     *
+     * @param userId The id of the user.
+     * @return A list of all parents of the user with their details.
+     */
+    List<ParentGrant> getGrants(int userId);
+
     /**
      * Obtains the creator id of a parent.
      *
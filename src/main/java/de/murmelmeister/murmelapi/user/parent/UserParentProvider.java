@@ -1,71 +1,143 @@
 package de.murmelmeister.murmelapi.user.parent;
 
 import de.murmelmeister.murmelapi.group.Group;
+import de.murmelmeister.murmelapi.permission.ParentGrant;
 import de.murmelmeister.murmelapi.user.User;
+import de.murmelmeister.murmelapi.user.UserSession;
+import de.murmelmeister.murmelapi.user.UserSessions;
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.RowMapper;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import de.murmelmeister.murmelapi.utils.database.Subsystem;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public final class UserParentProvider implements UserParent {
+    private static final RowMapper<ParentGrant> GRANT_MAPPER = resultSet -> new ParentGrant(resultSet.getInt("UserID"),
+            resultSet.getInt("CreatorID"), resultSet.getInt("ParentID"), resultSet.getLong("CreatedTime"), resultSet.getLong("ExpiredTime"));
+
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+    private final ProcedureRegistry procedures = new ProcedureRegistry("UserParent", "UserID INT, CreatorID INT, ParentID INT, CreatedTime BIGINT, ExpiredTime BIGINT")
+            .subsystem(Subsystem.PERMISSION)
+            .uniqueKey("UserParent", "UserID, ParentID")
+            .index("ExpiredTime", "ExpiredTime");
+    private final StoredProcedure exists = procedures.exists("Exists", "uid INT, pid INT", "UserID=uid AND ParentID=pid");
+    private final StoredProcedure selectGrant = procedures.selectRow("Grant", "uid INT, pid INT", "UserID=uid AND ParentID=pid");
+    private final StoredProcedure selectCreatorId = procedures.selectColumn("CreatorID", "CreatorID", "uid INT, pid INT", "UserID=uid AND ParentID=pid");
+    private final StoredProcedure selectCreatedTime = procedures.selectColumn("CreatedTime", "CreatedTime", "uid INT, pid INT", "UserID=uid AND ParentID=pid");
+    private final StoredProcedure selectExpiredTime = procedures.selectColumn("ExpiredTime", "ExpiredTime", "uid INT, pid INT", "UserID=uid AND ParentID=pid");
+    private final StoredProcedure selectParentIds = procedures.selectColumns("ParentIDs", "ParentID", "uid INT", "UserID=uid");
+    private final StoredProcedure selectParentId = procedures.selectColumn("ParentID", "ParentID", "uid INT", "UserID=uid");
+    private final StoredProcedure selectGrants = procedures.selectRows("Grants", "uid INT", "UserID=uid");
+    private final String scanExpiredBefore = procedures.scan("*", "ExpiredTime <> -1 AND ExpiredTime <= ?");
+    private final StoredProcedure add = procedures.statement("Add", "uid INT, creator INT, pid INT, created BIGINT, expired BIGINT", "INSERT INTO [TABLE] VALUES (uid, creator, pid, created, expired);");
+    private final StoredProcedure remove = procedures.statement("Remove", "uid INT, pid INT", "DELETE FROM [TABLE] WHERE UserID=uid AND ParentID=pid;");
+    private final StoredProcedure clear = procedures.statement("Clear", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;");
+    private final StoredProcedure updateExpired = procedures.statement("Expired", "uid INT, pid INT, expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE UserID=uid AND ParentID=pid;");
 
     public UserParentProvider() {
-        String tableName = "UserParent";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-    }
-
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "UserID INT, CreatorID INT, ParentID INT, CreatedTime BIGINT, ExpiredTime BIGINT");
+        procedures.createAll();
     }
 
     @Override
     public boolean existsParent(int userId, int parentId) {
-        return Database.callExists(Procedure.USER_PARENT_PARENT.getName(), userId, parentId);
+        UserSession session = session(userId);
+        if (session != null) return findGrant(session, parentId) != null;
+        return Database.callExists(exists.name(), userId, parentId);
     }
 
     @Override
     public void addParent(int userId, int creatorId, int parentId, long time) {
         if (existsParent(userId, parentId)) return;
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        Database.callUpdate(Procedure.USER_PARENT_ADD.getName(), userId, creatorId, parentId, System.currentTimeMillis(), expired);
+        Database.callUpdate(add.name(), userId, creatorId, parentId, System.currentTimeMillis(), expired);
+        refreshSession(userId);
     }
 
     @Override
     public void removeParent(int userId, int parentId) {
-        Database.callUpdate(Procedure.USER_PARENT_REMOVE.getName(), userId, parentId);
+        Database.callUpdate(remove.name(), userId, parentId);
+        refreshSession(userId);
     }
 
     @Override
     public void clearParent(int userId) {
-        Database.callUpdate(Procedure.USER_PARENT_CLEAR.getName(), userId);
+        Database.callUpdate(clear.name(), userId);
+        refreshSession(userId);
     }
 
     @Override
     public int getParentId(int userId) {
-        return Database.callQuery(-1, "ParentID", int.class, Procedure.USER_PARENT_USER_ID.getName(), userId);
+        UserSession session = session(userId);
+        if (session != null) return session.getParents().isEmpty() ? -1 : session.getParents().getFirst().parentId();
+        return Database.callQuery(-1, "ParentID", int.class, selectParentId.name(), userId);
     }
 
     @Override
     public List<Integer> getParentIds(int userId) {
-        return Database.callQueryList("ParentID", int.class, Procedure.USER_PARENT_USER_ID.getName(), userId);
+        UserSession session = session(userId);
+        if (session != null) {
+            List<Integer> parentIds = new ArrayList<>(session.getParents().size());
+            for (ParentGrant grant : session.getParents()) parentIds.add(grant.parentId());
+            return parentIds;
+        }
+        return Database.callQueryList("ParentID", int.class, selectParentIds.name(), userId);
+    }
+
+    @Override
+    public int[] getParentIdArray(int userId) {
+        UserSession session = session(userId);
+        if (session != null) {
+            List<ParentGrant> parents = session.getParents();
+            int[] parentIds = new int[parents.size()];
+            for (int i = 0; i < parentIds.length; i++) parentIds[i] = parents.get(i).parentId();
+            return parentIds;
+        }
+        return Database.callQueryInts("ParentID", selectParentIds.name(), userId);
     }
 
     @Override
     public List<String> getParentNames(Group group, int userId) {
-        return getParentIds(userId).parallelStream().map(group::getName).collect(Collectors.toList());
+        return Arrays.stream(getParentIdArray(userId)).parallel().mapToObj(group::getName).collect(Collectors.toList());
+    }
+
+    @Override
+    public ParentGrant getGrant(int userId, int parentId) {
+        UserSession session = session(userId);
+        if (session != null) return findGrant(session, parentId);
+        return Database.callQueryRow(selectGrant.name(), GRANT_MAPPER, userId, parentId);
+    }
+
+    @Override
+    public List<ParentGrant> getGrants(int userId) {
+        UserSession session = session(userId);
+        if (session != null) return new ArrayList<>(session.getParents());
+        return Database.callQueryRows(selectGrants.name(), GRANT_MAPPER, userId);
     }
 
     @Override
     public int getCreatorId(int userId, int parentId) {
-        return Database.callQuery(-2, "CreatorID", int.class, Procedure.USER_PARENT_PARENT.getName(), userId, parentId);
+        UserSession session = session(userId);
+        if (session != null) {
+            ParentGrant grant = findGrant(session, parentId);
+            return grant == null ? -2 : grant.creatorId();
+        }
+        return Database.callQuery(-2, "CreatorID", int.class, selectCreatorId.name(), userId, parentId);
     }
 
     @Override
     public long getCreatedTime(int userId, int parentId) {
-        return Database.callQuery(-1L, "CreatedTime", long.class, Procedure.USER_PARENT_PARENT.getName(), userId, parentId);
+        UserSession session = session(userId);
+        if (session != null) {
+            ParentGrant grant = findGrant(session, parentId);
+            return grant == null ? -1L : grant.createdTime();
+        }
+        return Database.callQuery(-1L, "CreatedTime", long.class, selectCreatedTime.name(), userId, parentId);
     }
 
     @Override
@@ -75,7 +147,12 @@ public final class UserParentProvider implements UserParent {
 
     @Override
     public long getExpiredTime(int userId, int parentId) {
-        return Database.callQuery(-2L, "ExpiredTime", long.class, Procedure.USER_PARENT_PARENT.getName(), userId, parentId);
+        UserSession session = session(userId);
+        if (session != null) {
+            ParentGrant grant = findGrant(session, parentId);
+            return grant == null ? -2L : grant.expiredTime();
+        }
+        return Database.callQuery(-2L, "ExpiredTime", long.class, selectExpiredTime.name(), userId, parentId);
     }
 
     @Override
@@ -87,7 +164,8 @@ public final class UserParentProvider implements UserParent {
     @Override
     public String setExpiredTime(int userId, int parentId, long time) {
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        Database.callUpdate(Procedure.USER_PARENT_EXPIRED.getName(), userId, parentId, expired);
+        Database.callUpdate(updateExpired.name(), userId, parentId, expired);
+        refreshSession(userId);
         return getExpiredDate(userId, parentId);
     }
 
@@ -95,7 +173,8 @@ public final class UserParentProvider implements UserParent {
     public String addExpiredTime(int userId, int parentId, long time) {
         long current = getExpiredTime(userId, parentId);
         long expired = current == -1 ? System.currentTimeMillis() + time : current + time;
-        Database.callUpdate(Procedure.USER_PARENT_EXPIRED.getName(), userId, parentId, expired);
+        Database.callUpdate(updateExpired.name(), userId, parentId, expired);
+        refreshSession(userId);
         return getExpiredDate(userId, parentId);
     }
 
@@ -103,47 +182,33 @@ public final class UserParentProvider implements UserParent {
     public String removeExpiredTime(int userId, int parentId, long time) {
         long current = getExpiredTime(userId, parentId);
         long expired = current == -1 ? System.currentTimeMillis() : current - time;
-        Database.callUpdate(Procedure.USER_PARENT_EXPIRED.getName(), userId, parentId, expired);
+        Database.callUpdate(updateExpired.name(), userId, parentId, expired);
+        refreshSession(userId);
         return getExpiredDate(userId, parentId);
     }
 
     @Override
     public void loadExpired(User user) {
-        for (int userId : user.getIds())
-            for (int parentId : getParentIds(userId)) {
-                long time = getExpiredTime(userId, parentId);
-                if (time == -1) continue;
-                if (time <= System.currentTimeMillis()) removeParent(userId, parentId);
-            }
-    }
-
-    private enum Procedure {
-        USER_PARENT_USER_ID("UserParent_UserID", "uid INT", "SELECT * FROM [TABLE] WHERE UserID=uid;"),
-        USER_PARENT_PARENT("UserParent_Parent", "uid INT, pid INT", "SELECT * FROM [TABLE] WHERE UserID=uid AND ParentID=pid;"),
-        USER_PARENT_ADD("UserParent_Add", "uid INT, creator INT, pid INT, created BIGINT, expired BIGINT", "INSERT INTO [TABLE] VALUES (uid, creator, pid, created, expired);"),
-        USER_PARENT_REMOVE("UserParent_Remove", "uid INT, pid INT", "DELETE FROM [TABLE] WHERE UserID=uid AND ParentID=pid;"),
-        USER_PARENT_CLEAR("UserParent_Clear", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;"),
-        USER_PARENT_EXPIRED("UserParent_Expired", "uid INT, pid INT, expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE UserID=uid AND ParentID=pid;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
+        List<ParentGrant> expired = new ArrayList<>();
+        Database.forEach(scanExpiredBefore, GRANT_MAPPER, expired::add, System.currentTimeMillis());
+        for (ParentGrant grant : expired) removeParent(grant.ownerId(), grant.parentId());
+    }
 
-        public String getName() {
-            return name;
-        }
+    private void refreshSession(int userId) {
+        UserSession session = UserSessions.get(userId);
+        if (session != null) session.setParents(Database.callQueryRows(selectGrants.name(), GRANT_MAPPER, userId));
+    }
 
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
+    // Changes of other servers become visible once the parents of the session expired, see UserSession
+    private UserSession session(int userId) {
+        UserSession session = UserSessions.get(userId);
+        if (session != null && session.areParentsExpired()) session.setParents(Database.callQueryRows(selectGrants.name(), GRANT_MAPPER, userId));
+        return session;
+    }
 
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
+    private static ParentGrant findGrant(UserSession session, int parentId) {
+        for (ParentGrant grant : session.getParents())
+            if (grant.parentId() == parentId) return grant;
+        return null;
     }
 }
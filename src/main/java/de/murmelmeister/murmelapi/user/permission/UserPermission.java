@@ -1,5 +1,6 @@
 package de.murmelmeister.murmelapi.user.permission;
 
+import de.murmelmeister.murmelapi.permission.PermissionGrant;
 import de.murmelmeister.murmelapi.user.User;
 
 import java.util.List;
@@ -50,6 +51,23 @@ public sealed interface UserPermission permits UserPermissionProvider {
      */
     List<String> getPermissions(int userId);
 
+    /**
+     * Obtains a permission of a user with all its details in a single query.
+     *
+     * @param userId     The id of the user.
+     * @param permission The permission.
+     * @return The permission with its details, or null if the user does not have the permission.
+     */
+    PermissionGrant getGrant(int userId, String permission);
+
+    /**
+     * Obtains all permissions of a user with all their details in a single query.
+     *
+     * @param userId The id of the user.
+     * @return A list of all permissions of the user with their details.
+     */
+    List<PermissionGrant> getGrants(int userId);
+
     /**
      * Obtains the creator id of a permission.
      *
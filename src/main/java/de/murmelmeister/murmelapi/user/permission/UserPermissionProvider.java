@@ -1,59 +1,115 @@
 package de.murmelmeister.murmelapi.user.permission;
 
+import de.murmelmeister.murmelapi.permission.PermissionGrant;
 import de.murmelmeister.murmelapi.user.User;
+import de.murmelmeister.murmelapi.user.UserSession;
+import de.murmelmeister.murmelapi.user.UserSessions;
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.RowMapper;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import de.murmelmeister.murmelapi.utils.database.Subsystem;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 
 public final class UserPermissionProvider implements UserPermission {
+    private static final RowMapper<PermissionGrant> GRANT_MAPPER = resultSet -> new PermissionGrant(resultSet.getInt("UserID"),
+            resultSet.getInt("CreatorID"), resultSet.getString("Permission"), resultSet.getLong("CreatedTime"), resultSet.getLong("ExpiredTime"));
+
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+    private final ProcedureRegistry procedures = new ProcedureRegistry("UserPermission", "UserID INT, CreatorID INT, Permission VARCHAR(1000), CreatedTime BIGINT, ExpiredTime BIGINT")
+            .subsystem(Subsystem.PERMISSION)
+            .index("UserPermission", "UserID, Permission(191)")
+            .index("ExpiredTime", "ExpiredTime");
+    private final StoredProcedure exists = procedures.exists("Exists", "uid INT, perm VARCHAR(1000)", "UserID=uid AND Permission=perm");
+    private final StoredProcedure selectGrant = procedures.selectRow("Grant", "uid INT, perm VARCHAR(1000)", "UserID=uid AND Permission=perm");
+    private final StoredProcedure selectCreatorId = procedures.selectColumn("CreatorID", "CreatorID", "uid INT, perm VARCHAR(1000)", "UserID=uid AND Permission=perm");
+    private final StoredProcedure selectCreatedTime = procedures.selectColumn("CreatedTime", "CreatedTime", "uid INT, perm VARCHAR(1000)", "UserID=uid AND Permission=perm");
+    private final StoredProcedure selectExpiredTime = procedures.selectColumn("ExpiredTime", "ExpiredTime", "uid INT, perm VARCHAR(1000)", "UserID=uid AND Permission=perm");
+    private final StoredProcedure selectPermissions = procedures.selectColumns("Permissions", "Permission", "uid INT", "UserID=uid");
+    private final StoredProcedure selectGrants = procedures.selectRows("Grants", "uid INT", "UserID=uid");
+    private final String scanExpiredBefore = procedures.scan("*", "ExpiredTime <> -1 AND ExpiredTime <= ?");
+    private final StoredProcedure add = procedures.statement("Add", "uid INT, creator INT, perm VARCHAR(1000), created BIGINT, expired BIGINT", "INSERT INTO [TABLE] VALUES (uid, creator, perm, created, expired);");
+    private final StoredProcedure remove = procedures.statement("Remove", "uid INT, perm VARCHAR(1000)", "DELETE FROM [TABLE] WHERE UserID=uid AND Permission=perm;");
+    private final StoredProcedure clear = procedures.statement("Clear", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;");
+    private final StoredProcedure updateExpired = procedures.statement("Expired", "uid INT, perm VARCHAR(1000), expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE UserID=uid AND Permission=perm;");
 
     public UserPermissionProvider() {
-        String tableName = "UserPermission";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-    }
-
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "UserID INT, CreatorID INT, Permission VARCHAR(1000), CreatedTime BIGINT, ExpiredTime BIGINT");
+        procedures.createAll();
     }
 
     @Override
     public boolean existsPermission(int userId, String permission) {
-        return Database.callExists(Procedure.USER_PERMISSION_PERMISSION.getName(), userId, permission);
+        UserSession session = session(userId);
+        if (session != null) return findGrant(session, permission) != null;
+        return Database.callExists(exists.name(), userId, permission);
     }
 
     @Override
     public void addPermission(int userId, int creatorId, String permission, long time) {
         if (existsPermission(userId, permission)) return;
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        Database.callUpdate(Procedure.USER_PERMISSION_ADD.getName(), userId, creatorId, permission, System.currentTimeMillis(), expired);
+        Database.callUpdate(add.name(), userId, creatorId, permission, System.currentTimeMillis(), expired);
+        refreshSession(userId);
     }
 
     @Override
     public void removePermission(int userId, String permission) {
-        Database.callUpdate(Procedure.USER_PERMISSION_REMOVE.getName(), userId, permission);
+        Database.callUpdate(remove.name(), userId, permission);
+        refreshSession(userId);
     }
 
     @Override
     public void clearPermission(int userId) {
-        Database.callUpdate(Procedure.USER_PERMISSION_CLEAR.getName(), userId);
+        Database.callUpdate(clear.name(), userId);
+        refreshSession(userId);
     }
 
     @Override
     public List<String> getPermissions(int userId) {
-        return Database.callQueryList("Permission", String.class, Procedure.USER_PERMISSION_USER_ID.getName(), userId);
+        UserSession session = session(userId);
+        if (session != null) {
+            List<String> permissions = new ArrayList<>(session.getPermissions().size());
+            for (PermissionGrant grant : session.getPermissions()) permissions.add(grant.permission());
+            return permissions;
+        }
+        return Database.callQueryList("Permission", String.class, selectPermissions.name(), userId);
+    }
+
+    @Override
+    public PermissionGrant getGrant(int userId, String permission) {
+        UserSession session = session(userId);
+        if (session != null) return findGrant(session, permission);
+        return Database.callQueryRow(selectGrant.name(), GRANT_MAPPER, userId, permission);
+    }
+
+    @Override
+    public List<PermissionGrant> getGrants(int userId) {
+        UserSession session = session(userId);
+        if (session != null) return new ArrayList<>(session.getPermissions());
+        return Database.callQueryRows(selectGrants.name(), GRANT_MAPPER, userId);
     }
 
     @Override
     public int getCreatorId(int userId, String permission) {
-        return Database.callQuery(-2, "CreatorID", int.class, Procedure.USER_PERMISSION_PERMISSION.getName(), userId, permission);
+        UserSession session = session(userId);
+        if (session != null) {
+            PermissionGrant grant = findGrant(session, permission);
+            return grant == null ? -2 : grant.creatorId();
+        }
+        return Database.callQuery(-2, "CreatorID", int.class, selectCreatorId.name(), userId, permission);
     }
 
     @Override
     public long getCreatedTime(int userId, String permission) {
-        return Database.callQuery(-1L, "CreatedTime", long.class, Procedure.USER_PERMISSION_PERMISSION.getName(), userId, permission);
+        UserSession session = session(userId);
+        if (session != null) {
+            PermissionGrant grant = findGrant(session, permission);
+            return grant == null ? -1L : grant.createdTime();
+        }
+        return Database.callQuery(-1L, "CreatedTime", long.class, selectCreatedTime.name(), userId, permission);
     }
 
     @Override
@@ -63,7 +119,12 @@ public final class UserPermissionProvider implements UserPermission {
 
     @Override
     public long getExpiredTime(int userId, String permission) {
-        return Database.callQuery(-2L, "ExpiredTime", long.class, Procedure.USER_PERMISSION_PERMISSION.getName(), userId, permission);
+        UserSession session = session(userId);
+        if (session != null) {
+            PermissionGrant grant = findGrant(session, permission);
+            return grant == null ? -2L : grant.expiredTime();
+        }
+        return Database.callQuery(-2L, "ExpiredTime", long.class, selectExpiredTime.name(), userId, permission);
     }
 
     @Override
@@ -75,7 +136,8 @@ public final class UserPermissionProvider implements UserPermission {
     @Override
     public String setExpiredTime(int userId, String permission, long time) {
         long expired = time == -1 ? time : System.currentTimeMillis() + time;
-        Database.callUpdate(Procedure.USER_PERMISSION_EXPIRED.getName(), userId, permission, expired);
+        Database.callUpdate(updateExpired.name(), userId, permission, expired);
+        refreshSession(userId);
         return getExpiredDate(userId, permission);
     }
 
@@ -83,7 +145,8 @@ public final class UserPermissionProvider implements UserPermission {
     public String addExpiredTime(int userId, String permission, long time) {
         long current = getExpiredTime(userId, permission);
         long expired = current == -1 ? System.currentTimeMillis() + time : current + time;
-        Database.callUpdate(Procedure.USER_PERMISSION_EXPIRED.getName(), userId, permission, expired);
+        Database.callUpdate(updateExpired.name(), userId, permission, expired);
+        refreshSession(userId);
         return getExpiredDate(userId, permission);
     }
 
@@ -91,47 +154,34 @@ public final class UserPermissionProvider implements UserPermission {
     public String removeExpiredTime(int userId, String permission, long time) {
         long current = getExpiredTime(userId, permission);
         long expired = current == -1 ? System.currentTimeMillis() : current - time;
-        Database.callUpdate(Procedure.USER_PERMISSION_EXPIRED.getName(), userId, permission, expired);
+        Database.callUpdate(updateExpired.name(), userId, permission, expired);
+        refreshSession(userId);
         return getExpiredDate(userId, permission);
     }
 
     @Override
     public void loadExpired(User user) {
-        for (int userId : user.getIds())
-            for (String permission : getPermissions(userId)) {
-                long time = getExpiredTime(userId, permission);
-                if (time == -1) continue;
-                if (time <= System.currentTimeMillis()) removePermission(userId, permission);
-            }
-    }
-
-    private enum Procedure {
-        USER_PERMISSION_USER_ID("UserPermission_UserID", "uid INT", "SELECT * FROM [TABLE] WHERE UserID=uid;"),
-        USER_PERMISSION_PERMISSION("UserPermission_Permission", "uid INT, perm VARCHAR(1000)", "SELECT * FROM [TABLE] WHERE UserID=uid AND Permission=perm;"),
-        USER_PERMISSION_ADD("UserPermission_Add", "uid INT, creator INT, perm VARCHAR(1000), created BIGINT, expired BIGINT", "INSERT INTO [TABLE] VALUES (uid, creator, perm, created, expired);"),
-        USER_PERMISSION_REMOVE("UserPermission_Remove", "uid INT, perm VARCHAR(1000)", "DELETE FROM [TABLE] WHERE UserID=uid AND Permission=perm;"),
-        USER_PERMISSION_CLEAR("UserPermission_Clear", "uid INT", "DELETE FROM [TABLE] WHERE UserID=uid;"),
-        USER_PERMISSION_EXPIRED("UserPermission_Expired", "uid INT, perm VARCHAR(1000), expired BIGINT", "UPDATE [TABLE] SET ExpiredTime=expired WHERE UserID=uid AND Permission=perm;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
+        List<PermissionGrant> expired = new ArrayList<>();
+        Database.forEach(scanExpiredBefore, GRANT_MAPPER, expired::add, System.currentTimeMillis());
+        for (PermissionGrant grant : expired) removePermission(grant.ownerId(), grant.permission());
+    }
 
-        public String getName() {
-            return name;
-        }
+    private void refreshSession(int userId) {
+        UserSession session = UserSessions.get(userId);
+        if (session != null) session.setPermissions(Database.callQueryRows(selectGrants.name(), GRANT_MAPPER, userId));
+    }
 
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
+    // Changes of other servers become visible once the permissions of the session expired, see UserSession
+    private UserSession session(int userId) {
+        UserSession session = UserSessions.get(userId);
+        if (session != null && session.arePermissionsExpired()) session.setPermissions(Database.callQueryRows(selectGrants.name(), GRANT_MAPPER, userId));
+        return session;
+    }
 
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
+    // The permission column compares case-insensitively in the database
+    private static PermissionGrant findGrant(UserSession session, String permission) {
+        for (PermissionGrant grant : session.getPermissions())
+            if (grant.permission().equalsIgnoreCase(permission)) return grant;
+        return null;
     }
 }
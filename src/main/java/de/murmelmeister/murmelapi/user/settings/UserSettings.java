@@ -45,6 +45,7 @@ public sealed interface UserSettings permits UserSettingsProvider {
 
     /**
      * Sets the last quit time for the specified user.
+     * The update is written behind, see {@link de.murmelmeister.murmelapi.utils.database.WriteBehindQueue}.
      *
      * @param id The id of the user.
      * @param time The last quit time to set for the user.
@@ -70,6 +71,7 @@ public sealed interface UserSettings permits UserSettingsProvider {
     /**
      * Sets the online status of a user identified by the given ID.
      * This method updates the online status of the user in the user settings database.
+     * The update is written behind, see {@link de.murmelmeister.murmelapi.utils.database.WriteBehindQueue}.
      *
      * @param id     The ID of the user.
      * @param online The online status to set for the user, represented as a byte value.
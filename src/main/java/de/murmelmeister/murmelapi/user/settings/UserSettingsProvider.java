@@ -1,43 +1,57 @@
 package de.murmelmeister.murmelapi.user.settings;
 
-import de.murmelmeister.murmelapi.user.User;
+import de.murmelmeister.murmelapi.user.UserSession;
+import de.murmelmeister.murmelapi.user.UserSessions;
 import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
 
 import java.text.SimpleDateFormat;
 
 public final class UserSettingsProvider implements UserSettings {
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
-
-    public UserSettingsProvider(User user) {
-        String tableName = "UserSettings";
-        createTable(tableName);
-        Procedure.loadAll(tableName);
-        loadTablesIfNotCreated(user);
-    }
-
-    private void createTable(String tableName) {
-        Database.createTable(tableName, "ID INT PRIMARY KEY, FirstJoin BIGINT, LastQuit BIGINT, Online BOOL");
+    private final ProcedureRegistry procedures = new ProcedureRegistry("UserSettings", "ID INT PRIMARY KEY, FirstJoin BIGINT, LastQuit BIGINT, Online BOOL");
+    private final StoredProcedure exists = procedures.exists("Exists", "uid INT", "ID=uid");
+    private final StoredProcedure firstJoin = procedures.selectColumn("FirstJoin", "FirstJoin", "uid INT", "ID=uid");
+    private final StoredProcedure lastQuit = procedures.selectColumn("LastQuit", "LastQuit", "uid INT", "ID=uid");
+    private final StoredProcedure online = procedures.selectColumn("Online", "Online", "uid INT", "ID=uid");
+    // A row that a login on another server inserts at the same time is kept instead of failing the startup
+    private final StoredProcedure backfill = procedures.statement("Backfill", "now BIGINT",
+            "INSERT INTO [TABLE] (ID, FirstJoin, LastQuit, Online) SELECT u.ID, now, now, FALSE FROM User u WHERE NOT EXISTS (SELECT 1 FROM [TABLE] s WHERE s.ID=u.ID) " +
+            "ON DUPLICATE KEY UPDATE [TABLE].ID=[TABLE].ID;");
+    private final StoredProcedure insert = procedures.statement("Insert", "uid INT, first BIGINT, last BIGINT, isOnline BOOL", "INSERT INTO [TABLE] VALUES (uid, first, last, isOnline);");
+    private final StoredProcedure delete = procedures.statement("Delete", "uid INT", "DELETE FROM [TABLE] WHERE ID=uid;");
+    private final StoredProcedure updateLastQuit = procedures.statement("UpdateLastQuit", "uid INT, last BIGINT", "UPDATE [TABLE] SET LastQuit=last WHERE ID=uid;");
+    private final StoredProcedure updateOnline = procedures.statement("UpdateOnline", "uid INT, isOnline BOOL", "UPDATE [TABLE] SET Online=isOnline WHERE ID=uid;");
+
+    public UserSettingsProvider() {
+        procedures.createAll();
+        Database.callUpdate(backfill.name(), System.currentTimeMillis());
     }
 
     @Override
     public boolean existsUser(int id) {
-        return Database.callExists(Procedure.USER_SETTINGS_ID.getName(), id);
+        return Database.callExists(exists.name(), id);
     }
 
     @Override
     public void createUser(int id) {
         if (existsUser(id)) return;
-        Database.callUpdate(Procedure.USER_SETTINGS_INSERT.getName(), id, System.currentTimeMillis(), System.currentTimeMillis(), 0);
+        Database.callUpdate(insert.name(), id, System.currentTimeMillis(), System.currentTimeMillis(), 0);
     }
 
     @Override
     public void deleteUser(int id) {
-        Database.callUpdate(Procedure.USER_SETTINGS_DELETE.getName(), id);
+        Database.getWriteBehind().discard(updateLastQuit.name(), id);
+        Database.getWriteBehind().discard(updateOnline.name(), id);
+        Database.callUpdate(delete.name(), id);
     }
 
     @Override
     public long getFirstJoinTime(int id) {
-        return Database.callQuery(-1L, "FirstJoin", long.class, Procedure.USER_SETTINGS_ID.getName(), id);
+        UserSession session = UserSessions.get(id);
+        if (session != null) return session.getFirstJoinTime();
+        return Database.callQuery(-1L, "FirstJoin", long.class, firstJoin.name(), id);
     }
 
     @Override
@@ -47,12 +61,18 @@ public final class UserSettingsProvider implements UserSettings {
 
     @Override
     public long getLstQuitTime(int id) {
-        return Database.callQuery(-1L, "LastQuit", long.class, Procedure.USER_SETTINGS_ID.getName(), id);
+        UserSession session = UserSessions.get(id);
+        if (session != null) return session.getLastQuitTime();
+        Object[] pending = Database.getWriteBehind().getPending(updateLastQuit.name(), id);
+        if (pending != null) return (long) pending[1];
+        return Database.callQuery(-1L, "LastQuit", long.class, lastQuit.name(), id);
     }
 
     @Override
     public void setLastQuitTime(int id, long time) {
-        Database.callUpdate(Procedure.USER_SETTINGS_UPDATE_LAST_QUIT.getName(), id, time);
+        Database.getWriteBehind().enqueue(updateLastQuit.name(), id, id, time);
+        UserSession session = UserSessions.get(id);
+        if (session != null) session.setLastQuitTime(time);
     }
 
     @Override
@@ -62,45 +82,17 @@ public final class UserSettingsProvider implements UserSettings {
 
     @Override
     public void setOnline(int id, boolean isOnline) {
-        Database.callUpdate(Procedure.USER_SETTINGS_UPDATE_ONLINE.getName(), id, isOnline ? (byte) 1 : (byte) 0);
+        Database.getWriteBehind().enqueue(updateOnline.name(), id, id, isOnline ? (byte) 1 : (byte) 0);
+        UserSession session = UserSessions.get(id);
+        if (session != null) session.setOnline(isOnline);
     }
 
     @Override
     public boolean isOnline(int id) {
-        return Database.callQuery((byte) 0, "Online", byte.class, Procedure.USER_SETTINGS_ID.getName(), id) == 1;
-    }
-
-    private void loadTablesIfNotCreated(User user) {
-        for (int userId : user.getIds())
-            createUser(userId);
-    }
-
-    private enum Procedure {
-        USER_SETTINGS_ID("UserSettings_ID", "uid INT", "SELECT * FROM [TABLE] WHERE ID=uid;"),
-        USER_SETTINGS_INSERT("UserSettings_Insert", "uid INT, first BIGINT, last BIGINT, isOnline BOOL", "INSERT INTO [TABLE] VALUES (uid, first, last, isOnline);"),
-        USER_SETTINGS_DELETE("UserSettings_Delete", "uid INT", "DELETE FROM [TABLE] WHERE ID=uid;"),
-        USER_SETTINGS_UPDATE_LAST_QUIT("UserSettings_UpdateLastQuit", "uid INT, last BIGINT", "UPDATE [TABLE] SET LastQuit=last WHERE ID=uid;"),
-        USER_SETTINGS_UPDATE_ONLINE("UserSettings_UpdateOnline", "uid INT, isOnline BOOL", "UPDATE [TABLE] SET Online=isOnline WHERE ID=uid;");
-        private static final Procedure[] VALUES = values();
-
-        private final String name;
-        private final String query;
-
-        Procedure(final String name, final String input, final String query) {
-            this.name = name;
-            this.query = Database.getProcedureQueryWithoutObjects(name, input, query);
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public String getQuery(String tableName) {
-            return query.replace("[TABLE]", tableName);
-        }
-
-        public static void loadAll(String tableName) {
-            for (Procedure procedure : VALUES) Database.update(procedure.getQuery(tableName));
-        }
+        UserSession session = UserSessions.get(id);
+        if (session != null) return session.isOnline();
+        Object[] pending = Database.getWriteBehind().getPending(updateOnline.name(), id);
+        if (pending != null) return (byte) pending[1] == 1;
+        return Database.callQuery((byte) 0, "Online", byte.class, online.name(), id) == 1;
     }
 }
@@ -1,27 +1,99 @@
 package de.murmelmeister.murmelapi.utils;
 
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import de.murmelmeister.murmelapi.utils.database.AsyncDatabase;
+import de.murmelmeister.murmelapi.utils.database.Bulkhead;
+import de.murmelmeister.murmelapi.utils.database.CircuitBreaker;
+import de.murmelmeister.murmelapi.utils.database.ConcurrencyMode;
+import de.murmelmeister.murmelapi.utils.database.DatabaseCallEvent;
+import de.murmelmeister.murmelapi.utils.database.DatabaseMetrics;
+import de.murmelmeister.murmelapi.utils.database.DatabaseSettings;
+import de.murmelmeister.murmelapi.utils.database.DatabaseUnavailableException;
+import de.murmelmeister.murmelapi.utils.database.MultiResultMapper;
+import de.murmelmeister.murmelapi.utils.database.MultiResultSet;
+import de.murmelmeister.murmelapi.utils.database.RowMapper;
+import de.murmelmeister.murmelapi.utils.database.SchemaVersion;
+import de.murmelmeister.murmelapi.utils.database.SlowCallLog;
+import de.murmelmeister.murmelapi.utils.database.Subsystem;
+import de.murmelmeister.murmelapi.utils.database.Transaction;
+import de.murmelmeister.murmelapi.utils.database.UuidCodec;
+import de.murmelmeister.murmelapi.utils.database.UuidStorage;
+import de.murmelmeister.murmelapi.utils.database.WriteBehindQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.*;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Database class to manage the database.
+ * By default, statements run concurrently and are only bounded by the size of the connection pool,
+ * see {@link #setConcurrencyMode(ConcurrencyMode)} to restore the serialized behaviour.
+ * Reads can be routed to a read replica, see {@link #connectReplica(DatabaseSettings)}.
  * (Thread-safe)
  */
 public final class Database {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Database.class);
     private static final HikariDataSource DATA_SOURCE = new HikariDataSource();
     private static final ReadWriteLock LOCK = new ReentrantReadWriteLock(true);
     private static final Lock READ_LOCK = LOCK.readLock();
     private static final Lock WRITE_LOCK = LOCK.writeLock();
+    private static final Lock LIFECYCLE_LOCK = new ReentrantLock();
+    private static final int TABLE_LOCK_STRIPES = 64;
+    private static final int IN_CHUNK_SIZE = 1024;
+    private static final int ER_SP_DOES_NOT_EXIST = 1305;
+    private static final long PROCEDURE_RETRY_MILLIS = 100L;
+    private static final Map<String, Lock[]> TABLE_LOCKS = new ConcurrentHashMap<>();
+    private static final Map<String, String[]> CALL_STRINGS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<TransactionScope> TRANSACTION = new ThreadLocal<>();
+    private static final ThreadLocal<Long> LAST_WRITE = new ThreadLocal<>();
+    private static final ThreadLocal<long[]> CALL_COUNT = ThreadLocal.withInitial(() -> new long[1]);
+    private static volatile HikariDataSource readDataSource;
+    private static volatile long readYourWritesWindow = TimeUnit.SECONDS.toNanos(1);
+    private static final DatabaseMetrics METRICS = new DatabaseMetrics(Database::getPoolSnapshot);
+    private static final SlowCallLog SLOW_CALLS = new SlowCallLog(LOGGER);
+    private static final CircuitBreaker CIRCUIT_BREAKER = new CircuitBreaker(LOGGER);
+    private static final WriteBehindQueue WRITE_BEHIND = new WriteBehindQueue(LOGGER);
+    private static final Map<String, Subsystem> SUBSYSTEMS = new ConcurrentHashMap<>();
+    private static final Map<Subsystem, Bulkhead> BULKHEADS = new ConcurrentHashMap<>();
+    private static volatile ConcurrencyMode concurrencyMode = ConcurrencyMode.POOLED;
+    private static volatile int batchSize = 500;
+    private static volatile int fetchSize = 1000;
+    private static volatile UuidStorage uuidStorage = UuidStorage.TEXT;
+    private static volatile int readTimeout;
+    private static volatile int writeTimeout;
+    private static volatile AsyncDatabase asyncDatabase;
+
+    static {
+        setStatementCache(true, 250, 2048);
+        setDataSourceProperty("rewriteBatchedStatements", true);
+        setDataSourceProperty("useCursorFetch", true);
+    }
 
     /**
      * Connects to the database using the provided URL, username and password.
@@ -32,7 +104,7 @@ public final class Database {
      * @param password The password for the database.
      */
     public static void connect(String url, String user, String password) {
-        WRITE_LOCK.lock();
+        LIFECYCLE_LOCK.lock();
         try {
             DATA_SOURCE.setJdbcUrl(url);
             DATA_SOURCE.setUsername(user);
@@ -40,10 +112,147 @@ public final class Database {
         } catch (Exception e) {
             throw new RuntimeException("Database connecting error", e);
         } finally {
-            WRITE_LOCK.unlock();
+            LIFECYCLE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Connects to the database and configures the connection pool and the JDBC driver with the provided settings.
+     * The effective settings and driver properties are logged, passwords are hidden.
+     * Note: It is not checked whether it is really connected!
+     *
+     * @param settings The settings of the connection pool and the JDBC driver
+     * @see DatabaseSettings#fromConfiguration(de.murmelmeister.murmelapi.configuration.MurmelConfiguration, String)
+     * @see DatabaseSettings#fromEnvironment(String)
+     */
+    public static void connect(DatabaseSettings settings) {
+        LIFECYCLE_LOCK.lock();
+        try {
+            configure(DATA_SOURCE, settings);
+            AsyncDatabase async = asyncDatabase;
+            if (async != null) async.setMaxConcurrentCalls(settings.maximumPoolSize());
+            LOGGER.info("Database connection pool configured: {}, effective driver properties: {}", settings,
+                    DatabaseSettings.describeProperties(DATA_SOURCE.getDataSourceProperties()));
+        } catch (Exception e) {
+            throw new RuntimeException("Database connecting error", e);
+        } finally {
+            LIFECYCLE_LOCK.unlock();
         }
     }
 
+    /**
+     * Connects to a read replica of the database.
+     * Afterward, reads outside a transaction go to the replica, unless the current thread has written to the primary
+     * within the read-your-writes window, see {@link #setReadYourWritesWindow(long, TimeUnit)}.
+     * Updates and transactions always use the primary.
+     * The replica starts with the driver properties of the primary, the settings override them.
+     * Note: It is not checked whether it is really connected!
+     *
+     * @param settings The settings of the connection pool and the JDBC driver of the replica
+     */
+    public static void connectReplica(DatabaseSettings settings) {
+        LIFECYCLE_LOCK.lock();
+        try {
+            HikariDataSource replica = new HikariDataSource();
+            Properties properties = new Properties();
+            properties.putAll(DATA_SOURCE.getDataSourceProperties());
+            replica.setDataSourceProperties(properties);
+            replica.setReadOnly(true);
+            configure(replica, settings);
+            HikariDataSource previous = readDataSource;
+            readDataSource = replica;
+            if (previous != null && !previous.isClosed()) previous.close();
+            LOGGER.info("Database read replica configured: {}, effective driver properties: {}", settings,
+                    DatabaseSettings.describeProperties(replica.getDataSourceProperties()));
+        } catch (Exception e) {
+            throw new RuntimeException("Database replica connecting error", e);
+        } finally {
+            LIFECYCLE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Connects to a read replica of the database using the provided URL, username and password and the default settings.
+     *
+     * @param url      The JDBC URL for the replica.
+     * @param user     The username for the replica.
+     * @param password The password for the replica.
+     * @see #connectReplica(DatabaseSettings)
+     */
+    public static void connectReplica(String url, String user, String password) {
+        connectReplica(DatabaseSettings.of(url, user, password));
+    }
+
+    /**
+     * Sets how long the reads of a thread stay on the primary after the thread has written to it,
+     * so providers read their own writes while the replica catches up.
+     * The window is tracked per thread, calls of the {@link #async()} view only see the writes of the same task.
+     *
+     * @param duration The length of the window, 0 always reads from the replica
+     * @param unit     The unit of the duration
+     */
+    public static void setReadYourWritesWindow(long duration, TimeUnit unit) {
+        if (duration < 0) throw new IllegalArgumentException("Duration must not be negative");
+        readYourWritesWindow = unit.toNanos(duration);
+    }
+
+    /**
+     * Checks whether reads are routed to a read replica.
+     *
+     * @return true if a read replica is connected, otherwise false
+     */
+    public static boolean hasReplica() {
+        return readDataSource != null;
+    }
+
+    /**
+     * Obtains the metrics of all calls, see {@link DatabaseMetrics#snapshot()} and {@link DatabaseMetrics#startReporting(Logger, java.time.Duration, int)}.
+     *
+     * @return the metrics of the database
+     */
+    public static DatabaseMetrics getMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * Obtains the log of slow calls, see {@link SlowCallLog#setThreshold(java.time.Duration)} and {@link SlowCallLog#getRecent()}.
+     *
+     * @return the slow call log of the database
+     */
+    public static SlowCallLog getSlowCallLog() {
+        return SLOW_CALLS;
+    }
+
+    /**
+     * Obtains the write-behind queue for updates that overwrite the same row many times, see {@link WriteBehindQueue#enqueue(String, Object, Object...)}.
+     *
+     * @return the write-behind queue of the database
+     */
+    public static WriteBehindQueue getWriteBehind() {
+        return WRITE_BEHIND;
+    }
+
+    /**
+     * Counts the database calls made by the current thread so far, for example to attribute calls to a higher-level operation.
+     * Every call, every flushed batch of a transaction and every opened stream counts once.
+     *
+     * @return the number of calls of the current thread
+     */
+    public static long getThreadCallCount() {
+        return CALL_COUNT.get()[0];
+    }
+
+    /**
+     * Reads the state of the connection pool of the primary.
+     *
+     * @return the state of the pool, empty if the pool is not started yet
+     */
+    private static DatabaseMetrics.PoolSnapshot getPoolSnapshot() {
+        HikariPoolMXBean pool = DATA_SOURCE.getHikariPoolMXBean();
+        if (pool == null) return DatabaseMetrics.PoolSnapshot.EMPTY;
+        return new DatabaseMetrics.PoolSnapshot(pool.getActiveConnections(), pool.getIdleConnections(), pool.getTotalConnections(), pool.getThreadsAwaitingConnection());
+    }
+
     /**
      * Connects to an environment-based configuration using the provided parameters.
      *
@@ -85,20 +294,473 @@ public final class Database {
     }
 
     /**
-     * Disconnects from the database and close the connection pool.
+     * Disconnects from the database and close the connection pool and the pool of the read replica.
+     * Running calls of the {@link #async()} view may finish for up to 10 seconds, then the queued updates of the write-behind queue are flushed.
      */
     public static void disconnect() {
-        WRITE_LOCK.lock();
+        LIFECYCLE_LOCK.lock();
         try {
+            AsyncDatabase async = asyncDatabase;
+            asyncDatabase = null;
+            if (async != null) async.close(10, TimeUnit.SECONDS);
+            try {
+                WRITE_BEHIND.stop();
+            } catch (RuntimeException e) {
+                LOGGER.error("{} queued updates could not be written before disconnecting", WRITE_BEHIND.getQueueDepth(), e);
+            }
+            HikariDataSource replica = readDataSource;
+            readDataSource = null;
+            if (replica != null && !replica.isClosed())
+                replica.close();
             if (!DATA_SOURCE.isClosed())
                 DATA_SOURCE.close();
+            SchemaVersion.reset();
         } catch (Exception e) {
             throw new RuntimeException("Database closing error", e);
         } finally {
-            WRITE_LOCK.unlock();
+            LIFECYCLE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Obtains the asynchronous view of the database.
+     * Its calls run on virtual threads and at most as many of them run at the same time as the pool has connections.
+     * The limit follows {@link #connect(DatabaseSettings)}, after {@link #disconnect()} a new view is created.
+     *
+     * @return the asynchronous view of the database
+     */
+    public static AsyncDatabase async() {
+        AsyncDatabase async = asyncDatabase;
+        if (async != null) return async;
+        LIFECYCLE_LOCK.lock();
+        try {
+            // Hikari only applies its default pool size of 10 once the pool is started
+            int poolSize = DATA_SOURCE.getMaximumPoolSize();
+            if (asyncDatabase == null) asyncDatabase = new AsyncDatabase(poolSize < 1 ? 10 : poolSize);
+            return asyncDatabase;
+        } finally {
+            LIFECYCLE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Configures the statement cache of the JDBC driver, so prepared and callable statements are reused per connection.
+     * It is enabled by default and has to be configured before the first connection is borrowed from the pool.
+     *
+     * @param enabled  Whether the driver should cache prepared and callable statements
+     * @param size     The number of statements cached per connection
+     * @param sqlLimit The maximum length of an SQL statement that is still cached
+     */
+    public static void setStatementCache(boolean enabled, int size, int sqlLimit) {
+        setDataSourceProperty("cachePrepStmts", enabled);
+        setDataSourceProperty("cacheCallableStmts", enabled);
+        setDataSourceProperty("useServerPrepStmts", enabled);
+        setDataSourceProperty("prepStmtCacheSize", size);
+        setDataSourceProperty("callableStmtCacheSize", size);
+        setDataSourceProperty("prepStmtCacheSqlLimit", sqlLimit);
+    }
+
+    /**
+     * Applies the pool settings, the statement cache and the driver properties to a data source.
+     *
+     * @param dataSource The data source to configure
+     * @param settings   The settings to apply
+     */
+    private static void configure(HikariDataSource dataSource, DatabaseSettings settings) {
+        dataSource.setJdbcUrl(settings.url());
+        dataSource.setUsername(settings.user());
+        dataSource.setPassword(settings.password());
+        dataSource.setMaximumPoolSize(settings.maximumPoolSize());
+        dataSource.setMinimumIdle(settings.minimumIdle());
+        dataSource.setConnectionTimeout(settings.connectionTimeout());
+        dataSource.setIdleTimeout(settings.idleTimeout());
+        dataSource.setMaxLifetime(settings.maxLifetime());
+        dataSource.setKeepaliveTime(settings.keepaliveTime());
+        dataSource.setLeakDetectionThreshold(settings.leakDetectionThreshold());
+        dataSource.addDataSourceProperty("cachePrepStmts", String.valueOf(settings.statementCache()));
+        dataSource.addDataSourceProperty("cacheCallableStmts", String.valueOf(settings.statementCache()));
+        dataSource.addDataSourceProperty("useServerPrepStmts", String.valueOf(settings.statementCache()));
+        dataSource.addDataSourceProperty("prepStmtCacheSize", String.valueOf(settings.statementCacheSize()));
+        dataSource.addDataSourceProperty("callableStmtCacheSize", String.valueOf(settings.statementCacheSize()));
+        dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(settings.statementCacheSqlLimit()));
+        settings.driverProperties().forEach(dataSource::addDataSourceProperty);
+    }
+
+    /**
+     * Sets a property of the JDBC driver.
+     * It has to be set before the first connection is borrowed from the pool.
+     *
+     * @param key   The name of the driver property
+     * @param value The value of the driver property
+     */
+    public static void setDataSourceProperty(String key, Object value) {
+        LIFECYCLE_LOCK.lock();
+        try {
+            DATA_SOURCE.addDataSourceProperty(key, String.valueOf(value));
+        } catch (Exception e) {
+            throw new RuntimeException("Database property error", e);
+        } finally {
+            LIFECYCLE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Sets the number of rows sent to the database per batch by {@link #batchUpdate(String, List)} and {@link #callBatch(String, List)}.
+     * Every chunk is committed on its own.
+     *
+     * @param size The number of rows per batch, must be positive
+     */
+    public static void setBatchSize(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        batchSize = size;
+    }
+
+    /**
+     * Obtains the number of rows sent to the database per batch.
+     *
+     * @return the number of rows per batch
+     */
+    public static int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of rows the streaming methods fetch from the database per round trip.
+     *
+     * @param size The number of rows per fetch, must be positive
+     * @see #stream(String, RowMapper, Object...)
+     */
+    public static void setFetchSize(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Fetch size must be positive");
+        fetchSize = size;
+    }
+
+    /**
+     * Obtains the number of rows the streaming methods fetch from the database per round trip.
+     *
+     * @return the number of rows per fetch
+     */
+    public static int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets how UUID parameters are bound and UUID columns are created.
+     * It has to be set before the providers are created, which then migrate their existing UUID columns.
+     *
+     * @param storage The storage of UUIDs
+     */
+    public static void setUuidStorage(UuidStorage storage) {
+        uuidStorage = Objects.requireNonNull(storage, "storage");
+    }
+
+    /**
+     * Obtains how UUIDs are stored.
+     *
+     * @return the storage of UUIDs, {@link UuidStorage#TEXT} by default
+     */
+    public static UuidStorage getUuidStorage() {
+        return uuidStorage;
+    }
+
+    /**
+     * Sets how long a call may wait for the database before it fails, separately for reads and writes.
+     * The timeout applies to every network read of the connection, so a stalled database cannot block the calling thread forever.
+     * A connection that timed out is discarded by the pool.
+     *
+     * @param read  The timeout of reads, zero disables it
+     * @param write The timeout of updates and transactions, zero disables it
+     */
+    public static void setTimeouts(Duration read, Duration write) {
+        if (read.isNegative() || write.isNegative()) throw new IllegalArgumentException("Timeouts must not be negative");
+        readTimeout = Math.toIntExact(read.toMillis());
+        writeTimeout = Math.toIntExact(write.toMillis());
+    }
+
+    /**
+     * Obtains the circuit breaker that lets calls fail fast while the database is unreachable.
+     *
+     * @return the circuit breaker
+     */
+    public static CircuitBreaker getCircuitBreaker() {
+        return CIRCUIT_BREAKER;
+    }
+
+    /**
+     * Limits how many calls of a subsystem run at the same time.
+     * Calls wait up to the maximum wait for a permit and then fail with a {@link DatabaseUnavailableException}.
+     * Without a bulkhead the calls of a subsystem are only limited by the pool.
+     *
+     * @param subsystem          The subsystem to limit
+     * @param maxConcurrentCalls The number of calls that may run at the same time
+     * @param maxWait            How long a call waits for a permit
+     */
+    public static void setBulkhead(Subsystem subsystem, int maxConcurrentCalls, Duration maxWait) {
+        BULKHEADS.put(subsystem, new Bulkhead(subsystem, maxConcurrentCalls, maxWait));
+    }
+
+    /**
+     * Removes the limit of a subsystem.
+     *
+     * @param subsystem The subsystem
+     */
+    public static void removeBulkhead(Subsystem subsystem) {
+        BULKHEADS.remove(subsystem);
+    }
+
+    /**
+     * Obtains the bulkhead of a subsystem.
+     *
+     * @param subsystem The subsystem
+     * @return the bulkhead, or null if the subsystem is not limited
+     */
+    public static Bulkhead getBulkhead(Subsystem subsystem) {
+        return BULKHEADS.get(subsystem);
+    }
+
+    /**
+     * Assigns a statement to a subsystem, so it is limited by the bulkhead of the subsystem.
+     * {@link ProcedureRegistry} assigns all procedures and scans it declares, other statements belong to {@link Subsystem#CORE}.
+     *
+     * @param statement The name of the stored procedure or the SQL statement
+     * @param subsystem The subsystem of the statement
+     */
+    public static void assignSubsystem(String statement, Subsystem subsystem) {
+        SUBSYSTEMS.put(statement, subsystem);
+    }
+
+    /**
+     * Runs a call and returns the fallback instead of failing while the database is unavailable or the bulkhead is full.
+     * Other errors are still thrown.
+     *
+     * @param fallback The value returned if the call was not sent
+     * @param call     The call, usually a method of a provider
+     * @return the result of the call, or the fallback
+     */
+    public static <T> T withFallback(T fallback, Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (DatabaseUnavailableException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Sets how concurrent statements are coordinated.
+     * {@link ConcurrencyMode#POOLED} lets every statement run in parallel up to the pool size,
+     * {@link ConcurrencyMode#SERIALIZED} restores the global fair read/write lock.
+     *
+     * @param mode The concurrency mode to use
+     */
+    public static void setConcurrencyMode(ConcurrencyMode mode) {
+        concurrencyMode = Objects.requireNonNull(mode, "mode");
+    }
+
+    /**
+     * Obtains the current concurrency mode.
+     *
+     * @return the current concurrency mode
+     */
+    public static ConcurrencyMode getConcurrencyMode() {
+        return concurrencyMode;
+    }
+
+    /**
+     * Obtains the striped lock for a row key of a table.
+     * Only call sites that need ordering (e.g. read-modify-write or check-then-insert) should use it,
+     * all other statements rely on the isolation of the database.
+     * Every table has its own stripes, so nested locks of different tables cannot block each other.
+     *
+     * @param table The name of the table
+     * @param key   The key of the row, e.g. the user id
+     * @return the lock of the stripe the key belongs to
+     */
+    public static Lock getTableLock(String table, Object key) {
+        Lock[] locks = TABLE_LOCKS.computeIfAbsent(table, name -> {
+            Lock[] stripes = new Lock[TABLE_LOCK_STRIPES];
+            for (int i = 0; i < TABLE_LOCK_STRIPES; i++) stripes[i] = new ReentrantLock();
+            return stripes;
+        });
+        int hash = Objects.hashCode(key);
+        return locks[(hash ^ (hash >>> 16)) & (TABLE_LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Runs the action while holding the striped lock for a row key of a table.
+     *
+     * @param table  The name of the table
+     * @param key    The key of the row, e.g. the user id
+     * @param action The action to run
+     * @see #getTableLock(String, Object)
+     */
+    public static void withTableLock(String table, Object key, Runnable action) {
+        Lock lock = getTableLock(table, key);
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action while holding the striped lock for a row key of a table and returns its result.
+     *
+     * @param table  The name of the table
+     * @param key    The key of the row, e.g. the user id
+     * @param action The action to run
+     * @return the result of the action
+     * @see #getTableLock(String, Object)
+     */
+    public static <T> T withTableLock(String table, Object key, Supplier<T> action) {
+        Lock lock = getTableLock(table, key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Runs the action while holding a named lock of the database server, so only one server runs it at a time.
+     * The lock is held by a connection of its own, the action borrows further connections as usual,
+     * so the pool needs at least two connections.
+     *
+     * @param name    The name of the lock, at most 64 characters, it is shared by all databases of the server
+     * @param timeout How long to wait for the lock, in whole seconds
+     * @param action  The action to run
+     * @throws RuntimeException if the lock could not be acquired in time or a database access error occurs
+     */
+    public static void withNamedLock(String name, Duration timeout, Runnable action) {
+        // No network timeout is applied, waiting for the lock may take longer than a read
+        try (Connection connection = DATA_SOURCE.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                statement.setString(1, name);
+                statement.setLong(2, timeout.toSeconds());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next() || resultSet.getInt(1) != 1)
+                        throw new RuntimeException("Database lock " + name + " could not be acquired within " + timeout);
+                }
+            }
+            try {
+                action.run();
+            } finally {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    statement.setString(1, name);
+                    statement.execute();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Database lock error", e);
+        }
+    }
+
+    /**
+     * Executes SQL statements in order on one connection that locks the table for writing,
+     * so no other session reads or writes the table in between, for example to swap columns.
+     * The table is unlocked even if a statement fails.
+     *
+     * @param tableName  The name of the table to lock
+     * @param statements The SQL statements, they may only access the locked table
+     * @throws RuntimeException if a database access error occurs
+     */
+    public static void updateLocked(String tableName, String... statements) {
+        updateLocked(List.of(tableName), statements);
+    }
+
+    /**
+     * Executes SQL statements in order on one connection that locks several tables for writing.
+     * A table that a statement refers to by an alias has to be locked by that alias as well, for example {@code User AS kept}.
+     * The tables are unlocked even if a statement fails.
+     *
+     * @param tables     The names of the tables to lock, with their aliases
+     * @param statements The SQL statements, they may only access the locked tables
+     * @throws RuntimeException if a database access error occurs
+     */
+    public static void updateLocked(List<String> tables, String... statements) {
+        // LOCK TABLES cannot be prepared by the server, plain statements are used
+        try (Connection connection = DATA_SOURCE.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("LOCK TABLES " + String.join(" WRITE, ", tables) + " WRITE");
+            try {
+                for (String sql : statements) statement.execute(sql);
+            } finally {
+                statement.execute("UNLOCK TABLES");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Database locked update error", e);
+        }
+    }
+
+    /**
+     * Removes the rows that share the same key columns with a later row and then executes SQL statements,
+     * all on one connection that locks the table for writing, for example to add a unique key to a table without one.
+     * Of every group of duplicates the row the table scan returns last is kept, in a table without a key that is the newest row.
+     * The rows are removed in one transaction, the table is unlocked even if a statement fails.
+     *
+     * @param tableName  The name of the table to lock
+     * @param keyColumns The names of the key columns, rows with a null key column are kept
+     * @param statements The SQL statements executed after the duplicates were removed, they may only access the locked table
+     * @return the number of removed rows
+     * @throws RuntimeException if a database access error occurs
+     */
+    public static int deduplicateLocked(String tableName, List<String> keyColumns, String... statements) {
+        String columns = String.join(", ", keyColumns);
+        String condition = String.join("=? AND ", keyColumns) + "=?";
+        try (Connection connection = DATA_SOURCE.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.execute("LOCK TABLES " + tableName + " WRITE");
+            try {
+                List<Object[]> keys = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery("SELECT " + columns + " FROM " + tableName + " WHERE " + String.join(" IS NOT NULL AND ", keyColumns)
+                        + " IS NOT NULL GROUP BY " + columns + " HAVING COUNT(*) > 1")) {
+                    while (resultSet.next()) {
+                        Object[] key = new Object[keyColumns.size()];
+                        for (int i = 0; i < key.length; i++) key[i] = resultSet.getObject(i + 1);
+                        keys.add(key);
+                    }
+                }
+                int removed = 0;
+                for (Object[] key : keys) removed += keepLast(connection, tableName, condition, key);
+                connection.commit();
+                // ALTER TABLE commits on its own, the duplicates are already gone
+                for (String sql : statements) statement.execute(sql);
+                return removed;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                statement.execute("UNLOCK TABLES");
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Database deduplication error", e);
+        }
+    }
+
+    private static int keepLast(Connection connection, String tableName, String condition, Object[] key) throws SQLException {
+        Object[] last = null;
+        int rows = 0;
+        try (PreparedStatement select = getPreparedStatement(connection, "SELECT * FROM " + tableName + " WHERE " + condition, key);
+             ResultSet resultSet = select.executeQuery()) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                last = new Object[columns];
+                for (int i = 0; i < columns; i++) last[i] = resultSet.getObject(i + 1);
+                rows++;
+            }
+        }
+        if (last == null) return 0;
+        try (PreparedStatement delete = getPreparedStatement(connection, "DELETE FROM " + tableName + " WHERE " + condition, key)) {
+            delete.executeUpdate();
+        }
+        String values = String.join(", ", Collections.nCopies(last.length, "?"));
+        try (PreparedStatement insert = getPreparedStatement(connection, "INSERT INTO " + tableName + " VALUES (" + values + ")", last)) {
+            insert.executeUpdate();
+        }
+        return rows - 1;
+    }
+
     /**
      * Executes an update operation on the database using the provided SQL statement and parameters.
      *
@@ -106,15 +768,12 @@ public final class Database {
      * @param objects The parameters to be set in the SQL statement
      */
     public static void update(String sql, Object... objects) {
-        WRITE_LOCK.lock();
-        try (Connection connection = DATA_SOURCE.getConnection();
-             PreparedStatement statement = getPreparedStatement(connection, sql, objects)) {
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Database updating error", e);
-        } finally {
-            WRITE_LOCK.unlock();
-        }
+        if (deferWrite(false, sql, objects)) return;
+        execute(true, sql, objects, "Database updating error", Integer::longValue, connection -> {
+            try (PreparedStatement statement = getPreparedStatement(connection, sql, objects)) {
+                return statement.executeUpdate();
+            }
+        });
     }
 
     /**
@@ -125,15 +784,12 @@ public final class Database {
      * @param objects A variable number of objects to be passed as parameters to the query
      */
     public static void callUpdate(String name, Object... objects) {
-        WRITE_LOCK.lock();
-        try (Connection connection = DATA_SOURCE.getConnection();
-             CallableStatement statement = getCallableStatement(connection, name, objects)) {
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Database calling update error", e);
-        } finally {
-            WRITE_LOCK.unlock();
-        }
+        if (deferWrite(true, name, objects)) return;
+        execute(true, name, objects, "Database calling update error", Integer::longValue, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects)) {
+                return statement.executeUpdate();
+            }
+        });
     }
 
     /**
@@ -149,18 +805,155 @@ public final class Database {
      * @throws RuntimeException if a database access error occurs.
      */
     public static <T> T callUpdate(T defaultValue, String label, Class<T> type, String name, Object... objects) {
-        WRITE_LOCK.lock();
-        try (Connection connection = DATA_SOURCE.getConnection();
-             CallableStatement statement = getCallableStatement(connection, name, objects)) {
-            statement.executeUpdate();
-            try (ResultSet resultSet = statement.getResultSet()) {
-                if (resultSet.next()) return resultSet.getObject(label, type);
-            }
-            return defaultValue;
+        return execute(true, name, objects, "Database calling update/query error", value -> Objects.equals(value, defaultValue) ? 0 : 1, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects)) {
+                statement.executeUpdate();
+                try (ResultSet resultSet = statement.getResultSet()) {
+                    if (resultSet.next()) return getValue(resultSet, label, type);
+                }
+                return defaultValue;
+            }
+        });
+    }
+
+    /**
+     * Executes an update to the database using a stored procedure call and maps the first row of its result as a whole.
+     *
+     * @param name    The name of the stored procedure
+     * @param mapper  The mapper that converts the row
+     * @param objects The parameters to pass to the stored procedure
+     * @param <T>     The type of the mapped row
+     * @return the mapped row, or null if the stored procedure selected no row
+     * @throws RuntimeException if a database access error occurs
+     */
+    public static <T> T callUpdateRow(String name, RowMapper<T> mapper, Object... objects) {
+        return execute(true, name, objects, "Database calling update/query error", value -> value == null ? 0 : 1, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects)) {
+                statement.executeUpdate();
+                try (ResultSet resultSet = statement.getResultSet()) {
+                    return resultSet != null && resultSet.next() ? mapper.map(resultSet) : null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Executes the SQL statement once for every row in a single round trip per chunk.
+     * The driver rewrites the chunks into multi-row statements where possible.
+     *
+     * @param sql  The SQL statement to be executed
+     * @param rows The parameters of the SQL statement, one array per row
+     * @see #setBatchSize(int)
+     */
+    public static void batchUpdate(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        execute(true, sql, rows.getFirst(), "Database batch updating error", Integer::longValue, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                return executeBatch(connection, statement, rows);
+            }
+        });
+    }
+
+    /**
+     * Calls the stored procedure once for every row in a single round trip per chunk.
+     *
+     * @param name The name of the stored procedure
+     * @param rows The parameters of the stored procedure, one array per row with the same length
+     * @see #setBatchSize(int)
+     */
+    public static void callBatch(String name, List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        execute(true, name, rows.getFirst(), "Database calling batch error", Integer::longValue, connection -> {
+            try (CallableStatement statement = connection.prepareCall(getCallString(name, rows.getFirst().length))) {
+                return executeBatch(connection, statement, rows);
+            }
+        });
+    }
+
+    /**
+     * Runs the work as one unit of work on a single connection that is committed once at the end.
+     * Every database call of the current thread inside the work joins the transaction, including calls made by providers.
+     * Updates without a result are collected and sent as batches before the next read and before the commit.
+     * If the work throws an exception or {@link Transaction#setRollbackOnly()} is called, the transaction is rolled back.
+     * Nested calls join the outer transaction.
+     * The transaction holds a permit of the bulkhead of {@link Subsystem#CORE}, see {@link #inTransaction(Subsystem, Consumer)}.
+     *
+     * @param work The work to run inside the transaction
+     * @throws RuntimeException if a database access error occurs
+     */
+    public static void inTransaction(Consumer<Transaction> work) {
+        inTransaction(Subsystem.CORE, work);
+    }
+
+    /**
+     * Runs the work as one unit of work that holds a permit of the bulkhead of a subsystem until it has finished.
+     *
+     * @param subsystem The subsystem whose bulkhead limits the transaction
+     * @param work      The work to run inside the transaction
+     * @throws RuntimeException if a database access error occurs
+     * @see #inTransaction(Consumer)
+     */
+    public static void inTransaction(Subsystem subsystem, Consumer<Transaction> work) {
+        computeInTransaction(subsystem, transaction -> {
+            work.accept(transaction);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the work as one unit of work on a single connection that is committed once at the end and returns its result.
+     *
+     * @param work The work to run inside the transaction
+     * @return the result of the work
+     * @throws RuntimeException if a database access error occurs
+     * @see #inTransaction(Consumer)
+     */
+    public static <T> T computeInTransaction(Function<Transaction, T> work) {
+        return computeInTransaction(Subsystem.CORE, work);
+    }
+
+    /**
+     * Runs the work as one unit of work that holds a permit of the bulkhead of a subsystem until it has finished, and returns its result.
+     * The calls inside the transaction do not take further permits.
+     *
+     * @param subsystem The subsystem whose bulkhead limits the transaction
+     * @param work      The work to run inside the transaction
+     * @return the result of the work
+     * @throws RuntimeException if a database access error occurs
+     * @see #inTransaction(Consumer)
+     */
+    public static <T> T computeInTransaction(Subsystem subsystem, Function<Transaction, T> work) {
+        TransactionScope current = TRANSACTION.get();
+        if (current != null) return work.apply(current.transaction);
+        Bulkhead bulkhead = admit("transaction", subsystem);
+        Lock lock = acquireLock(true);
+        try (Connection connection = DATA_SOURCE.getConnection()) {
+            applyTimeout(connection, true);
+            connection.setAutoCommit(false);
+            TransactionScope scope = new TransactionScope(connection);
+            TRANSACTION.set(scope);
+            try {
+                T result = work.apply(scope.transaction);
+                if (scope.transaction.isRollbackOnly()) connection.rollback();
+                else {
+                    flushWrites(scope);
+                    connection.commit();
+                    markWrite();
+                }
+                return result;
+            } catch (SQLException | RuntimeException | Error e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                TRANSACTION.remove();
+                connection.setAutoCommit(true);
+            }
         } catch (SQLException e) {
-            throw new RuntimeException("Database calling update/query error", e);
+            CIRCUIT_BREAKER.recordFailure(e);
+            throw new RuntimeException("Database transaction error", e);
         } finally {
-            WRITE_LOCK.unlock();
+            if (lock != null) lock.unlock();
+            if (bulkhead != null) bulkhead.release();
         }
     }
 
@@ -185,19 +978,15 @@ public final class Database {
      * @return the result of the query of type T, or the default value if the query result is empty
      */
     public static <T> T query(T defaultValue, String label, Class<T> type, String sql, Object... objects) {
-        READ_LOCK.lock();
-        try (Connection connection = DATA_SOURCE.getConnection();
-             PreparedStatement statement = getPreparedStatement(connection, sql, objects)) {
-            T value = defaultValue;
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) value = resultSet.getObject(label, type);
-            }
-            return value;
-        } catch (SQLException e) {
-            throw new RuntimeException("Database query error", e);
-        } finally {
-            READ_LOCK.unlock();
-        }
+        return execute(false, sql, objects, "Database query error", value -> Objects.equals(value, defaultValue) ? 0 : 1, connection -> {
+            try (PreparedStatement statement = getPreparedStatement(connection, sql, objects)) {
+                T value = defaultValue;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) value = getValue(resultSet, label, type);
+                }
+                return value;
+            }
+        });
     }
 
     /**
@@ -212,19 +1001,15 @@ public final class Database {
      * @throws RuntimeException if there is a database access error
      */
     public static <T> List<T> queryList(String label, Class<T> type, String sql, Object... objects) {
-        READ_LOCK.lock();
-        try (Connection connection = DATA_SOURCE.getConnection();
-             PreparedStatement statement = getPreparedStatement(connection, sql, objects)) {
-            List<T> value = Collections.synchronizedList(new ArrayList<>());
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) value.add(resultSet.getObject(label, type));
+        return execute(false, sql, objects, "Database query error", List::size, connection -> {
+            try (PreparedStatement statement = getPreparedStatement(connection, sql, objects)) {
+                List<T> value = Collections.synchronizedList(new ArrayList<>());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) value.add(getValue(resultSet, label, type));
+                }
+                return value;
             }
-            return value;
-        } catch (SQLException e) {
-            throw new RuntimeException("Database query error", e);
-        } finally {
-            READ_LOCK.unlock();
-        }
+        });
     }
 
     /**
@@ -239,19 +1024,15 @@ public final class Database {
      * @throws RuntimeException if a database query error occurs
      */
     public static <T> T callQuery(T defaultValue, String label, Class<T> type, String name, Object... objects) {
-        READ_LOCK.lock();
-        try (Connection connection = DATA_SOURCE.getConnection();
-             CallableStatement statement = getCallableStatement(connection, name, objects)) {
-            T value = defaultValue;
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) value = resultSet.getObject(label, type);
+        return execute(false, name, objects, "Database query error", value -> Objects.equals(value, defaultValue) ? 0 : 1, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects)) {
+                T value = defaultValue;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) value = getValue(resultSet, label, type);
+                }
+                return value;
             }
-            return value;
-        } catch (SQLException e) {
-            throw new RuntimeException("Database query error", e);
-        } finally {
-            READ_LOCK.unlock();
-        }
+        });
     }
 
     /**
@@ -264,18 +1045,240 @@ public final class Database {
      * @return a synchronized list of result objects fetched from the specified column
      */
     public static <T> List<T> callQueryList(String label, Class<T> type, String name, Object... objects) {
-        READ_LOCK.lock();
-        try (Connection connection = DATA_SOURCE.getConnection();
-             CallableStatement statement = getCallableStatement(connection, name, objects)) {
-            List<T> value = Collections.synchronizedList(new ArrayList<>());
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) value.add(resultSet.getObject(label, type));
+        return execute(false, name, objects, "Database query error", List::size, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects)) {
+                List<T> value = Collections.synchronizedList(new ArrayList<>());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) value.add(getValue(resultSet, label, type));
+                }
+                return value;
             }
-            return value;
-        } catch (SQLException e) {
-            throw new RuntimeException("Database query error", e);
-        } finally {
-            READ_LOCK.unlock();
+        });
+    }
+
+    /**
+     * Executes the SQL query and collects an integer column into a primitive array without boxing each row.
+     *
+     * @param label   The label of the column to read
+     * @param sql     The SQL query to be executed
+     * @param objects The parameters to be set in the SQL query
+     * @return an array with the values of the column in row order
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static int[] queryInts(String label, String sql, Object... objects) {
+        return execute(false, sql, objects, "Database query error", values -> values.length, connection -> {
+            try (PreparedStatement statement = getPreparedStatement(connection, sql, objects);
+                 ResultSet resultSet = statement.executeQuery()) {
+                return readInts(resultSet, label);
+            }
+        });
+    }
+
+    /**
+     * Executes the SQL query and collects a long column into a primitive array without boxing each row.
+     *
+     * @param label   The label of the column to read
+     * @param sql     The SQL query to be executed
+     * @param objects The parameters to be set in the SQL query
+     * @return an array with the values of the column in row order
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static long[] queryLongs(String label, String sql, Object... objects) {
+        return execute(false, sql, objects, "Database query error", values -> values.length, connection -> {
+            try (PreparedStatement statement = getPreparedStatement(connection, sql, objects);
+                 ResultSet resultSet = statement.executeQuery()) {
+                return readLongs(resultSet, label);
+            }
+        });
+    }
+
+    /**
+     * Executes a database stored procedure query and collects an integer column into a primitive array without boxing each row.
+     *
+     * @param label   The label of the column to read
+     * @param name    The name of the stored procedure to be executed
+     * @param objects The parameters to be applied to the stored procedure
+     * @return an array with the values of the column in row order
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static int[] callQueryInts(String label, String name, Object... objects) {
+        return execute(false, name, objects, "Database query error", values -> values.length, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects);
+                 ResultSet resultSet = statement.executeQuery()) {
+                return readInts(resultSet, label);
+            }
+        });
+    }
+
+    /**
+     * Executes a database stored procedure query and collects a long column into a primitive array without boxing each row.
+     *
+     * @param label   The label of the column to read
+     * @param name    The name of the stored procedure to be executed
+     * @param objects The parameters to be applied to the stored procedure
+     * @return an array with the values of the column in row order
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static long[] callQueryLongs(String label, String name, Object... objects) {
+        return execute(false, name, objects, "Database query error", values -> values.length, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects);
+                 ResultSet resultSet = statement.executeQuery()) {
+                return readLongs(resultSet, label);
+            }
+        });
+    }
+
+    /**
+     * Executes a database stored procedure query and maps the first row of the result set as a whole.
+     *
+     * @param name    The name of the stored procedure to be executed
+     * @param mapper  The mapper that converts the row
+     * @param objects The parameters to be applied to the stored procedure
+     * @return the mapped first row, or {@code null} if the result set is empty
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static <T> T callQueryRow(String name, RowMapper<T> mapper, Object... objects) {
+        return execute(false, name, objects, "Database query error", value -> value == null ? 0 : 1, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects);
+                 ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? mapper.map(resultSet) : null;
+            }
+        });
+    }
+
+    /**
+     * Executes a database stored procedure query and maps every row of the result set as a whole.
+     *
+     * @param name    The name of the stored procedure to be executed
+     * @param mapper  The mapper that converts each row
+     * @param objects The parameters to be applied to the stored procedure
+     * @return a list of the mapped rows
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static <T> List<T> callQueryRows(String name, RowMapper<T> mapper, Object... objects) {
+        return execute(false, name, objects, "Database query error", List::size, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects)) {
+                List<T> value = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) value.add(mapper.map(resultSet));
+                }
+                return value;
+            }
+        });
+    }
+
+    /**
+     * Executes a database stored procedure that selects more than one result set and maps all of them at once.
+     * The result sets are read in a single round trip, which replaces several single-purpose calls.
+     *
+     * @param name    The name of the stored procedure to be executed
+     * @param mapper  The mapper that reads the result sets in order
+     * @param objects The parameters to be applied to the stored procedure
+     * @return the mapped result
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static <T> T callQueryResults(String name, MultiResultMapper<T> mapper, Object... objects) {
+        return execute(false, name, objects, "Database query error", value -> value == null ? 0 : 1, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects)) {
+                return mapper.map(new MultiResultSet(statement, statement.execute()));
+            }
+        });
+    }
+
+    /**
+     * Executes the SQL query with a forward-only cursor and maps the rows lazily while the stream is consumed.
+     * Only {@link #getFetchSize()} rows are held in memory at a time.
+     * The stream holds a pooled connection until it is exhausted or closed, so it must be used in a try-with-resources block.
+     *
+     * @param sql     The SQL query to be executed
+     * @param mapper  The mapper that converts each row
+     * @param objects The parameters to be set in the SQL query
+     * @return a stream of the mapped rows that has to be closed
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static <T> Stream<T> stream(String sql, RowMapper<T> mapper, Object... objects) {
+        return openStream(sql, objects, mapper, connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            setParameters(statement, objects);
+            return statement;
+        });
+    }
+
+    /**
+     * Executes the stored procedure and maps the rows lazily while the stream is consumed.
+     * The driver does not fetch the result of a procedure call with a cursor, it is read into memory as a whole,
+     * use {@link #stream(String, RowMapper, Object...)} with a {@link de.murmelmeister.murmelapi.utils.database.ProcedureRegistry#scan(String, String) plain query}
+     * to keep the memory flat for large tables.
+     * The stream holds a pooled connection until it is exhausted or closed, so it must be used in a try-with-resources block.
+     *
+     * @param name    The name of the stored procedure to be executed
+     * @param mapper  The mapper that converts each row
+     * @param objects The parameters to be applied to the stored procedure
+     * @return a stream of the mapped rows that has to be closed
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static <T> Stream<T> callStream(String name, RowMapper<T> mapper, Object... objects) {
+        return openStream(name, objects, mapper, connection -> {
+            CallableStatement statement = connection.prepareCall(getCallString(name, objects.length), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            setParameters(statement, objects);
+            return statement;
+        });
+    }
+
+    /**
+     * Executes the SQL query with a forward-only cursor and passes every mapped row to the consumer.
+     * The connection is released as soon as the consumer has seen the last row.
+     * The consumer should not issue further database calls, since the connection is still in use.
+     *
+     * @param sql      The SQL query to be executed
+     * @param mapper   The mapper that converts each row
+     * @param consumer The consumer of the mapped rows
+     * @param objects  The parameters to be set in the SQL query
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static <T> void forEach(String sql, RowMapper<T> mapper, Consumer<? super T> consumer, Object... objects) {
+        try (Stream<T> stream = stream(sql, mapper, objects)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    /**
+     * Executes the SQL query once per chunk of the values and passes every mapped row to the consumer.
+     * The placeholder {@code [IN]} in the query is replaced with the parameters of a chunk, for example {@code WHERE ID IN ([IN])}.
+     * A chunk is padded to a power of two by repeating its last value, so only a few distinct statements reach the server.
+     *
+     * @param sql      The SQL query with the placeholder {@code [IN]}
+     * @param values   The values of the list, duplicates should be removed beforehand
+     * @param mapper   The mapper that converts each row
+     * @param consumer The consumer of the mapped rows
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static <T> void forEachIn(String sql, Object[] values, RowMapper<T> mapper, Consumer<? super T> consumer) {
+        for (int start = 0; start < values.length; start += IN_CHUNK_SIZE) {
+            int length = Math.min(IN_CHUNK_SIZE, values.length - start);
+            int padded = Integer.bitCount(length) == 1 ? length : Integer.highestOneBit(length) << 1;
+            Object[] chunk = new Object[padded];
+            System.arraycopy(values, start, chunk, 0, length);
+            Arrays.fill(chunk, length, padded, values[start + length - 1]);
+            forEach(sql.replace("[IN]", "?, ".repeat(padded - 1) + "?"), mapper, consumer, chunk);
+        }
+    }
+
+    /**
+     * Executes the stored procedure and passes every mapped row to the consumer.
+     * The whole result is buffered by the driver, see {@link #callStream(String, RowMapper, Object...)}.
+     * The connection is released as soon as the consumer has seen the last row.
+     * The consumer should not issue further database calls, since the connection is still in use.
+     *
+     * @param name     The name of the stored procedure to be executed
+     * @param mapper   The mapper that converts each row
+     * @param consumer The consumer of the mapped rows
+     * @param objects  The parameters to be applied to the stored procedure
+     * @throws RuntimeException if a database query error occurs
+     */
+    public static <T> void callForEach(String name, RowMapper<T> mapper, Consumer<? super T> consumer, Object... objects) {
+        try (Stream<T> stream = callStream(name, mapper, objects)) {
+            stream.forEach(consumer);
         }
     }
 
@@ -287,19 +1290,11 @@ public final class Database {
      * @return {@code true} if records exist, {@code false} otherwise
      */
     public static boolean exists(String sql, Object... objects) {
-        READ_LOCK.lock();
-        try (Connection connection = DATA_SOURCE.getConnection();
-             PreparedStatement statement = getPreparedStatement(connection, sql, objects)) {
-            boolean exist = false;
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) exist = true;
-            }
-            return exist;
-        } catch (SQLException e) {
-            throw new RuntimeException("Database retrieval error", e);
-        } finally {
-            READ_LOCK.unlock();
-        }
+        return execute(false, sql, objects, "Database retrieval error", exist -> exist ? 1 : 0, connection -> {
+            try (PreparedStatement statement = getPreparedStatement(connection, sql, objects); ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        });
     }
 
     /**
@@ -310,19 +1305,11 @@ public final class Database {
      * @return {@code true} if records exist, {@code false} otherwise
      */
     public static boolean callExists(String name, Object... objects) {
-        READ_LOCK.lock();
-        try (Connection connection = DATA_SOURCE.getConnection();
-             CallableStatement statement = getCallableStatement(connection, name, objects)) {
-            boolean exist = false;
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) exist = true;
-            }
-            return exist;
-        } catch (SQLException e) {
-            throw new RuntimeException("Database retrieval error", e);
-        } finally {
-            READ_LOCK.unlock();
-        }
+        return execute(false, name, objects, "Database retrieval error", exist -> exist ? 1 : 0, connection -> {
+            try (CallableStatement statement = getCallableStatement(connection, name, objects); ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        });
     }
 
     /**
@@ -355,6 +1342,386 @@ public final class Database {
                "BEGIN\n    " + query + "\nEND;";
     }
 
+    /**
+     * Borrows a connection from the pool, or for reads possibly from the read replica, and applies the function to it.
+     * The call is recorded in the metrics under the statement, together with the time spent waiting and executing.
+     * Inside a transaction the connection of the transaction is used instead, after the collected updates are sent.
+     * In {@link ConcurrencyMode#SERIALIZED} mode the global read or write lock is held for the whole call.
+     *
+     * @param write     Whether the function modifies data
+     * @param statement The name of the stored procedure or the SQL statement for the metrics
+     * @param parameters The parameters of the statement for the metrics and the slow call log
+     * @param error     The message of the exception thrown if a database access error occurs
+     * @param rows      Counts the rows of the result for the metrics
+     * @param function  The function to apply to the connection
+     * @return the result of the function
+     * @throws RuntimeException if a database access error occurs
+     */
+    private static <T> T execute(boolean write, String statement, Object[] parameters, String error, ToLongFunction<? super T> rows, SQLFunction<T> function) {
+        TransactionScope scope = TRANSACTION.get();
+        if (scope != null) {
+            try {
+                flushWrites(scope);
+            } catch (SQLException e) {
+                throw new RuntimeException(error, e);
+            }
+            DatabaseCallEvent event = new DatabaseCallEvent();
+            event.begin();
+            return run(scope.connection, statement, parameters, error, rows, function, System.nanoTime(), 0L, event);
+        }
+        Bulkhead bulkhead = admit(statement);
+        DatabaseCallEvent event = new DatabaseCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Lock lock = acquireLock(write);
+        try {
+            long locked = System.nanoTime();
+            long lockWait = lock == null ? 0L : locked - start;
+            if (lock != null) METRICS.recordLockWait(lockWait);
+            Connection connection;
+            try {
+                connection = getDataSource(write).getConnection();
+            } catch (SQLException e) {
+                CIRCUIT_BREAKER.recordFailure(e);
+                METRICS.recordCall(statement, System.nanoTime() - start, 0, true);
+                event.commit(statement, parameters.length, 0, lockWait, true);
+                SLOW_CALLS.record(statement, parameters, System.nanoTime() - start, true);
+                throw new RuntimeException(error, e);
+            }
+            METRICS.recordConnectionWait(System.nanoTime() - locked);
+            try (connection) {
+                applyTimeout(connection, write);
+                return run(connection, statement, parameters, error, rows, function, start, lockWait, event);
+            } catch (SQLException e) {
+                throw new RuntimeException(error, e);
+            }
+        } finally {
+            if (write) markWrite();
+            if (lock != null) lock.unlock();
+            if (bulkhead != null) bulkhead.release();
+        }
+    }
+
+    /**
+     * Applies the function to the connection and records the call in the metrics, as a flight recorder event
+     * and in the slow call log if it took longer than its threshold.
+     *
+     * @param connection The connection to use
+     * @param statement  The name of the stored procedure or the SQL statement for the metrics
+     * @param parameters The parameters of the statement
+     * @param error      The message of the exception if the function fails
+     * @param rows       Counts the rows of the result for the metrics
+     * @param function   The function to apply
+     * @param start      The start of the call in nanoseconds, including waiting
+     * @param lockWait   The time spent waiting on the internal lock in nanoseconds
+     * @param event      The started flight recorder event of the call
+     * @return the result of the function
+     */
+    private static <T> T run(Connection connection, String statement, Object[] parameters, String error, ToLongFunction<? super T> rows,
+                             SQLFunction<T> function, long start, long lockWait, DatabaseCallEvent event) {
+        CALL_COUNT.get()[0]++;
+        long executing = System.nanoTime();
+        long count = 0;
+        boolean failed = true;
+        try {
+            T result;
+            try {
+                result = function.apply(connection);
+            } catch (SQLException e) {
+                // Another server drops and creates a changed procedure, it is missing for a moment in between
+                if (e.getErrorCode() != ER_SP_DOES_NOT_EXIST) throw e;
+                sleep(PROCEDURE_RETRY_MILLIS);
+                result = function.apply(connection);
+            }
+            count = rows.applyAsLong(result);
+            failed = false;
+            CIRCUIT_BREAKER.recordSuccess();
+            return result;
+        } catch (SQLException e) {
+            CIRCUIT_BREAKER.recordFailure(e);
+            throw new RuntimeException(error, e);
+        } finally {
+            long end = System.nanoTime();
+            METRICS.recordExecution(end - executing);
+            METRICS.recordCall(statement, end - start, count, failed);
+            event.commit(statement, parameters.length, count, lockWait, failed);
+            SLOW_CALLS.record(statement, parameters, end - start, failed);
+        }
+    }
+
+    /**
+     * Selects the data source for a call outside a transaction.
+     * Reads go to the read replica if one is connected and the current thread has not written within the read-your-writes window.
+     *
+     * @param write Whether the call writes to the database
+     * @return the data source to borrow the connection from
+     */
+    private static HikariDataSource getDataSource(boolean write) {
+        HikariDataSource replica = readDataSource;
+        if (write || replica == null) return DATA_SOURCE;
+        Long lastWrite = LAST_WRITE.get();
+        if (lastWrite != null && System.nanoTime() - lastWrite < readYourWritesWindow) return DATA_SOURCE;
+        return replica;
+    }
+
+    /**
+     * Remembers the time of the last write of the current thread for the read-your-writes window.
+     */
+    private static void markWrite() {
+        if (readDataSource != null) LAST_WRITE.set(System.nanoTime());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads an integer column of all remaining rows into an array that grows by doubling.
+     *
+     * @param resultSet The result set to read
+     * @param label     The label of the column to read
+     * @return an array with exactly one value per row
+     * @throws SQLException If the column cannot be read
+     */
+    private static int[] readInts(ResultSet resultSet, String label) throws SQLException {
+        int column = resultSet.findColumn(label);
+        int[] values = new int[16];
+        int size = 0;
+        while (resultSet.next()) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = resultSet.getInt(column);
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Reads a long column of all remaining rows into an array that grows by doubling.
+     *
+     * @param resultSet The result set to read
+     * @param label     The label of the column to read
+     * @return an array with exactly one value per row
+     * @throws SQLException If the column cannot be read
+     */
+    private static long[] readLongs(ResultSet resultSet, String label) throws SQLException {
+        int column = resultSet.findColumn(label);
+        long[] values = new long[16];
+        int size = 0;
+        while (resultSet.next()) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = resultSet.getLong(column);
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Collects an update without a result if the current thread is inside a transaction.
+     *
+     * @param call    Whether the statement is a stored procedure call
+     * @param sql     The SQL statement or the name of the stored procedure
+     * @param objects The parameters of the statement
+     * @return true if the update was collected, false if it has to be executed right away
+     */
+    private static boolean deferWrite(boolean call, String sql, Object[] objects) {
+        TransactionScope scope = TRANSACTION.get();
+        if (scope == null) return false;
+        scope.pending.add(new PendingWrite(call, sql, objects));
+        return true;
+    }
+
+    /**
+     * Sends the collected updates of the transaction in order.
+     * Consecutive updates of the same statement are sent as one batch.
+     *
+     * @param scope The transaction scope
+     * @throws SQLException If a database access error occurs
+     */
+    private static void flushWrites(TransactionScope scope) throws SQLException {
+        List<PendingWrite> pending = scope.pending;
+        if (pending.isEmpty()) return;
+        try {
+            int start = 0;
+            while (start < pending.size()) {
+                PendingWrite first = pending.get(start);
+                CALL_COUNT.get()[0]++;
+                DatabaseCallEvent event = new DatabaseCallEvent();
+                event.begin();
+                long begin = System.nanoTime();
+                boolean failed = true;
+                int end = start + 1;
+                while (end < pending.size() && pending.get(end).isSameStatement(first)) end++;
+                try (PreparedStatement statement = first.call()
+                        ? scope.connection.prepareCall(getCallString(first.sql(), first.objects().length))
+                        : scope.connection.prepareStatement(first.sql())) {
+                    if (end - start == 1) {
+                        setParameters(statement, first.objects());
+                        statement.executeUpdate();
+                    } else {
+                        List<Object[]> rows = new ArrayList<>(end - start);
+                        for (int i = start; i < end; i++) rows.add(pending.get(i).objects());
+                        executeBatch(scope.connection, statement, rows);
+                    }
+                    failed = false;
+                } finally {
+                    long duration = System.nanoTime() - begin;
+                    METRICS.recordExecution(duration);
+                    METRICS.recordCall(first.sql(), duration, failed ? 0 : end - start, failed);
+                    event.commit(first.sql(), first.objects().length, failed ? 0 : end - start, 0L, failed);
+                    SLOW_CALLS.record(first.sql(), first.objects(), duration, failed);
+                }
+                start = end;
+            }
+        } finally {
+            pending.clear();
+        }
+    }
+
+    /**
+     * Lets a call pass the circuit breaker and the bulkhead of its subsystem.
+     *
+     * @param statement The name of the stored procedure or the SQL statement
+     * @return the bulkhead whose permit has to be released after the call, or null
+     * @throws DatabaseUnavailableException if the breaker is open or the bulkhead is full
+     */
+    private static Bulkhead admit(String statement) {
+        return admit(statement, SUBSYSTEMS.getOrDefault(statement, Subsystem.CORE));
+    }
+
+    /**
+     * Lets a call of a known subsystem pass the circuit breaker and the bulkhead of the subsystem.
+     *
+     * @param statement The name of the call for the exceptions
+     * @param subsystem The subsystem of the call, or null if it has none
+     * @return the bulkhead whose permit has to be released after the call, or null
+     * @throws DatabaseUnavailableException if the breaker is open or the bulkhead is full
+     */
+    private static Bulkhead admit(String statement, Subsystem subsystem) {
+        Bulkhead bulkhead = subsystem == null ? null : BULKHEADS.get(subsystem);
+        if (bulkhead != null) bulkhead.acquire(statement);
+        try {
+            CIRCUIT_BREAKER.acquirePermission(statement);
+        } catch (DatabaseUnavailableException e) {
+            if (bulkhead != null) bulkhead.release();
+            throw e;
+        }
+        return bulkhead;
+    }
+
+    private static void applyTimeout(Connection connection, boolean write) throws SQLException {
+        int timeout = write ? writeTimeout : readTimeout;
+        // The pool restores the network timeout when the connection is returned
+        if (timeout > 0) connection.setNetworkTimeout(Runnable::run, timeout);
+    }
+
+    /**
+     * Acquires the global read or write lock if the {@link ConcurrencyMode#SERIALIZED} mode is active.
+     *
+     * @param write Whether the caller modifies data
+     * @return the acquired lock that has to be unlocked, or {@code null} if no lock is needed
+     */
+    private static Lock acquireLock(boolean write) {
+        if (concurrencyMode != ConcurrencyMode.SERIALIZED) return null;
+        Lock lock = write ? WRITE_LOCK : READ_LOCK;
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     * Borrows a connection, opens the statement and executes it, then wraps the result set into a lazy stream.
+     *
+     * @param name   The name of the stored procedure or the SQL statement for the metrics
+     * @param parameters The parameters of the statement for the metrics and the slow call log
+     * @param mapper The mapper that converts each row
+     * @param opener The function that prepares the statement on the borrowed connection
+     * @return a stream of the mapped rows that releases the connection when it is exhausted or closed,
+     * inside a transaction the connection stays open for the transaction
+     * @throws RuntimeException if a database query error occurs
+     */
+    private static <T> Stream<T> openStream(String name, Object[] parameters, RowMapper<T> mapper, SQLFunction<PreparedStatement> opener) {
+        TransactionScope scope = TRANSACTION.get();
+        // The permit of the bulkhead is held until the stream is closed, like the connection
+        Bulkhead bulkhead = scope == null ? admit(name) : null;
+        CALL_COUNT.get()[0]++;
+        DatabaseCallEvent event = new DatabaseCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Lock lock = scope == null ? acquireLock(false) : null;
+        long lockWait = lock == null ? 0L : System.nanoTime() - start;
+        if (lock != null) METRICS.recordLockWait(lockWait);
+        Cursor<T> cursor = new Cursor<>(name, parameters, mapper, lock, bulkhead, start, lockWait, event);
+        try {
+            Connection connection;
+            if (scope == null) {
+                connection = cursor.connection = getDataSource(false).getConnection();
+                applyTimeout(connection, false);
+            } else {
+                flushWrites(scope);
+                connection = scope.connection;
+            }
+            cursor.statement = opener.apply(connection);
+            cursor.statement.setFetchSize(fetchSize);
+            cursor.resultSet = cursor.statement.executeQuery();
+        } catch (SQLException e) {
+            CIRCUIT_BREAKER.recordFailure(e);
+            cursor.failed = true;
+            cursor.close();
+            throw new RuntimeException("Database streaming error", e);
+        }
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    /**
+     * Adds the rows to the batch of the statement and executes it in chunks of {@link #getBatchSize()} rows.
+     * Every chunk is committed on its own, the auto-commit mode of the connection is restored afterward.
+     * If the connection belongs to a transaction, the chunks are left to the commit of the transaction.
+     *
+     * @param connection The connection the statement belongs to
+     * @param statement  The statement to execute
+     * @param rows       The parameters of the statement, one array per row
+     * @return the number of executed rows
+     * @throws SQLException If a database access error occurs, the current chunk is rolled back
+     */
+    private static int executeBatch(Connection connection, PreparedStatement statement, List<Object[]> rows) throws SQLException {
+        int size = batchSize;
+        boolean autoCommit = connection.getAutoCommit();
+        if (!autoCommit) {
+            for (int from = 0; from < rows.size(); from += size) {
+                for (Object[] row : rows.subList(from, Math.min(from + size, rows.size()))) {
+                    setParameters(statement, row);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return rows.size();
+        }
+        connection.setAutoCommit(false);
+        try {
+            int pending = 0;
+            for (Object[] row : rows) {
+                setParameters(statement, row);
+                statement.addBatch();
+                if (++pending == size) {
+                    statement.executeBatch();
+                    connection.commit();
+                    pending = 0;
+                }
+            }
+            if (pending != 0) {
+                statement.executeBatch();
+                connection.commit();
+            }
+            return rows.size();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
     /**
      * Constructs a SQL query for a stored procedure call.
      *
@@ -381,16 +1748,37 @@ public final class Database {
      * @throws SQLException If a database access error occurs or this method is called on a closed connection.
      */
     private static CallableStatement getCallableStatement(Connection connection, String name, Object... objects) throws SQLException {
-        StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < objects.length; i++) {
-            if (i != 0) builder.append(",");
-            builder.append("?");
-        }
-        CallableStatement statement = connection.prepareCall("{CALL " + name + "(" + builder + ")}");
+        CallableStatement statement = connection.prepareCall(getCallString(name, objects.length));
         setParameters(statement, objects);
         return statement;
     }
 
+    /**
+     * Obtains the JDBC call string for a stored procedure with the given arity.
+     * The strings are built once per procedure name and arity and are reused afterward,
+     * which also lets the statement cache of the driver match them.
+     *
+     * @param name  The name of the stored procedure
+     * @param arity The number of parameters of the stored procedure
+     * @return the call string in the format {@code {CALL name(?,?,...)}}
+     */
+    private static String getCallString(String name, int arity) {
+        String[] calls = CALL_STRINGS.get(name);
+        if (calls != null && arity < calls.length && calls[arity] != null) return calls[arity];
+        return CALL_STRINGS.compute(name, (key, current) -> {
+            String[] value = current == null ? new String[arity + 1] : Arrays.copyOf(current, Math.max(current.length, arity + 1));
+            if (value[arity] == null) {
+                StringBuilder builder = new StringBuilder("{CALL ").append(key).append('(');
+                for (int i = 0; i < arity; i++) {
+                    if (i != 0) builder.append(',');
+                    builder.append('?');
+                }
+                value[arity] = builder.append(")}").toString();
+            }
+            return value;
+        })[arity];
+    }
+
     /**
      * Creates a PreparedStatement for the given SQL query and sets the provided parameters.
      *
@@ -437,9 +1825,138 @@ public final class Database {
                 case URL value -> statement.setURL(i + 1, value);
                 case RowId value -> statement.setRowId(i + 1, value);
                 case SQLXML value -> statement.setSQLXML(i + 1, value);
-                case UUID value -> statement.setString(i + 1, value.toString());
+                case UUID value -> {
+                    if (uuidStorage == UuidStorage.BINARY) statement.setBytes(i + 1, UuidCodec.toBytes(value));
+                    else statement.setString(i + 1, value.toString());
+                }
                 case null, default -> statement.setObject(i + 1, object);
             }
         }
     }
+
+    /**
+     * Reads a column as the type, UUIDs are read from text and binary columns alike.
+     *
+     * @param resultSet The result set positioned on the row
+     * @param label     The label of the column
+     * @param type      The type of the value
+     * @return the value of the column
+     * @throws SQLException If the column cannot be read
+     */
+    private static <T> T getValue(ResultSet resultSet, String label, Class<T> type) throws SQLException {
+        if (type == UUID.class) return type.cast(UuidCodec.read(resultSet, label));
+        return resultSet.getObject(label, type);
+    }
+
+    /**
+     * A function that works on a database connection and may throw an {@link SQLException}.
+     *
+     * @param <T> The type of the result
+     */
+    @FunctionalInterface
+    private interface SQLFunction<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * The state of the transaction of a thread.
+     */
+    private static final class TransactionScope {
+        private final Connection connection;
+        private final Transaction transaction = new Transaction();
+        private final List<PendingWrite> pending = new ArrayList<>();
+
+        private TransactionScope(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * An update without a result that waits to be sent with the next flush of its transaction.
+     *
+     * @param call    Whether the statement is a stored procedure call
+     * @param sql     The SQL statement or the name of the stored procedure
+     * @param objects The parameters of the statement
+     */
+    private record PendingWrite(boolean call, String sql, Object[] objects) {
+        private boolean isSameStatement(PendingWrite other) {
+            return call == other.call && objects.length == other.objects.length && sql.equals(other.sql);
+        }
+    }
+
+    /**
+     * A forward-only cursor over a result set that owns its statement, connection and lock.
+     * The call is recorded in the metrics and as a flight recorder event when the cursor is closed.
+     * Inside a transaction the cursor has no connection of its own and leaves the connection open.
+     * All resources are released once the last row has been read or the cursor is closed.
+     *
+     * @param <T> The type of the mapped rows
+     */
+    private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final String name;
+        private final Object[] parameters;
+        private final RowMapper<T> mapper;
+        private final Lock lock;
+        private final Bulkhead bulkhead;
+        private final long start;
+        private final long lockWait;
+        private final DatabaseCallEvent event;
+        private Connection connection;
+        private PreparedStatement statement;
+        private ResultSet resultSet;
+        private long rows;
+        private boolean failed;
+        private boolean closed;
+
+        private Cursor(String name, Object[] parameters, RowMapper<T> mapper, Lock lock, Bulkhead bulkhead, long start, long lockWait, DatabaseCallEvent event) {
+            // Mappers may return null, for example for a NULL column
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.name = name;
+            this.parameters = parameters;
+            this.mapper = mapper;
+            this.lock = lock;
+            this.bulkhead = bulkhead;
+            this.start = start;
+            this.lockWait = lockWait;
+            this.event = event;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) return false;
+            try {
+                if (!resultSet.next()) {
+                    close();
+                    return false;
+                }
+                rows++;
+                action.accept(mapper.map(resultSet));
+                return true;
+            } catch (SQLException e) {
+                failed = true;
+                close();
+                throw new RuntimeException("Database streaming error", e);
+            }
+        }
+
+        private void close() {
+            if (closed) return;
+            closed = true;
+            Connection connection = this.connection;
+            PreparedStatement statement = this.statement;
+            ResultSet resultSet = this.resultSet;
+            try (connection; statement; resultSet) {
+                // Closes the result set, the statement and the connection in this order, null resources are skipped
+            } catch (SQLException e) {
+                throw new RuntimeException("Database closing error", e);
+            } finally {
+                if (lock != null) lock.unlock();
+                if (bulkhead != null) bulkhead.release();
+                long duration = System.nanoTime() - start;
+                METRICS.recordCall(name, duration, rows, failed);
+                event.commit(name, parameters.length, rows, lockWait, failed);
+                SLOW_CALLS.record(name, parameters, duration, failed);
+            }
+        }
+    }
 }
@@ -0,0 +1,184 @@
+package de.murmelmeister.murmelapi.utils;
+
+/**
+ * Hash map from primitive int keys to objects, for example from user ids to usernames.
+ * The keys are stored in an open-addressing table without boxing, lookups do not allocate.
+ * Null values are not allowed.
+ * (Not thread-safe)
+ *
+ * @param <V> The type of the values
+ */
+public final class IntObjectMap<V> {
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Creates an empty map.
+     */
+    public IntObjectMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map that holds the expected number of entries without growing.
+     *
+     * @param expectedSize The expected number of entries
+     */
+    public IntObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Obtains the value of a key.
+     *
+     * @param key The key
+     * @return the value, or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        for (int index = index(key); values[index] != null; index = (index + 1) & mask)
+            if (keys[index] == key) return (V) values[index];
+        return null;
+    }
+
+    /**
+     * Obtains the value of a key or a default value.
+     *
+     * @param key          The key
+     * @param defaultValue The value returned if the key is not in the map
+     * @return the value, or the default value if the key is not in the map
+     */
+    public V getOrDefault(int key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Checks whether the map contains a key.
+     *
+     * @param key The key
+     * @return true if the key is in the map, otherwise false
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @param key   The key
+     * @param value The value, must not be null
+     * @return the previous value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) throw new NullPointerException("value");
+        int index = index(key);
+        for (; values[index] != null; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+        }
+        keys[index] = key;
+        values[index] = value;
+        // The load factor stays at most one half, so probe sequences stay short
+        if (++size * 2 > keys.length) grow();
+        return null;
+    }
+
+    /**
+     * Obtains the number of entries.
+     *
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the map is empty.
+     *
+     * @return true if the map has no entries, otherwise false
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Obtains all keys.
+     *
+     * @return a new array of the keys in no particular order
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null) result[count++] = keys[i];
+        return result;
+    }
+
+    /**
+     * Passes every entry to the consumer, in no particular order.
+     *
+     * @param consumer The consumer of the entries
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null) consumer.accept(keys[i], (V) values[i]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (builder.length() > 1) builder.append(", ");
+            builder.append(key).append('=').append(value);
+        });
+        return builder.append('}').toString();
+    }
+
+    private int index(int key) {
+        // Spreads sequential ids over the table
+        int hash = key * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int index = index(oldKeys[i]);
+            while (values[index] != null) index = (index + 1) & mask;
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+
+    /**
+     * Consumer of the entries of an {@link IntObjectMap}.
+     *
+     * @param <V> The type of the values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Accepts an entry.
+         *
+         * @param key   The key
+         * @param value The value
+         */
+        void accept(int key, V value);
+    }
+}
@@ -0,0 +1,201 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import de.murmelmeister.murmelapi.utils.Database;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous view of the {@link Database}.
+ * Every call runs on its own virtual thread, the number of calls that run at the same time is bounded by a semaphore
+ * sized to the connection pool, so waiting virtual threads do not stampede the pool for connections.
+ * The {@link Database} resizes the semaphore when the pool is reconfigured and closes the view on disconnect.
+ * A call that is submitted by a running call of the same view runs directly on the thread of the running call with its permit,
+ * so a call that waits for a nested call cannot hold every permit while the nested call waits for one.
+ * (Thread-safe)
+ */
+public final class AsyncDatabase {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final ThreadLocal<Boolean> holdsPermit = new ThreadLocal<>();
+    private int maxConcurrentCalls;
+    // Permits that are not released again once the running calls finish, after the limit was lowered
+    private int excessPermits;
+
+    /**
+     * Creates a new asynchronous view.
+     *
+     * @param maxConcurrentCalls The number of calls that may run at the same time, usually the size of the connection pool
+     */
+    public AsyncDatabase(int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) throw new IllegalArgumentException("maxConcurrentCalls must be positive");
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    /**
+     * Changes the number of calls that may run at the same time, for example after the connection pool was resized.
+     * Calls that are already running keep their permits, a smaller limit applies once enough of them have finished.
+     *
+     * @param maxConcurrentCalls The number of calls that may run at the same time, must be positive
+     */
+    public synchronized void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) throw new IllegalArgumentException("maxConcurrentCalls must be positive");
+        int difference = maxConcurrentCalls - this.maxConcurrentCalls;
+        if (difference > 0) {
+            int cancelled = Math.min(excessPermits, difference);
+            excessPermits -= cancelled;
+            permits.release(difference - cancelled);
+        } else if (difference < 0) {
+            int taken = 0;
+            while (taken < -difference && permits.tryAcquire()) taken++;
+            excessPermits += -difference - taken;
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    /**
+     * Obtains the number of calls that may run at the same time.
+     *
+     * @return the maximum number of concurrent calls
+     */
+    public synchronized int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * Stops accepting calls and waits until the running ones have finished.
+     * Calls that did not finish within the timeout are interrupted.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     */
+    public void close(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the supplier on a virtual thread once a permit is available.
+     * Called from a running call of this view, the supplier runs directly with the permit of that call.
+     *
+     * @param supplier The supplier to run, usually one or more {@link Database} calls
+     * @return a future completed with the result of the supplier
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        if (holdsPermit.get() != null) {
+            try {
+                return CompletableFuture.completedFuture(supplier.get());
+            } catch (RuntimeException | Error e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            holdsPermit.set(Boolean.TRUE);
+            try {
+                return supplier.get();
+            } finally {
+                holdsPermit.remove();
+                releasePermit();
+            }
+        }, executor);
+    }
+
+    /**
+     * Runs the action on a virtual thread once a permit is available.
+     *
+     * @param action The action to run, usually one or more {@link Database} calls
+     * @return a future completed when the action has finished
+     */
+    public CompletableFuture<Void> run(Runnable action) {
+        return supply(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link Database#query(Object, String, Class, String, Object...)}.
+     *
+     * @return a future completed with the result of the call
+     */
+    public <T> CompletableFuture<T> query(T defaultValue, String label, Class<T> type, String sql, Object... objects) {
+        return supply(() -> Database.query(defaultValue, label, type, sql, objects));
+    }
+
+    /**
+     * Asynchronous variant of {@link Database#queryList(String, Class, String, Object...)}.
+     *
+     * @return a future completed with the result of the call
+     */
+    public <T> CompletableFuture<List<T>> queryList(String label, Class<T> type, String sql, Object... objects) {
+        return supply(() -> Database.queryList(label, type, sql, objects));
+    }
+
+    /**
+     * Asynchronous variant of {@link Database#callQuery(Object, String, Class, String, Object...)}.
+     *
+     * @return a future completed with the result of the call
+     */
+    public <T> CompletableFuture<T> callQuery(T defaultValue, String label, Class<T> type, String name, Object... objects) {
+        return supply(() -> Database.callQuery(defaultValue, label, type, name, objects));
+    }
+
+    /**
+     * Asynchronous variant of {@link Database#callQueryList(String, Class, String, Object...)}.
+     *
+     * @return a future completed with the result of the call
+     */
+    public <T> CompletableFuture<List<T>> callQueryList(String label, Class<T> type, String name, Object... objects) {
+        return supply(() -> Database.callQueryList(label, type, name, objects));
+    }
+
+    /**
+     * Asynchronous variant of {@link Database#callExists(String, Object...)}.
+     *
+     * @return a future completed with the result of the call
+     */
+    public CompletableFuture<Boolean> callExists(String name, Object... objects) {
+        return supply(() -> Database.callExists(name, objects));
+    }
+
+    /**
+     * Asynchronous variant of {@link Database#callUpdate(String, Object...)}.
+     *
+     * @return a future completed when the update has finished
+     */
+    public CompletableFuture<Void> callUpdate(String name, Object... objects) {
+        return run(() -> Database.callUpdate(name, objects));
+    }
+
+    /**
+     * Asynchronous variant of {@link Database#callUpdate(Object, String, Class, String, Object...)}.
+     *
+     * @return a future completed with the result of the call
+     */
+    public <T> CompletableFuture<T> callUpdate(T defaultValue, String label, Class<T> type, String name, Object... objects) {
+        return supply(() -> Database.callUpdate(defaultValue, label, type, name, objects));
+    }
+
+    private synchronized void releasePermit() {
+        if (excessPermits > 0) excessPermits--;
+        else permits.release();
+    }
+}
@@ -0,0 +1,86 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many calls of one {@link Subsystem} run at the same time,
+ * so a slow subsystem cannot take all connections of the pool from the others.
+ * A call that does not get a permit within the maximum wait fails with a {@link DatabaseUnavailableException}.
+ * (Thread-safe)
+ */
+public final class Bulkhead {
+    private final Subsystem subsystem;
+    private final int maxConcurrentCalls;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+
+    /**
+     * Creates a new bulkhead.
+     *
+     * @param subsystem          The subsystem whose calls are limited
+     * @param maxConcurrentCalls The number of calls that may run at the same time, must be positive
+     * @param maxWait            How long a call waits for a permit, zero fails immediately
+     */
+    public Bulkhead(Subsystem subsystem, int maxConcurrentCalls, Duration maxWait) {
+        if (maxConcurrentCalls <= 0) throw new IllegalArgumentException("maxConcurrentCalls must be positive");
+        if (maxWait.isNegative()) throw new IllegalArgumentException("maxWait must not be negative");
+        this.subsystem = subsystem;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * Waits for a permit.
+     *
+     * @param statement The name of the stored procedure or the SQL statement, for the exception message
+     * @throws DatabaseUnavailableException if no permit is available within the maximum wait
+     */
+    public void acquire(String statement) {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseUnavailableException("Interrupted while waiting for the " + subsystem + " bulkhead, " + statement + " was not sent");
+        }
+        if (!acquired)
+            throw new DatabaseUnavailableException("The " + subsystem + " bulkhead is full, " + statement + " was not sent");
+    }
+
+    /**
+     * Returns a permit acquired by {@link #acquire(String)}.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Obtains the subsystem whose calls are limited.
+     *
+     * @return the subsystem
+     */
+    public Subsystem getSubsystem() {
+        return subsystem;
+    }
+
+    /**
+     * Obtains the number of calls that may run at the same time.
+     *
+     * @return the maximum number of concurrent calls
+     */
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * Obtains the number of calls that are running now.
+     *
+     * @return the number of running calls
+     */
+    public int getActiveCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+}
@@ -0,0 +1,153 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import org.slf4j.Logger;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+/**
+ * Circuit breaker of the {@link de.murmelmeister.murmelapi.utils.Database}.
+ * After a number of consecutive connection failures or timeouts the breaker opens and every call fails fast
+ * with a {@link DatabaseUnavailableException} instead of waiting for the database.
+ * Once the open duration has passed a single trial call is let through, its success closes the breaker again.
+ * Errors that prove the database answered, for example a constraint violation, count as success.
+ * (Thread-safe)
+ */
+public final class CircuitBreaker {
+    private final Logger logger;
+    private volatile int failureThreshold = 5;
+    private volatile long openNanos = Duration.ofSeconds(10).toNanos();
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    private long openedAt;
+    private boolean trialRunning;
+    private long trialStartedAt;
+
+    /**
+     * Creates a new circuit breaker.
+     *
+     * @param logger The logger to write state changes to
+     */
+    public CircuitBreaker(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Sets after how many consecutive failures the breaker opens. The default is 5.
+     *
+     * @param failureThreshold The number of failures, must be positive
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        if (failureThreshold <= 0) throw new IllegalArgumentException("failureThreshold must be positive");
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * Sets how long the breaker stays open before a trial call is let through. The default is 10 seconds.
+     *
+     * @param duration The open duration
+     */
+    public void setOpenDuration(Duration duration) {
+        if (duration.isNegative()) throw new IllegalArgumentException("duration must not be negative");
+        this.openNanos = duration.toNanos();
+    }
+
+    /**
+     * Obtains the current state.
+     *
+     * @return the state of the breaker
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Checks whether a call may be sent.
+     *
+     * @param statement The name of the stored procedure or the SQL statement, for the exception message
+     * @throws DatabaseUnavailableException if the breaker is open
+     */
+    public void acquirePermission(String statement) {
+        if (state == State.CLOSED) return;
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                trialRunning = false;
+            }
+            if (state == State.CLOSED) return;
+            // A trial that ended without a result, for example through a mapping error, does not block the breaker
+            if (state == State.HALF_OPEN && (!trialRunning || System.nanoTime() - trialStartedAt >= openNanos)) {
+                trialRunning = true;
+                trialStartedAt = System.nanoTime();
+                return;
+            }
+        }
+        throw new DatabaseUnavailableException("The database is unavailable, " + statement + " was not sent");
+    }
+
+    /**
+     * Records a call that reached the database.
+     */
+    public void recordSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) return;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            trialRunning = false;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                logger.info("Database circuit breaker closed, the database is reachable again");
+            }
+        }
+    }
+
+    /**
+     * Records a failed call, only connection failures and timeouts count against the database.
+     *
+     * @param exception The exception of the call
+     */
+    public void recordFailure(SQLException exception) {
+        if (!isUnhealthy(exception)) {
+            recordSuccess();
+            return;
+        }
+        synchronized (this) {
+            trialRunning = false;
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                logger.warn("Database circuit breaker opened after {} failures, calls fail fast for {} ms",
+                        consecutiveFailures, Duration.ofNanos(openNanos).toMillis(), exception);
+            }
+        }
+    }
+
+    private static boolean isUnhealthy(SQLException exception) {
+        String state = exception.getSQLState();
+        return exception instanceof SQLTransientConnectionException || exception instanceof SQLNonTransientConnectionException
+               || exception instanceof SQLTimeoutException || exception instanceof SQLRecoverableException
+               || (state != null && state.startsWith("08"));
+    }
+
+    /**
+     * The state of a circuit breaker.
+     */
+    public enum State {
+        /**
+         * Calls are sent.
+         */
+        CLOSED,
+        /**
+         * Calls fail fast.
+         */
+        OPEN,
+        /**
+         * A single trial call is sent, the others fail fast.
+         */
+        HALF_OPEN
+    }
+}
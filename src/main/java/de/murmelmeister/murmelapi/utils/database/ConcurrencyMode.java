@@ -0,0 +1,17 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+/**
+ * Defines how the {@link de.murmelmeister.murmelapi.utils.Database} coordinates concurrent statements.
+ */
+public enum ConcurrencyMode {
+    /**
+     * Statements run in parallel and are only bounded by the size of the connection pool.
+     * Isolation is left to the database, ordering can be requested per row with the striped table locks.
+     */
+    POOLED,
+    /**
+     * Every write holds a global fair write lock and every read holds the matching read lock,
+     * so only one write runs at a time in the whole JVM.
+     */
+    SERIALIZED
+}
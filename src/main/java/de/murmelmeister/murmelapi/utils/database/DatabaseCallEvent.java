@@ -0,0 +1,61 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event of a call of the {@link de.murmelmeister.murmelapi.utils.Database}.
+ * The event only costs a few instructions while no recording enables it.
+ * The threshold can be changed per recording, for example with
+ * {@code -XX:StartFlightRecording:de.murmelmeister.murmelapi.DatabaseCall#threshold=1ms}.
+ */
+@Name("de.murmelmeister.murmelapi.DatabaseCall")
+@Label("Database Call")
+@Category({"MurmelAPI", "Database"})
+@Description("A stored procedure call or SQL statement executed by MurmelAPI")
+@Threshold("5 ms")
+public final class DatabaseCallEvent extends Event {
+    @Label("Statement")
+    @Description("The name of the stored procedure or the SQL statement")
+    private String statement;
+
+    @Label("Arity")
+    @Description("The number of parameters of the statement")
+    private int arity;
+
+    @Label("Rows")
+    @Description("The number of rows read or written")
+    private long rows;
+
+    @Label("Lock Wait")
+    @Description("The time spent waiting on the internal lock of the database")
+    @Timespan(Timespan.NANOSECONDS)
+    private long lockWait;
+
+    @Label("Failed")
+    private boolean failed;
+
+    /**
+     * Sets the fields of the event and commits it if it is enabled and above the threshold.
+     *
+     * @param statement The name of the stored procedure or the SQL statement
+     * @param arity     The number of parameters of the statement
+     * @param rows      The number of rows read or written
+     * @param lockWait  The time spent waiting on the internal lock in nanoseconds
+     * @param failed    Whether the call failed
+     */
+    public void commit(String statement, int arity, long rows, long lockWait, boolean failed) {
+        if (!shouldCommit()) return;
+        this.statement = statement;
+        this.arity = arity;
+        this.rows = rows;
+        this.lockWait = lockWait;
+        this.failed = failed;
+        commit();
+    }
+}
@@ -0,0 +1,229 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of the {@link de.murmelmeister.murmelapi.utils.Database}.
+ * Every statement, usually a stored procedure, gets its own call, error and row counters and a latency histogram.
+ * The time spent waiting on the internal lock, waiting for a pooled connection and executing is recorded separately for all statements.
+ * Recording only uses atomic counters, so the metrics can stay enabled in production.
+ * (Thread-safe)
+ */
+public final class DatabaseMetrics {
+    private final Map<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+    private final LatencyHistogram connectionWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+    private final Supplier<PoolSnapshot> pool;
+    private volatile boolean enabled = true;
+    private ScheduledExecutorService reporter;
+    private ScheduledFuture<?> report;
+
+    /**
+     * Creates new metrics.
+     *
+     * @param pool The supplier of the current state of the connection pool
+     */
+    public DatabaseMetrics(Supplier<PoolSnapshot> pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Enables or disables the recording. It is enabled by default.
+     *
+     * @param enabled Whether calls should be recorded
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Checks whether calls are recorded.
+     *
+     * @return true if calls are recorded, otherwise false
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a finished call of a statement.
+     *
+     * @param statement The name of the stored procedure or the SQL statement
+     * @param nanos     The duration of the whole call, including waiting
+     * @param rows      The number of rows read or written
+     * @param error     Whether the call failed
+     */
+    public void recordCall(String statement, long nanos, long rows, boolean error) {
+        if (!enabled) return;
+        StatementMetrics metrics = statements.computeIfAbsent(statement, key -> new StatementMetrics());
+        metrics.calls.increment();
+        if (error) metrics.errors.increment();
+        if (rows > 0) metrics.rows.add(rows);
+        metrics.latency.record(nanos);
+    }
+
+    /**
+     * Records the time spent waiting on the internal lock.
+     *
+     * @param nanos The waiting time
+     */
+    public void recordLockWait(long nanos) {
+        if (enabled) lockWait.record(nanos);
+    }
+
+    /**
+     * Records the time spent waiting for a connection from the pool.
+     *
+     * @param nanos The waiting time
+     */
+    public void recordConnectionWait(long nanos) {
+        if (enabled) connectionWait.record(nanos);
+    }
+
+    /**
+     * Records the time spent executing a statement and reading its results.
+     *
+     * @param nanos The execution time
+     */
+    public void recordExecution(long nanos) {
+        if (enabled) execution.record(nanos);
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        statements.clear();
+        lockWait.reset();
+        connectionWait.reset();
+        execution.reset();
+    }
+
+    /**
+     * Takes a snapshot of all metrics.
+     *
+     * @return the snapshot, the statements are sorted by their name
+     */
+    public Snapshot snapshot() {
+        List<String> names = new ArrayList<>(statements.keySet());
+        Collections.sort(names);
+        Map<String, StatementSnapshot> result = new LinkedHashMap<>();
+        for (String name : names) {
+            StatementMetrics metrics = statements.get(name);
+            if (metrics != null) result.put(name, metrics.snapshot(name));
+        }
+        return new Snapshot(Collections.unmodifiableMap(result), lockWait.snapshot(), connectionWait.snapshot(), execution.snapshot(), pool.get());
+    }
+
+    /**
+     * Logs a summary of the metrics periodically until {@link #stopReporting()} is called.
+     * A running report is replaced.
+     *
+     * @param logger   The logger to write the summary to
+     * @param interval The time between two summaries
+     * @param top      The number of statements with the highest total time that are listed
+     */
+    public synchronized void startReporting(Logger logger, Duration interval, int top) {
+        stopReporting();
+        if (reporter == null) reporter = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("MurmelAPI-Database-Metrics").daemon().factory());
+        long millis = interval.toMillis();
+        report = reporter.scheduleAtFixedRate(() -> log(logger, top), millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic summary.
+     */
+    public synchronized void stopReporting() {
+        if (report != null) report.cancel(false);
+        report = null;
+    }
+
+    /**
+     * Logs a summary of the metrics once.
+     *
+     * @param logger The logger to write the summary to
+     * @param top    The number of statements with the highest total time that are listed
+     */
+    public void log(Logger logger, int top) {
+        Snapshot snapshot = snapshot();
+        logger.info("Database: pool={} lockWait=[{}] connectionWait=[{}] execution=[{}]",
+                snapshot.pool(), snapshot.lockWait(), snapshot.connectionWait(), snapshot.execution());
+        snapshot.statements().values().stream()
+                .sorted(Comparator.comparingLong((StatementSnapshot statement) -> statement.latency().totalNanos()).reversed())
+                .limit(top)
+                .forEach(statement -> logger.info("Database: {}", statement));
+    }
+
+    private static final class StatementMetrics {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private StatementSnapshot snapshot(String name) {
+            return new StatementSnapshot(name, calls.sum(), errors.sum(), rows.sum(), latency.snapshot());
+        }
+    }
+
+    /**
+     * Snapshot of the metrics of one statement.
+     *
+     * @param name    The name of the stored procedure or the SQL statement
+     * @param calls   The number of calls
+     * @param errors  The number of failed calls
+     * @param rows    The number of rows read or written
+     * @param latency The latencies of the calls
+     */
+    public record StatementSnapshot(String name, long calls, long errors, long rows, LatencySnapshot latency) {
+        @Override
+        public String toString() {
+            return name + " calls=" + calls + " errors=" + errors + " rows=" + rows + " " + latency;
+        }
+    }
+
+    /**
+     * Snapshot of the state of the connection pool.
+     *
+     * @param active   The number of borrowed connections
+     * @param idle     The number of idle connections
+     * @param total    The number of open connections
+     * @param awaiting The number of threads waiting for a connection
+     */
+    public record PoolSnapshot(int active, int idle, int total, int awaiting) {
+        public static final PoolSnapshot EMPTY = new PoolSnapshot(0, 0, 0, 0);
+
+        @Override
+        public String toString() {
+            return "active=" + active + " idle=" + idle + " total=" + total + " awaiting=" + awaiting;
+        }
+    }
+
+    /**
+     * Snapshot of all metrics.
+     *
+     * @param statements     The metrics of every statement by name
+     * @param lockWait       The time spent waiting on the internal lock
+     * @param connectionWait The time spent waiting for a connection from the pool
+     * @param execution      The time spent executing statements
+     * @param pool           The state of the connection pool
+     */
+    public record Snapshot(Map<String, StatementSnapshot> statements, LatencySnapshot lockWait,
+                           LatencySnapshot connectionWait, LatencySnapshot execution, PoolSnapshot pool) {
+    }
+}
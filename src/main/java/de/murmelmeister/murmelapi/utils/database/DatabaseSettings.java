@@ -0,0 +1,194 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import de.murmelmeister.murmelapi.configuration.MurmelConfiguration;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Settings of the connection pool and the JDBC driver used by {@link de.murmelmeister.murmelapi.utils.Database#connect(DatabaseSettings)}.
+ * All durations are in milliseconds, a value of 0 disables the corresponding feature where the pool allows it.
+ *
+ * @param url                    The JDBC URL of the database
+ * @param user                   The username for the database
+ * @param password               The password for the database
+ * @param maximumPoolSize        The maximum number of connections in the pool
+ * @param minimumIdle            The minimum number of idle connections kept in the pool
+ * @param connectionTimeout      How long a caller waits for a connection from the pool
+ * @param idleTimeout            How long a connection above {@code minimumIdle} may stay idle, 0 keeps it forever
+ * @param maxLifetime            The maximum lifetime of a connection, 0 means infinite
+ * @param keepaliveTime          How often an idle connection is kept alive, 0 disables keepalive
+ * @param leakDetectionThreshold How long a connection may be borrowed before a leak is logged, 0 disables leak detection
+ * @param statementCache         Whether the driver should cache prepared and callable statements
+ * @param statementCacheSize     The number of statements cached per connection
+ * @param statementCacheSqlLimit The maximum length of an SQL statement that is still cached
+ * @param driverProperties       Additional properties of the JDBC driver
+ */
+public record DatabaseSettings(String url, String user, String password,
+                               int maximumPoolSize, int minimumIdle,
+                               long connectionTimeout, long idleTimeout, long maxLifetime,
+                               long keepaliveTime, long leakDetectionThreshold,
+                               boolean statementCache, int statementCacheSize, int statementCacheSqlLimit,
+                               Map<String, String> driverProperties) {
+    public static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+    public static final long DEFAULT_CONNECTION_TIMEOUT = 30000L;
+    public static final long DEFAULT_IDLE_TIMEOUT = 600000L;
+    public static final long DEFAULT_MAX_LIFETIME = 1800000L;
+    public static final long DEFAULT_KEEPALIVE_TIME = 120000L;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 250;
+    public static final int DEFAULT_STATEMENT_CACHE_SQL_LIMIT = 2048;
+    private static final Pattern URL_SECRET = Pattern.compile("(?i)([?&;][^=&;]*password=)[^&;]*");
+
+    public DatabaseSettings {
+        if (url == null || url.isBlank()) throw new IllegalArgumentException("url must not be empty");
+        if (maximumPoolSize < 1) throw new IllegalArgumentException("maximumPoolSize must be at least 1");
+        if (minimumIdle < 0 || minimumIdle > maximumPoolSize)
+            throw new IllegalArgumentException("minimumIdle must be between 0 and maximumPoolSize");
+        if (connectionTimeout < 250) throw new IllegalArgumentException("connectionTimeout must be at least 250ms");
+        if (idleTimeout != 0 && idleTimeout < 10000) throw new IllegalArgumentException("idleTimeout must be 0 or at least 10000ms");
+        if (maxLifetime != 0 && maxLifetime < 30000) throw new IllegalArgumentException("maxLifetime must be 0 or at least 30000ms");
+        if (keepaliveTime != 0 && (keepaliveTime < 30000 || (maxLifetime != 0 && keepaliveTime >= maxLifetime)))
+            throw new IllegalArgumentException("keepaliveTime must be 0 or at least 30000ms and less than maxLifetime");
+        if (leakDetectionThreshold != 0 && (leakDetectionThreshold < 2000 || (maxLifetime != 0 && leakDetectionThreshold >= maxLifetime)))
+            throw new IllegalArgumentException("leakDetectionThreshold must be 0 or at least 2000ms and less than maxLifetime");
+        if (statementCacheSize < 0) throw new IllegalArgumentException("statementCacheSize must not be negative");
+        if (statementCacheSqlLimit < 0) throw new IllegalArgumentException("statementCacheSqlLimit must not be negative");
+        driverProperties = driverProperties == null ? Map.of() : Map.copyOf(driverProperties);
+    }
+
+    /**
+     * Creates settings with the default pool and driver options.
+     *
+     * @param url      The JDBC URL of the database
+     * @param user     The username for the database
+     * @param password The password for the database
+     * @return the settings with the default options
+     */
+    public static DatabaseSettings of(String url, String user, String password) {
+        return new DatabaseSettings(url, user, password, DEFAULT_MAXIMUM_POOL_SIZE, DEFAULT_MAXIMUM_POOL_SIZE,
+                DEFAULT_CONNECTION_TIMEOUT, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_LIFETIME, DEFAULT_KEEPALIVE_TIME, 0L,
+                true, DEFAULT_STATEMENT_CACHE_SIZE, DEFAULT_STATEMENT_CACHE_SQL_LIMIT, Map.of());
+    }
+
+    /**
+     * Loads the settings from a section of a configuration.
+     * The URL is either read from {@code url} or built from {@code driver}, {@code hostname}, {@code port} and {@code database}.
+     * Every other option uses the name of its record component, for example {@code maximumPoolSize}, missing options use the defaults.
+     * Driver properties are read from the subsection {@code properties}.
+     *
+     * @param config  The configuration to read from
+     * @param section The section of the database settings, for example {@code database}
+     * @return the loaded settings
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    public static DatabaseSettings fromConfiguration(MurmelConfiguration config, String section) {
+        String prefix = section == null || section.isEmpty() ? "" : section + ".";
+        String propertyPrefix = prefix + "properties.";
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (String key : config.getKeys(propertyPrefix))
+            properties.put(key.substring(propertyPrefix.length()), String.valueOf(config.get(key)));
+        return read(key -> {
+            Object value = config.get(prefix + key);
+            return value == null ? null : String.valueOf(value);
+        }, properties);
+    }
+
+    /**
+     * Loads the settings from environment variables.
+     * Every option is read from the prefix followed by the option in upper snake case, for example {@code MYSQL_MAXIMUM_POOL_SIZE}.
+     * The URL is either read from {@code URL} or built from {@code DRIVER}, {@code HOSTNAME}, {@code PORT} and {@code DATABASE}.
+     * Driver properties are read from {@code DRIVER_PROPERTIES} as a comma separated list of {@code key=value} pairs.
+     *
+     * @param prefix The prefix of the environment variables, for example {@code MYSQL}
+     * @return the loaded settings
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    public static DatabaseSettings fromEnvironment(String prefix) {
+        String start = prefix == null || prefix.isEmpty() ? "" : prefix + "_";
+        Function<String, String> source = key -> System.getenv(start + toSnakeCase(key));
+        Map<String, String> properties = new LinkedHashMap<>();
+        String list = source.apply("driverProperties");
+        if (list != null) {
+            for (String pair : list.split(",")) {
+                int index = pair.indexOf('=');
+                if (index <= 0) throw new IllegalArgumentException("Invalid driver property: " + pair);
+                properties.put(pair.substring(0, index).trim(), pair.substring(index + 1).trim());
+            }
+        }
+        return read(source, properties);
+    }
+
+    private static DatabaseSettings read(Function<String, String> source, Map<String, String> properties) {
+        String url = source.apply("url");
+        if (url == null && source.apply("hostname") != null)
+            url = String.format("jdbc:%s://%s:%s/%s", value(source, "driver", "mariadb"), source.apply("hostname"), value(source, "port", "3306"), source.apply("database"));
+        int maximumPoolSize = parseInt(source, "maximumPoolSize", DEFAULT_MAXIMUM_POOL_SIZE);
+        return new DatabaseSettings(url, source.apply("user"), source.apply("password"),
+                maximumPoolSize, parseInt(source, "minimumIdle", maximumPoolSize),
+                parseLong(source, "connectionTimeout", DEFAULT_CONNECTION_TIMEOUT),
+                parseLong(source, "idleTimeout", DEFAULT_IDLE_TIMEOUT),
+                parseLong(source, "maxLifetime", DEFAULT_MAX_LIFETIME),
+                parseLong(source, "keepaliveTime", DEFAULT_KEEPALIVE_TIME),
+                parseLong(source, "leakDetectionThreshold", 0L),
+                Boolean.parseBoolean(value(source, "statementCache", "true")),
+                parseInt(source, "statementCacheSize", DEFAULT_STATEMENT_CACHE_SIZE),
+                parseInt(source, "statementCacheSqlLimit", DEFAULT_STATEMENT_CACHE_SQL_LIMIT),
+                properties);
+    }
+
+    private static String value(Function<String, String> source, String key, String defaultValue) {
+        String value = source.apply(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    private static int parseInt(Function<String, String> source, String key, int defaultValue) {
+        return Math.toIntExact(parseLong(source, key, defaultValue));
+    }
+
+    private static long parseLong(Function<String, String> source, String key, long defaultValue) {
+        String value = source.apply(key);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " is not a number: " + value, e);
+        }
+    }
+
+    private static String toSnakeCase(String key) {
+        return key.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    /**
+     * Describes driver properties for the log, sorted by key.
+     * The values of keys that contain "password", for example {@code trustCertificateKeyStorePassword}, are hidden.
+     *
+     * @param properties The driver properties, for example the effective properties of a data source
+     * @return the description of the properties
+     */
+    public static String describeProperties(Map<?, ?> properties) {
+        Map<String, String> described = new TreeMap<>();
+        properties.forEach((key, value) -> described.put(String.valueOf(key),
+                String.valueOf(key).toLowerCase(Locale.ROOT).contains("password") ? "<hidden>" : String.valueOf(value)));
+        return described.toString();
+    }
+
+    /**
+     * Describes the effective settings without the password.
+     *
+     * @return the description of the settings
+     */
+    @Override
+    public String toString() {
+        return "DatabaseSettings[url=" + URL_SECRET.matcher(url).replaceAll("$1<hidden>") + ", user=" + user + ", password=" + (password == null ? "<none>" : "<hidden>")
+               + ", maximumPoolSize=" + maximumPoolSize + ", minimumIdle=" + minimumIdle
+               + ", connectionTimeout=" + connectionTimeout + "ms, idleTimeout=" + idleTimeout + "ms, maxLifetime=" + maxLifetime
+               + "ms, keepaliveTime=" + keepaliveTime + "ms, leakDetectionThreshold=" + leakDetectionThreshold
+               + "ms, statementCache=" + statementCache + ", statementCacheSize=" + statementCacheSize
+               + ", statementCacheSqlLimit=" + statementCacheSqlLimit + ", driverProperties=" + describeProperties(driverProperties) + "]";
+    }
+}
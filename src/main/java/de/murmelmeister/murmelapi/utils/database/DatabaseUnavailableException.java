@@ -0,0 +1,16 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.io.Serial;
+
+/**
+ * Thrown instead of sending a call while the database is considered unhealthy or a bulkhead is full.
+ * Callers can catch it to fall back to a default, see {@link de.murmelmeister.murmelapi.utils.Database#withFallback(Object, java.util.function.Supplier)}.
+ */
+public final class DatabaseUnavailableException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public DatabaseUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,89 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ * Values are counted in log-linear buckets with 16 sub-buckets per power of two,
+ * so every reported percentile is at most about 6% above the real value.
+ * Recording a value costs a few atomic increments and never allocates.
+ * (Thread-safe)
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Removes all recorded durations.
+     * Durations recorded at the same time may be lost or kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0L);
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * Takes a snapshot of the recorded durations.
+     *
+     * @return the snapshot with the count, the total, the maximum and the percentiles
+     */
+    public LatencySnapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) recorded += buckets[i] = counts.get(i);
+        long maxNanos = max.get();
+        return new LatencySnapshot(recorded, total.sum(), maxNanos,
+                percentile(buckets, recorded, 0.5, maxNanos),
+                percentile(buckets, recorded, 0.99, maxNanos),
+                percentile(buckets, recorded, 0.999, maxNanos));
+    }
+
+    private static long percentile(long[] buckets, long recorded, double quantile, long maxNanos) {
+        if (recorded == 0) return 0L;
+        long rank = (long) Math.ceil(recorded * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return Math.min(upperBound(i), maxNanos);
+        }
+        return maxNanos;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (SUB_BUCKETS + (long) (index % SUB_BUCKETS)) * width;
+        return lower + width - 1;
+    }
+}
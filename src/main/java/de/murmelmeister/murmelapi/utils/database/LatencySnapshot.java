@@ -0,0 +1,40 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of a {@link LatencyHistogram}, all durations are in nanoseconds.
+ *
+ * @param count      The number of recorded durations
+ * @param totalNanos The sum of all recorded durations
+ * @param maxNanos   The longest recorded duration
+ * @param p50Nanos   The median
+ * @param p99Nanos   The 99th percentile
+ * @param p999Nanos  The 99.9th percentile
+ */
+public record LatencySnapshot(long count, long totalNanos, long maxNanos, long p50Nanos, long p99Nanos, long p999Nanos) {
+
+    /**
+     * Calculates the mean of the recorded durations.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public long meanNanos() {
+        return count == 0 ? 0L : totalNanos / count;
+    }
+
+    /**
+     * Describes the snapshot in microseconds.
+     *
+     * @return the description of the snapshot
+     */
+    @Override
+    public String toString() {
+        return "count=" + count + " p50=" + micros(p50Nanos) + "us p99=" + micros(p99Nanos) + "us p999=" + micros(p999Nanos)
+               + "us max=" + micros(maxNanos) + "us mean=" + micros(meanNanos()) + "us";
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
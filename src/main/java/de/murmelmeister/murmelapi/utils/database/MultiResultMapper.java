@@ -0,0 +1,20 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.sql.SQLException;
+
+/**
+ * Maps all result sets of a stored procedure to one object.
+ *
+ * @param <T> The type of the mapped object
+ */
+@FunctionalInterface
+public interface MultiResultMapper<T> {
+    /**
+     * Maps the result sets.
+     *
+     * @param results The result sets of the procedure, read one after another
+     * @return the mapped object
+     * @throws SQLException If a result set cannot be read
+     */
+    T map(MultiResultSet results) throws SQLException;
+}
@@ -0,0 +1,65 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result sets of a stored procedure that selects more than once, read in the order the procedure selects them.
+ * Every result set is read completely and closed before the next one is opened, update counts in between are skipped.
+ * (Not thread-safe)
+ */
+public final class MultiResultSet {
+    private final Statement statement;
+    private boolean hasResultSet;
+    private boolean started;
+
+    /**
+     * Creates a view of the results of an executed statement.
+     *
+     * @param statement    The executed statement
+     * @param hasResultSet The return value of {@link Statement#execute(String)}, whether the first result is a result set
+     */
+    public MultiResultSet(Statement statement, boolean hasResultSet) {
+        this.statement = statement;
+        this.hasResultSet = hasResultSet;
+    }
+
+    /**
+     * Reads the next result set completely.
+     *
+     * @param mapper The mapper that converts each row
+     * @return a list of the mapped rows
+     * @throws SQLException if the statement has no more result sets or a column cannot be read
+     */
+    public <T> List<T> next(RowMapper<T> mapper) throws SQLException {
+        List<T> values = new ArrayList<>();
+        try (ResultSet resultSet = advance()) {
+            while (resultSet.next()) values.add(mapper.map(resultSet));
+        }
+        return values;
+    }
+
+    /**
+     * Reads the first row of the next result set, the other rows are skipped.
+     *
+     * @param mapper The mapper that converts the row
+     * @return the mapped row, or null if the result set is empty
+     * @throws SQLException if the statement has no more result sets or a column cannot be read
+     */
+    public <T> T nextRow(RowMapper<T> mapper) throws SQLException {
+        try (ResultSet resultSet = advance()) {
+            return resultSet.next() ? mapper.map(resultSet) : null;
+        }
+    }
+
+    private ResultSet advance() throws SQLException {
+        if (started) hasResultSet = statement.getMoreResults();
+        started = true;
+        while (!hasResultSet && statement.getUpdateCount() != -1) hasResultSet = statement.getMoreResults();
+        if (!hasResultSet) throw new SQLException("The statement has no more result sets");
+        return statement.getResultSet();
+    }
+}
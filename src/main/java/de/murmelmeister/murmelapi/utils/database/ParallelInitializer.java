@@ -0,0 +1,50 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Initializes independent providers in parallel.
+ * Every provider runs on its own platform thread, their calls are still bounded by the connection pool.
+ * Providers block on the database, on locks and on nested initializers while they are created,
+ * a virtual thread doing so inside a class initializer would pin its carrier and could starve the nested initializers.
+ * Closing the initializer waits for all started providers.
+ * (Thread-safe)
+ */
+public final class ParallelInitializer implements AutoCloseable {
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name("MurmelAPI-Init-", 0).daemon().factory());
+
+    /**
+     * Starts the initialization of a provider.
+     *
+     * @param initializer The initializer, usually the constructor of the provider
+     * @return a future completed with the initialized provider
+     */
+    public <T> CompletableFuture<T> start(Supplier<T> initializer) {
+        return CompletableFuture.supplyAsync(initializer, executor);
+    }
+
+    /**
+     * Waits for an initialization and rethrows its exception unwrapped.
+     *
+     * @param future The future returned by {@link #start(Supplier)}
+     * @return the initialized provider
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException exception) throw exception;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,347 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import de.murmelmeister.murmelapi.utils.Database;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registry of one table and its stored procedures.
+ * Providers declare their statements into the registry and create all of them with {@link #createAll()}.
+ * Only definitions whose checksum differs from the one in the {@link SchemaVersion} are sent to the database,
+ * an edited procedure is dropped and created again.
+ * Changes are applied while holding a named lock of the database server, so servers that start at the same time apply them once,
+ * and a server never replaces a definition that a newer generation of MurmelAPI applied, see {@link SchemaVersion#GENERATION}.
+ * Keys and indexes are declared with {@link #primaryKey(String)}, {@link #uniqueKey(String, String)} and {@link #index(String, String)},
+ * they are added to existing tables in place.
+ * Every procedure name is prefixed with the table name, so a provider that manages several tables gets separate procedures per table.
+ * Lookups are declared by their purpose, so the generated procedures only send what the caller reads:
+ * <ul>
+ *     <li>{@link #exists(String, String, String)} selects a constant from at most one row</li>
+ *     <li>{@link #selectColumn(String, String, String, String)} selects the read columns of at most one row</li>
+ *     <li>{@link #selectColumns(String, String, String, String)} selects the read columns of all matching rows</li>
+ *     <li>{@link #selectRow(String, String, String)} selects a whole row, at most one</li>
+ *     <li>{@link #selectRows(String, String, String)} selects all matching whole rows</li>
+ * </ul>
+ * (Not thread-safe, procedures are declared during the construction of the provider, registries of different tables may be created in parallel)
+ */
+public final class ProcedureRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcedureRegistry.class);
+    private static final String SCHEMA_LOCK = "MurmelAPI_Schema";
+    private static final Duration SCHEMA_LOCK_TIMEOUT = Duration.ofSeconds(60);
+    // Registries created in parallel take turns here, so only one pooled connection waits for the named lock
+    private static final Lock LOCAL_LOCK = new ReentrantLock();
+
+    private final String tableName;
+    private final String columns;
+    private final List<StoredProcedure> procedures = new ArrayList<>();
+    private final List<TableIndex> indexes = new ArrayList<>();
+    private Subsystem subsystem = Subsystem.CORE;
+
+    /**
+     * Creates a new registry for a table.
+     *
+     * @param tableName The name of the table, it is also the prefix of all procedure names
+     * @param columns   The column definitions and other SQL specifications of the table
+     */
+    public ProcedureRegistry(String tableName, String columns) {
+        this.tableName = tableName;
+        this.columns = columns;
+    }
+
+    /**
+     * Sets the subsystem of the procedures declared after this call, the default is {@link Subsystem#CORE}.
+     *
+     * @param subsystem The subsystem whose bulkhead limits the procedures
+     * @return this registry
+     */
+    public ProcedureRegistry subsystem(Subsystem subsystem) {
+        this.subsystem = subsystem;
+        return this;
+    }
+
+    /**
+     * Declares the primary key of a table whose column definitions have none.
+     *
+     * @param columns The comma separated columns of the key
+     * @return this registry
+     */
+    public ProcedureRegistry primaryKey(String columns) {
+        indexes.add(new TableIndex(TableIndex.PRIMARY, "PRIMARY KEY", columns));
+        return this;
+    }
+
+    /**
+     * Declares a unique key.
+     *
+     * @param name    The name of the key
+     * @param columns The comma separated columns of the key, string columns may have a prefix length
+     * @return this registry
+     */
+    public ProcedureRegistry uniqueKey(String name, String columns) {
+        indexes.add(new TableIndex(name, "UNIQUE KEY", columns));
+        return this;
+    }
+
+    /**
+     * Declares a secondary index.
+     *
+     * @param name    The name of the index
+     * @param columns The comma separated columns of the index, string columns may have a prefix length
+     * @return this registry
+     */
+    public ProcedureRegistry index(String name, String columns) {
+        indexes.add(new TableIndex(name, "INDEX", columns));
+        return this;
+    }
+
+    /**
+     * Declares a procedure with a free statement, {@code [TABLE]} is replaced with the table name.
+     *
+     * @param name  The name of the procedure without the table prefix
+     * @param input The input parameters of the procedure
+     * @param query The SQL statement of the procedure
+     * @return the declared procedure
+     */
+    public StoredProcedure statement(String name, String input, String query) {
+        return declare(name, input, query.replace("[TABLE]", tableName));
+    }
+
+    /**
+     * Declares a procedure that checks whether a matching row exists.
+     *
+     * @param name      The name of the procedure without the table prefix
+     * @param input     The input parameters of the procedure
+     * @param condition The condition of the rows
+     * @return the declared procedure
+     */
+    public StoredProcedure exists(String name, String input, String condition) {
+        return declare(name, input, "SELECT 1 FROM " + tableName + where(condition) + " LIMIT 1;");
+    }
+
+    /**
+     * Declares a procedure that selects some columns of the first matching row.
+     *
+     * @param name      The name of the procedure without the table prefix
+     * @param columns   The comma separated columns to select
+     * @param input     The input parameters of the procedure
+     * @param condition The condition of the row
+     * @return the declared procedure
+     */
+    public StoredProcedure selectColumn(String name, String columns, String input, String condition) {
+        return declare(name, input, "SELECT " + columns + " FROM " + tableName + where(condition) + " LIMIT 1;");
+    }
+
+    /**
+     * Declares a procedure that selects some columns of all matching rows.
+     *
+     * @param name      The name of the procedure without the table prefix
+     * @param columns   The comma separated columns to select
+     * @param input     The input parameters of the procedure
+     * @param condition The condition of the rows, empty selects all rows
+     * @return the declared procedure
+     */
+    public StoredProcedure selectColumns(String name, String columns, String input, String condition) {
+        return declare(name, input, "SELECT " + columns + " FROM " + tableName + where(condition) + ";");
+    }
+
+    /**
+     * Declares a procedure that selects the first matching row as a whole.
+     *
+     * @param name      The name of the procedure without the table prefix
+     * @param input     The input parameters of the procedure
+     * @param condition The condition of the row
+     * @return the declared procedure
+     */
+    public StoredProcedure selectRow(String name, String input, String condition) {
+        return selectColumn(name, "*", input, condition);
+    }
+
+    /**
+     * Declares a procedure that selects all matching rows as a whole.
+     *
+     * @param name      The name of the procedure without the table prefix
+     * @param input     The input parameters of the procedure
+     * @param condition The condition of the rows, empty selects all rows
+     * @return the declared procedure
+     */
+    public StoredProcedure selectRows(String name, String input, String condition) {
+        return selectColumns(name, "*", input, condition);
+    }
+
+    /**
+     * Declares a plain query of some columns of all matching rows for {@link Database#forEach(String, RowMapper, java.util.function.Consumer, Object...)}.
+     * Full-table scans should use it instead of a procedure, the driver only fetches the rows of a plain query with a cursor
+     * and buffers the whole result of a procedure call.
+     *
+     * @param columns   The comma separated columns to select
+     * @param condition The condition of the rows with {@code ?} parameters, empty selects all rows
+     * @return the SQL query
+     */
+    public String scan(String columns, String condition) {
+        String sql = "SELECT " + columns + " FROM " + tableName + where(condition);
+        Database.assignSubsystem(sql, subsystem);
+        return sql;
+    }
+
+    /**
+     * Creates the table, its indexes and all declared procedures whose definition changed since they were applied last.
+     * Existing tables get missing indexes added in place, other changes of the table definition are only logged.
+     * Before a primary or unique key is added, rows inserted twice are removed, the newest row of every key is kept.
+     * A secondary index that cannot be added is logged and tried again on the next start.
+     * If nothing changed, no lock is taken and nothing is sent.
+     *
+     * @throws RuntimeException if a primary or unique key cannot be added, the providers rely on it
+     */
+    public void createAll() {
+        if (getOutdated().isEmpty()) return;
+        LOCAL_LOCK.lock();
+        try {
+            Database.withNamedLock(SCHEMA_LOCK, SCHEMA_LOCK_TIMEOUT, () -> {
+                // Another server may have applied the same definitions while this one waited for the lock
+                SchemaVersion.reload();
+                apply(getOutdated());
+            });
+        } finally {
+            LOCAL_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Forgets the applied table and index definitions after the table was changed by hand,
+     * so the next {@link #createAll()} checks them against the database again.
+     */
+    public void invalidateTable() {
+        List<String> names = new ArrayList<>(indexes.size() + 1);
+        names.add("TABLE " + tableName);
+        for (TableIndex index : indexes) names.add("INDEX " + tableName + "." + index.name());
+        SchemaVersion.forget(names);
+    }
+
+    /**
+     * Obtains the name of the table of the registry.
+     *
+     * @return the name of the table
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Obtains the column definitions of the table.
+     *
+     * @return the column definitions and other SQL specifications of the table
+     */
+    public String getColumns() {
+        return columns;
+    }
+
+    /**
+     * Obtains all declared keys and indexes.
+     *
+     * @return an unmodifiable list of the indexes in declaration order
+     */
+    public List<TableIndex> getIndexes() {
+        return Collections.unmodifiableList(indexes);
+    }
+
+    /**
+     * Obtains all declared procedures.
+     *
+     * @return an unmodifiable list of the procedures in declaration order
+     */
+    public List<StoredProcedure> getProcedures() {
+        return Collections.unmodifiableList(procedures);
+    }
+
+    /**
+     * Collects the definitions of the registry that have to be applied, by their name in the schema version.
+     *
+     * @return the checksums of the outdated definitions by name, in the order they have to be applied
+     */
+    private Map<String, String> getOutdated() {
+        Map<String, String> outdated = new LinkedHashMap<>();
+        String tableKey = "TABLE " + tableName;
+        String tableChecksum = SchemaVersion.checksum(columns);
+        if (SchemaVersion.isOutdated(tableKey, tableChecksum)) outdated.put(tableKey, tableChecksum);
+        for (TableIndex index : indexes) {
+            String key = "INDEX " + tableName + "." + index.name();
+            String checksum = SchemaVersion.checksum(index.getAddQuery(tableName));
+            if (SchemaVersion.isOutdated(key, checksum)) outdated.put(key, checksum);
+        }
+        for (StoredProcedure procedure : procedures) {
+            String key = "PROCEDURE " + procedure.name();
+            String checksum = SchemaVersion.checksum(procedure.getCreateQuery());
+            if (SchemaVersion.isOutdated(key, checksum)) outdated.put(key, checksum);
+        }
+        return outdated;
+    }
+
+    private void apply(Map<String, String> outdated) {
+        Map<String, String> applied = new LinkedHashMap<>();
+        String tableKey = "TABLE " + tableName;
+        if (outdated.containsKey(tableKey)) {
+            if (SchemaVersion.getChecksum(tableKey) != null) LOGGER.warn("Definition of table {} changed, existing columns are not migrated", tableName);
+            Database.createTable(tableName, columns);
+            applied.put(tableKey, outdated.get(tableKey));
+        }
+        for (TableIndex index : indexes) {
+            String key = "INDEX " + tableName + "." + index.name();
+            if (!outdated.containsKey(key)) continue;
+            if (createIndex(index, SchemaVersion.getChecksum(key) != null)) applied.put(key, outdated.get(key));
+        }
+        for (StoredProcedure procedure : procedures) {
+            String key = "PROCEDURE " + procedure.name();
+            if (!outdated.containsKey(key)) continue;
+            Database.update(procedure.getDropQuery());
+            Database.update(procedure.getCreateQuery());
+            applied.put(key, outdated.get(key));
+        }
+        SchemaVersion.markApplied(applied);
+    }
+
+    private boolean createIndex(TableIndex index, boolean changed) {
+        boolean exists = existsIndex(index);
+        // An index that exists without a recorded checksum was created before the schema was versioned
+        if (exists && !changed) return true;
+        if (index.isUnique()) {
+            // Tables created before the key was declared may hold rows inserted twice
+            String[] statements = exists ? new String[]{index.getDropQuery(tableName), index.getAddQuery(tableName)} : new String[]{index.getAddQuery(tableName)};
+            int removed = Database.deduplicateLocked(tableName, index.getColumnNames(), statements);
+            if (removed > 0) LOGGER.warn("Removed {} duplicate rows of table {} to add key {}, the newest row of every key was kept", removed, tableName, index.name());
+            return true;
+        }
+        try {
+            if (exists) Database.update(index.getDropQuery(tableName));
+            Database.update(index.getAddQuery(tableName));
+            return true;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Index {} of table {} could not be created, it is tried again on the next start", index.name(), tableName, e);
+            return false;
+        }
+    }
+
+    private boolean existsIndex(TableIndex index) {
+        return Database.exists("SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=? AND INDEX_NAME=? LIMIT 1",
+                tableName, index.name());
+    }
+
+    private StoredProcedure declare(String name, String input, String body) {
+        StoredProcedure procedure = new StoredProcedure(tableName + "_" + name, input, body);
+        procedures.add(procedure);
+        Database.assignSubsystem(procedure.name(), subsystem);
+        return procedure;
+    }
+
+    private static String where(String condition) {
+        return condition == null || condition.isEmpty() ? "" : " WHERE " + condition;
+    }
+}
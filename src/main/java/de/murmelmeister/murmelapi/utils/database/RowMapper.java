@@ -0,0 +1,22 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an object.
+ * The mapper must not move the cursor of the result set.
+ *
+ * @param <T> The type of the mapped object
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Maps the current row of the result set.
+     *
+     * @param resultSet The result set positioned on the row to map
+     * @return the mapped object
+     * @throws SQLException If a column cannot be read
+     */
+    T map(ResultSet resultSet) throws SQLException;
+}
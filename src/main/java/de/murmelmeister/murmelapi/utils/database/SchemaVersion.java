@@ -0,0 +1,174 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import de.murmelmeister.murmelapi.utils.Database;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Versions of the tables and stored procedures in the database.
+ * The checksum of every applied definition is kept in the table {@code SchemaVersion}, which is read once per connection.
+ * A {@link ProcedureRegistry} only sends the definitions whose checksum changed,
+ * so an unchanged schema costs one read at startup.
+ * Every definition is recorded with the {@link #GENERATION} of the MurmelAPI that applied it,
+ * a server of an older generation never replaces it, for example while it restarts during a rolling deploy.
+ * (Thread-safe)
+ */
+public final class SchemaVersion {
+    /**
+     * The generation of the table, index and procedure definitions of this version of MurmelAPI.
+     * It has to be raised whenever a definition changes.
+     */
+    public static final int GENERATION = 2;
+    private static final String TABLE = "SchemaVersion";
+    private static final int ER_BAD_FIELD_ERROR = 1054;
+    private static final Lock LOCK = new ReentrantLock();
+    private static volatile Map<String, Applied> checksums;
+
+    private SchemaVersion() {
+    }
+
+    /**
+     * Obtains the checksum of the definition that was applied last.
+     *
+     * @param name The name of the definition, for example {@code TABLE User} or {@code PROCEDURE User_Insert}
+     * @return the checksum, or null if the definition was never applied
+     */
+    public static String getChecksum(String name) {
+        Applied applied = load().get(name);
+        return applied == null ? null : applied.checksum();
+    }
+
+    /**
+     * Obtains the generation of the MurmelAPI that applied a definition last.
+     *
+     * @param name The name of the definition
+     * @return the generation, 0 if it was applied before generations were recorded or never applied
+     */
+    public static int getGeneration(String name) {
+        Applied applied = load().get(name);
+        return applied == null ? 0 : applied.generation();
+    }
+
+    /**
+     * Checks whether a definition has to be applied.
+     * It has to if its checksum differs from the recorded one, unless a newer generation recorded it.
+     *
+     * @param name     The name of the definition
+     * @param checksum The checksum of the definition of this version
+     * @return true if the definition has to be applied, otherwise false
+     */
+    public static boolean isOutdated(String name, String checksum) {
+        Applied applied = load().get(name);
+        return applied == null || !applied.checksum().equals(checksum) && applied.generation() <= GENERATION;
+    }
+
+    /**
+     * Records that definitions were applied, in one batch.
+     *
+     * @param applied The checksums of the applied definitions by name
+     */
+    public static void markApplied(Map<String, String> applied) {
+        if (applied.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>(applied.size());
+        for (Map.Entry<String, String> entry : applied.entrySet())
+            rows.add(new Object[]{entry.getKey(), entry.getValue(), GENERATION, now});
+        Database.batchUpdate("INSERT INTO " + TABLE + " (Name, Checksum, Generation, AppliedTime) VALUES (?, ?, ?, ?) " +
+                             "ON DUPLICATE KEY UPDATE Checksum=VALUES(Checksum), Generation=VALUES(Generation), AppliedTime=VALUES(AppliedTime)", rows);
+        Map<String, Applied> loaded = load();
+        applied.forEach((name, checksum) -> loaded.put(name, new Applied(checksum, GENERATION)));
+    }
+
+    /**
+     * Forgets applied definitions, so they are checked against the database again.
+     *
+     * @param names The names of the definitions
+     */
+    public static void forget(List<String> names) {
+        if (names.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(names.size());
+        for (String name : names) rows.add(new Object[]{name});
+        Database.batchUpdate("DELETE FROM " + TABLE + " WHERE Name=?", rows);
+        load().keySet().removeAll(names);
+    }
+
+    /**
+     * Calculates the checksum of a definition.
+     *
+     * @param definition The SQL definition of a table or stored procedure
+     * @return the SHA-256 checksum as hex string
+     */
+    public static String checksum(String definition) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(definition.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Forgets the loaded checksums, so they are read again on the next use.
+     * Called when the connection to the database changes.
+     */
+    public static void reset() {
+        checksums = null;
+    }
+
+    /**
+     * Reads the checksums again, for example after waiting for another server that applied definitions.
+     */
+    public static void reload() {
+        LOCK.lock();
+        try {
+            checksums = null;
+            load();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static Map<String, Applied> load() {
+        Map<String, Applied> loaded = checksums;
+        if (loaded != null) return loaded;
+        LOCK.lock();
+        try {
+            if (checksums != null) return checksums;
+            Database.createTable(TABLE, "Name VARCHAR(191) PRIMARY KEY, Checksum CHAR(64), Generation INT NOT NULL DEFAULT 0, AppliedTime BIGINT");
+            Map<String, Applied> result;
+            try {
+                result = read();
+            } catch (RuntimeException e) {
+                // Tables created before generations were recorded lack the column
+                if (!(e.getCause() instanceof SQLException cause) || cause.getErrorCode() != ER_BAD_FIELD_ERROR) throw e;
+                Database.update("ALTER TABLE " + TABLE + " ADD COLUMN Generation INT NOT NULL DEFAULT 0 AFTER Checksum");
+                result = read();
+            }
+            checksums = result;
+            return result;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static Map<String, Applied> read() {
+        Map<String, Applied> result = new ConcurrentHashMap<>();
+        Database.forEach("SELECT Name, Checksum, Generation FROM " + TABLE,
+                resultSet -> Map.entry(resultSet.getString("Name"), new Applied(resultSet.getString("Checksum"), resultSet.getInt("Generation"))),
+                entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    private record Applied(String checksum, int generation) {
+    }
+}
@@ -0,0 +1,174 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log of the calls of the {@link de.murmelmeister.murmelapi.utils.Database} that took longer than a threshold.
+ * Every slow call is logged with its statement, the shapes of its parameters, its duration and the provider method that issued it.
+ * Parameter values are never logged, only their types and the length of strings.
+ * Logging is limited to a number of lines per second, the last slow calls are kept in memory regardless.
+ * The caller is only looked up for slow calls, so fast calls only pay for one comparison.
+ * (Thread-safe)
+ */
+public final class SlowCallLog {
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final String INTERNAL_PACKAGE = "de.murmelmeister.murmelapi.utils.";
+    private static final String ROOT_PACKAGE = "de.murmelmeister.murmelapi.";
+
+    private final Logger logger;
+    private final Deque<SlowCall> recent = new ArrayDeque<>();
+    private volatile long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    private int capacity = 128;
+    private int maxLogsPerSecond = 10;
+    private long window;
+    private int logged;
+    private int suppressed;
+
+    /**
+     * Creates a new slow call log.
+     *
+     * @param logger The logger to write the slow calls to
+     */
+    public SlowCallLog(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Sets how long a call has to take to count as slow. The default is 100 milliseconds.
+     *
+     * @param threshold The threshold, zero or negative disables the log
+     */
+    public void setThreshold(Duration threshold) {
+        this.thresholdNanos = threshold.isNegative() || threshold.isZero() ? Long.MAX_VALUE : threshold.toNanos();
+    }
+
+    /**
+     * Obtains how long a call has to take to count as slow.
+     *
+     * @return the threshold in nanoseconds, {@link Long#MAX_VALUE} if the log is disabled
+     */
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /**
+     * Sets how many slow calls are logged per second at most. The default is 10.
+     *
+     * @param maxLogsPerSecond The maximum number of log lines per second, 0 only keeps the calls in memory
+     */
+    public synchronized void setMaxLogsPerSecond(int maxLogsPerSecond) {
+        if (maxLogsPerSecond < 0) throw new IllegalArgumentException("maxLogsPerSecond must not be negative");
+        this.maxLogsPerSecond = maxLogsPerSecond;
+    }
+
+    /**
+     * Sets how many of the last slow calls are kept in memory. The default is 128.
+     *
+     * @param capacity The number of kept slow calls, must be positive
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        while (recent.size() > capacity) recent.removeLast();
+    }
+
+    /**
+     * Records a call if it took longer than the threshold.
+     *
+     * @param statement  The name of the stored procedure or the SQL statement
+     * @param parameters The parameters of the call, only their shapes are kept
+     * @param nanos      The duration of the call
+     * @param failed     Whether the call failed
+     */
+    public void record(String statement, Object[] parameters, long nanos, boolean failed) {
+        if (nanos < thresholdNanos) return;
+        SlowCall call = new SlowCall(System.currentTimeMillis(), statement, describe(parameters), findCaller(), nanos, failed);
+        int skipped;
+        synchronized (this) {
+            if (recent.size() == capacity) recent.removeLast();
+            recent.addFirst(call);
+            long second = call.timestamp() / 1000L;
+            if (second != window) {
+                window = second;
+                logged = 0;
+            }
+            if (logged >= maxLogsPerSecond) {
+                suppressed++;
+                return;
+            }
+            logged++;
+            skipped = suppressed;
+            suppressed = 0;
+        }
+        if (skipped == 0) logger.warn("Slow database call: {}", call);
+        else logger.warn("Slow database call: {} ({} slow calls not logged before)", call, skipped);
+    }
+
+    /**
+     * Obtains the last slow calls.
+     *
+     * @return a list of the kept slow calls, the newest first
+     */
+    public synchronized List<SlowCall> getRecent() {
+        return new ArrayList<>(recent);
+    }
+
+    /**
+     * Removes all kept slow calls.
+     */
+    public synchronized void clear() {
+        recent.clear();
+    }
+
+    private static String findCaller() {
+        return WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(ROOT_PACKAGE) && !frame.getClassName().startsWith(INTERNAL_PACKAGE))
+                .findFirst()
+                .map(frame -> {
+                    String className = frame.getClassName();
+                    String method = frame.getMethodName();
+                    // Lambdas are named lambda$enclosingMethod$index
+                    if (method.startsWith("lambda$")) method = method.substring(7, Math.max(method.lastIndexOf('$'), 7));
+                    return className.substring(className.lastIndexOf('.') + 1) + "." + method;
+                })
+                .orElse("unknown"));
+    }
+
+    private static String describe(Object[] parameters) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) builder.append(", ");
+            Object parameter = parameters[i];
+            switch (parameter) {
+                case null -> builder.append("null");
+                case String string -> builder.append("String[").append(string.length()).append(']');
+                default -> builder.append(parameter.getClass().getSimpleName());
+            }
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * A call that took longer than the threshold.
+     *
+     * @param timestamp  The time the call finished in milliseconds since the epoch
+     * @param statement  The name of the stored procedure or the SQL statement
+     * @param parameters The shapes of the parameters, without their values
+     * @param caller     The class and method that issued the call, for example {@code UserPermissionProvider.loadExpired}
+     * @param nanos      The duration of the call
+     * @param failed     Whether the call failed
+     */
+    public record SlowCall(long timestamp, String statement, String parameters, String caller, long nanos, boolean failed) {
+        @Override
+        public String toString() {
+            return statement + parameters + " took " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms in " + caller + (failed ? " and failed" : "");
+        }
+    }
+}
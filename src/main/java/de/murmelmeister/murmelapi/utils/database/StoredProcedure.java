@@ -0,0 +1,31 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import de.murmelmeister.murmelapi.utils.Database;
+
+/**
+ * A stored procedure declared in a {@link ProcedureRegistry}.
+ *
+ * @param name  The name of the procedure, prefixed with the name of its table
+ * @param input The input parameters of the procedure
+ * @param body  The SQL statement of the procedure
+ */
+public record StoredProcedure(String name, String input, String body) {
+
+    /**
+     * Builds the statement that creates the procedure if it does not exist.
+     *
+     * @return the SQL statement that creates the procedure
+     */
+    public String getCreateQuery() {
+        return Database.getProcedureQueryWithoutObjects(name, input, body);
+    }
+
+    /**
+     * Builds the statement that drops the procedure if it exists.
+     *
+     * @return the SQL statement that drops the procedure
+     */
+    public String getDropQuery() {
+        return "DROP PROCEDURE IF EXISTS " + name;
+    }
+}
@@ -0,0 +1,28 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+/**
+ * Subsystems whose database calls are isolated from each other by a {@link Bulkhead}.
+ * A {@link ProcedureRegistry} assigns all procedures of its table to one subsystem.
+ */
+public enum Subsystem {
+    /**
+     * Users, groups and their settings, the default of every table.
+     */
+    CORE,
+    /**
+     * Permissions and parents of users and groups.
+     */
+    PERMISSION,
+    /**
+     * The play time of users.
+     */
+    PLAY_TIME,
+    /**
+     * The join, quit, ban and mute logs.
+     */
+    LOGGING,
+    /**
+     * The lists and reasons of bans and mutes.
+     */
+    BAN
+}
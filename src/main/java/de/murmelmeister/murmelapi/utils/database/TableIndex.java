@@ -0,0 +1,78 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A primary key, unique key or secondary index declared in a {@link ProcedureRegistry}.
+ *
+ * @param name    The name of the index, {@code PRIMARY} for the primary key
+ * @param type    The SQL type of the index, for example {@code UNIQUE KEY}
+ * @param columns The comma separated columns of the index
+ */
+public record TableIndex(String name, String type, String columns) {
+    public static final String PRIMARY = "PRIMARY";
+
+    /**
+     * Builds the statement that adds the index to a table.
+     *
+     * @param tableName The name of the table
+     * @return the SQL statement that adds the index
+     */
+    public String getAddQuery(String tableName) {
+        return "ALTER TABLE " + tableName + " ADD " + getDefinition();
+    }
+
+    /**
+     * Builds the definition of the index as used in {@code CREATE TABLE} and {@code ALTER TABLE ... ADD}.
+     *
+     * @return the SQL definition of the index
+     */
+    public String getDefinition() {
+        if (PRIMARY.equals(name)) return "PRIMARY KEY (" + columns + ")";
+        return type + " " + name + " (" + columns + ")";
+    }
+
+    /**
+     * Checks whether the index contains a column.
+     *
+     * @param column The name of the column
+     * @return true if the column is one of the columns of the index, otherwise false
+     */
+    public boolean includes(String column) {
+        for (String name : getColumnNames())
+            if (name.equalsIgnoreCase(column)) return true;
+        return false;
+    }
+
+    /**
+     * Obtains the names of the columns of the index without their prefix lengths.
+     *
+     * @return the column names in the order of the index
+     */
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>();
+        for (String part : columns.split(",")) names.add(part.strip().replaceFirst("\\(\\d+\\)$", ""));
+        return names;
+    }
+
+    /**
+     * Checks whether the index allows every combination of its columns only once.
+     *
+     * @return true for a primary or unique key, otherwise false
+     */
+    public boolean isUnique() {
+        return PRIMARY.equals(name) || type.startsWith("UNIQUE");
+    }
+
+    /**
+     * Builds the statement that removes the index from a table.
+     *
+     * @param tableName The name of the table
+     * @return the SQL statement that removes the index
+     */
+    public String getDropQuery(String tableName) {
+        if (PRIMARY.equals(name)) return "ALTER TABLE " + tableName + " DROP PRIMARY KEY";
+        return "ALTER TABLE " + tableName + " DROP INDEX " + name;
+    }
+}
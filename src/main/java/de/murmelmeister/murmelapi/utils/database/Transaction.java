@@ -0,0 +1,25 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+/**
+ * Handle of a unit of work started with {@link de.murmelmeister.murmelapi.utils.Database#inTransaction(java.util.function.Consumer)}.
+ * All database calls of the thread inside the unit of work share one connection and are committed once at the end.
+ */
+public final class Transaction {
+    private volatile boolean rollbackOnly;
+
+    /**
+     * Marks the transaction, so it is rolled back instead of committed at the end of the unit of work.
+     */
+    public void setRollbackOnly() {
+        this.rollbackOnly = true;
+    }
+
+    /**
+     * Checks whether the transaction is marked to be rolled back.
+     *
+     * @return true if the transaction will be rolled back, otherwise false
+     */
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+}
@@ -0,0 +1,73 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Converts UUIDs to and from their 16 byte big-endian form, the same layout {@code UNHEX(REPLACE(uuid, '-', ''))} produces.
+ * The bits are copied with a single view access per long, no strings are formatted or parsed.
+ */
+public final class UuidCodec {
+    public static final int BYTES = 16;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private UuidCodec() {
+    }
+
+    /**
+     * Converts a UUID to bytes.
+     *
+     * @param uuid The UUID to convert
+     * @return a new array with the 16 bytes of the UUID
+     */
+    public static byte[] toBytes(UUID uuid) {
+        byte[] bytes = new byte[BYTES];
+        write(uuid, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Writes a UUID into an existing array.
+     *
+     * @param uuid   The UUID to write
+     * @param target The array to write to
+     * @param offset The index of the first byte
+     */
+    public static void write(UUID uuid, byte[] target, int offset) {
+        LONGS.set(target, offset, uuid.getMostSignificantBits());
+        LONGS.set(target, offset + 8, uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Converts bytes to a UUID.
+     *
+     * @param bytes The 16 bytes of the UUID
+     * @return the UUID
+     * @throws IllegalArgumentException if the array does not have 16 bytes
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes.length != BYTES) throw new IllegalArgumentException("A UUID has 16 bytes, not " + bytes.length);
+        return new UUID((long) LONGS.get(bytes, 0), (long) LONGS.get(bytes, 8));
+    }
+
+    /**
+     * Reads a UUID from a column that is stored either as text or as bytes.
+     *
+     * @param resultSet The result set positioned on the row
+     * @param label     The label of the column
+     * @return the UUID, or null if the column is null
+     * @throws SQLException if the column cannot be read
+     */
+    public static UUID read(ResultSet resultSet, String label) throws SQLException {
+        return switch (resultSet.getObject(label)) {
+            case null -> null;
+            case byte[] bytes -> fromBytes(bytes);
+            case UUID uuid -> uuid;
+            case Object value -> UUID.fromString(value.toString());
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import de.murmelmeister.murmelapi.utils.Database;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Converts an existing UUID column to the {@link UuidStorage} of the {@link Database}.
+ * The converted values are written into a new column in chunks of the primary key,
+ * every chunk is its own short statement, so the table stays usable during the migration.
+ * Rows written by other servers during the copy are converted again while the table is locked for the swap of the columns,
+ * the keys on the column are added back in the same statement, so the table is never without them.
+ * Only one server migrates at a time, the others wait and find the column migrated.
+ * All servers must read both storages, that is run a version with this migration, while the column is migrated.
+ * The storage of every column is recorded in the {@link SchemaVersion}, so an unchanged column costs nothing on startup.
+ */
+public final class UuidMigration {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UuidMigration.class);
+    private static final int CHUNK_SIZE = 10000;
+    private static final String LOCK = "MurmelAPI_UuidMigration";
+    private static final Duration LOCK_TIMEOUT = Duration.ofMinutes(30);
+
+    private UuidMigration() {
+    }
+
+    /**
+     * Migrates a UUID column of the table of a registry if its storage differs from the configured one.
+     * Must be called before {@link ProcedureRegistry#createAll()}.
+     * The declared keys and indexes over the column are added back by the migration itself, the pool needs at least two connections.
+     *
+     * @param procedures The registry of the table
+     * @param column     The UUID column
+     * @param keyColumn  The integer primary key used to split the table into chunks
+     */
+    public static void migrate(ProcedureRegistry procedures, String column, String keyColumn) {
+        String tableName = procedures.getTableName();
+        UuidStorage storage = Database.getUuidStorage();
+        String key = "COLUMN " + tableName + "." + column;
+        String checksum = SchemaVersion.checksum(storage.getColumnType());
+        if (checksum.equals(SchemaVersion.getChecksum(key))) return;
+        // A missing table is created with the configured storage
+        if (needsConversion(tableName, column, storage)) {
+            Database.withNamedLock(LOCK, LOCK_TIMEOUT, () -> {
+                // Another server may have migrated the column while this one waited
+                if (needsConversion(tableName, column, storage)) convert(procedures, column, keyColumn, storage);
+            });
+            procedures.invalidateTable();
+        }
+        SchemaVersion.markApplied(Map.of(key, checksum));
+    }
+
+    private static boolean needsConversion(String tableName, String column, UuidStorage storage) {
+        String dataType = Database.query(null, "DATA_TYPE", String.class,
+                "SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=? AND COLUMN_NAME=?", tableName, column);
+        return dataType != null && !storage.matches(dataType);
+    }
+
+    private static void convert(ProcedureRegistry procedures, String column, String keyColumn, UuidStorage storage) {
+        String tableName = procedures.getTableName();
+        String target = column + "Migration";
+        LOGGER.info("Migrating {}.{} to {}", tableName, column, storage.getColumnType());
+        if (!Database.exists("SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=? AND COLUMN_NAME=?", tableName, target))
+            Database.update("ALTER TABLE " + tableName + " ADD COLUMN " + target + " " + storage.getColumnType() + " AFTER " + keyColumn);
+        String copy = "UPDATE " + tableName + " SET " + target + "=" + storage.convertFrom(column) + " WHERE " + keyColumn + " BETWEEN ? AND ?";
+        long low = Database.query(0L, "low", long.class, "SELECT COALESCE(MIN(" + keyColumn + "), 0) AS low FROM " + tableName);
+        long high = Database.query(-1L, "high", long.class, "SELECT COALESCE(MAX(" + keyColumn + "), -1) AS high FROM " + tableName);
+        for (long start = low; start <= high; start += CHUNK_SIZE)
+            Database.update(copy, start, Math.min(start + CHUNK_SIZE - 1, high));
+        // Rows written by other servers during the copy, most of them are converted before the table is locked
+        String catchUp = "UPDATE " + tableName + " SET " + target + "=" + storage.convertFrom(column) + " WHERE " + target + " IS NULL AND " + column + " IS NOT NULL";
+        Database.update(catchUp);
+        // The keys over the column are replaced in the same statement, so a login cannot insert a duplicate in between
+        StringBuilder swap = new StringBuilder("ALTER TABLE " + tableName);
+        for (TableIndex index : procedures.getIndexes())
+            if (index.includes(column) && Database.exists("SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME=? AND INDEX_NAME=? LIMIT 1", tableName, index.name()))
+                swap.append(TableIndex.PRIMARY.equals(index.name()) ? " DROP PRIMARY KEY," : " DROP INDEX " + index.name() + ",");
+        swap.append(" DROP COLUMN ").append(column).append(", CHANGE COLUMN ").append(target).append(' ').append(column).append(' ').append(storage.getColumnType());
+        for (TableIndex index : procedures.getIndexes())
+            if (index.includes(column)) swap.append(", ADD ").append(index.getDefinition());
+        Database.updateLocked(tableName, catchUp, swap.toString());
+        LOGGER.info("Migrated {}.{} to {}", tableName, column, storage.getColumnType());
+    }
+}
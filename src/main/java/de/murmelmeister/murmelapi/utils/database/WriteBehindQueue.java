@@ -0,0 +1,274 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import de.murmelmeister.murmelapi.utils.Database;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Write-behind queue of the {@link Database} for updates that overwrite the same row many times.
+ * Updates are keyed by their stored procedure and row key, a newer update of the same key replaces the queued one,
+ * so only the latest value is sent. A background virtual thread sends the queued updates as one batch per procedure
+ * once the flush interval has passed or the queue reached the batch size.
+ * A failed flush keeps the updates queued and is tried again on the next interval.
+ * Queued updates are not part of a transaction and are lost if the process dies before they are flushed.
+ * (Thread-safe)
+ */
+public final class WriteBehindQueue {
+    private final Logger logger;
+    private final Map<PendingKey, Object[]> pending = new ConcurrentHashMap<>();
+    private final Lock flushLock = new ReentrantLock();
+    private final Lock signalLock = new ReentrantLock();
+    private final Condition signal = signalLock.newCondition();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private volatile long intervalNanos = Duration.ofSeconds(5).toNanos();
+    private volatile int batchSize = 500;
+    private volatile Thread flusher;
+
+    /**
+     * Creates a new write-behind queue.
+     *
+     * @param logger The logger to write failed flushes to
+     */
+    public WriteBehindQueue(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Sets how often queued updates are flushed. The default is 5 seconds.
+     *
+     * @param interval The flush interval, must be positive
+     */
+    public void setFlushInterval(Duration interval) {
+        if (interval.isNegative() || interval.isZero()) throw new IllegalArgumentException("interval must be positive");
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * Sets the number of queued updates that triggers a flush before the interval has passed. The default is 500.
+     *
+     * @param batchSize The number of updates, must be positive
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Queues an update, a queued update of the same procedure and key is replaced.
+     *
+     * @param procedure  The name of the stored procedure
+     * @param key        The key of the updated row, for example the user ID
+     * @param parameters The parameters of the stored procedure
+     */
+    public void enqueue(String procedure, Object key, Object... parameters) {
+        enqueued.increment();
+        if (pending.put(new PendingKey(procedure, key), parameters) != null) coalesced.increment();
+        if (flusher == null) startFlusher();
+        if (pending.size() >= batchSize) wakeUp();
+    }
+
+    /**
+     * Obtains the parameters of a queued update, so readers see their own writes before they are flushed.
+     *
+     * @param procedure The name of the stored procedure
+     * @param key       The key of the updated row
+     * @return the parameters of the queued update, or null if none is queued
+     */
+    public Object[] getPending(String procedure, Object key) {
+        return pending.get(new PendingKey(procedure, key));
+    }
+
+    /**
+     * Drops a queued update, for example because its row is deleted.
+     *
+     * @param procedure The name of the stored procedure
+     * @param key       The key of the updated row
+     */
+    public void discard(String procedure, Object key) {
+        pending.remove(new PendingKey(procedure, key));
+    }
+
+    /**
+     * Sends all queued updates now and waits until they are written.
+     * Call it before a shutdown, {@link Database#disconnect()} does it automatically.
+     *
+     * @throws RuntimeException if a database access error occurs, the updates that were not written stay queued
+     */
+    public void flush() {
+        flush(pendingKey -> true);
+    }
+
+    /**
+     * Sends the queued updates of a key now and waits until they are written, for example before the row is read from the database.
+     *
+     * @param key The key of the updated rows, for example the user ID
+     * @throws RuntimeException if a database access error occurs, the updates that were not written stay queued
+     */
+    public void flush(Object key) {
+        Predicate<PendingKey> filter = pendingKey -> key.equals(pendingKey.key());
+        if (pending.keySet().stream().anyMatch(filter)) flush(filter);
+    }
+
+    private void flush(Predicate<PendingKey> filter) {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) return;
+            long start = System.nanoTime();
+            Map<String, List<Map.Entry<PendingKey, Object[]>>> procedures = new LinkedHashMap<>();
+            for (Map.Entry<PendingKey, Object[]> entry : pending.entrySet()) {
+                if (!filter.test(entry.getKey())) continue;
+                procedures.computeIfAbsent(entry.getKey().procedure(), procedure -> new ArrayList<>()).add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+            for (Map.Entry<String, List<Map.Entry<PendingKey, Object[]>>> procedure : procedures.entrySet()) {
+                List<Map.Entry<PendingKey, Object[]>> entries = procedure.getValue();
+                List<Object[]> rows = new ArrayList<>(entries.size());
+                for (Map.Entry<PendingKey, Object[]> entry : entries) rows.add(entry.getValue());
+                Database.callBatch(procedure.getKey(), rows);
+                // An update queued during the flush replaced the sent one and stays queued
+                for (Map.Entry<PendingKey, Object[]> entry : entries) pending.remove(entry.getKey(), entry.getValue());
+                flushed.add(rows.size());
+            }
+            flushLatency.record(System.nanoTime() - start);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background thread and flushes the queued updates.
+     * The thread is started again by the next {@link #enqueue(String, Object, Object...)}.
+     */
+    public void stop() {
+        Thread thread;
+        signalLock.lock();
+        try {
+            thread = flusher;
+            flusher = null;
+        } finally {
+            signalLock.unlock();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Obtains the number of queued updates.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Obtains the latency of the flushes.
+     *
+     * @return the snapshot of the flush latency
+     */
+    public LatencySnapshot getFlushLatency() {
+        return flushLatency.snapshot();
+    }
+
+    /**
+     * Obtains the number of queued updates since the start.
+     *
+     * @return the number of enqueued updates
+     */
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    /**
+     * Obtains the number of updates that replaced a queued update and were never sent on their own.
+     *
+     * @return the number of coalesced updates
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Obtains the number of updates that were written.
+     *
+     * @return the number of flushed updates
+     */
+    public long getFlushed() {
+        return flushed.sum();
+    }
+
+    /**
+     * Obtains the number of flushes of the background thread that failed.
+     *
+     * @return the number of failed flushes
+     */
+    public long getFailedFlushes() {
+        return failedFlushes.sum();
+    }
+
+    private void startFlusher() {
+        signalLock.lock();
+        try {
+            if (flusher == null) flusher = Thread.ofVirtual().name("MurmelAPI-WriteBehind").start(this::run);
+        } finally {
+            signalLock.unlock();
+        }
+    }
+
+    private void wakeUp() {
+        signalLock.lock();
+        try {
+            signal.signal();
+        } finally {
+            signalLock.unlock();
+        }
+    }
+
+    private void run() {
+        boolean failed = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            signalLock.lock();
+            try {
+                // After a failure the full interval is waited, so a full queue does not retry in a tight loop
+                if (failed || pending.size() < batchSize) signal.awaitNanos(intervalNanos);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                signalLock.unlock();
+            }
+            try {
+                flush();
+                failed = false;
+            } catch (RuntimeException e) {
+                failed = true;
+                failedFlushes.increment();
+                logger.warn("Write-behind flush failed, {} updates stay queued", pending.size(), e);
+            }
+        }
+    }
+
+    private record PendingKey(String procedure, Object key) {
+    }
+}
@@ -0,0 +1,52 @@
+package de.murmelmeister.murmelapi;
+
+import de.murmelmeister.murmelapi.utils.Database;
+import org.junit.jupiter.api.Assumptions;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * MySQL server in a container that is shared by all tests of a run.
+ * The {@link Database} is static and its pool cannot be reopened once closed, so the server is started once
+ * and left to the container runtime to remove after the run.
+ * Tests that need it are skipped if no container runtime is available.
+ */
+public final class TestDatabase {
+    private static MySQLContainer<?> container;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Starts the server unless it is running already and connects the {@link Database} to it.
+     */
+    public static synchronized void start() {
+        if (container != null) return;
+        Assumptions.assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker is not available");
+        MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.4");
+        mysql.start();
+        Database.connect(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword());
+        container = mysql;
+    }
+
+    /**
+     * Opens a connection to the server outside the pool of the {@link Database}, for example to compare driver properties.
+     *
+     * @param properties The driver properties, the credentials are added
+     * @return the connection, it has to be closed by the caller
+     * @throws SQLException if the connection cannot be opened
+     */
+    public static synchronized Connection openConnection(Properties properties) throws SQLException {
+        start();
+        Properties all = new Properties();
+        all.putAll(properties);
+        all.setProperty("user", container.getUsername());
+        all.setProperty("password", container.getPassword());
+        return DriverManager.getConnection(container.getJdbcUrl(), all);
+    }
+}
@@ -0,0 +1,55 @@
+package de.murmelmeister.murmelapi.bansystem.ban;
+
+import de.murmelmeister.murmelapi.TestDatabase;
+import de.murmelmeister.murmelapi.utils.Database;
+import de.murmelmeister.murmelapi.utils.database.SchemaVersion;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the ban rows inserted twice by older versions are reduced to the newest ban when the key is added.
+ */
+class BanDuplicateTest {
+    private static final int REBANNED = 9001;
+    private static final int SHORTENED = 9002;
+    private static Ban ban;
+
+    @BeforeAll
+    static void seedDuplicates() {
+        TestDatabase.start();
+        new BanProvider();
+        // Older versions had no key and inserted a new row for every ban
+        Database.update("ALTER TABLE Ban_List DROP PRIMARY KEY");
+        long past = System.currentTimeMillis() - 60000L;
+        Database.update("INSERT INTO Ban_List (UserID, ExpiredTime) VALUES (?, ?)", REBANNED, past);
+        Database.update("INSERT INTO Ban_List (UserID, ExpiredTime) VALUES (?, ?)", REBANNED, -1L);
+        Database.update("INSERT INTO Ban_List (UserID, ExpiredTime) VALUES (?, ?)", SHORTENED, -1L);
+        Database.update("INSERT INTO Ban_List (UserID, ExpiredTime) VALUES (?, ?)", SHORTENED, past);
+        SchemaVersion.forget(List.of("INDEX Ban_List.PRIMARY"));
+        ban = new BanProvider();
+    }
+
+    @Test
+    void keyIsAdded() {
+        assertTrue(Database.exists("SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='Ban_List' AND INDEX_NAME='PRIMARY'"));
+        long count = Database.query(0L, "count", long.class, "SELECT COUNT(*) AS count FROM Ban_List WHERE UserID IN (?, ?)", REBANNED, SHORTENED);
+        assertEquals(2L, count);
+    }
+
+    @Test
+    void newestBanStillApplies() {
+        assertTrue(ban.isBanned(REBANNED));
+        assertEquals(-1L, ban.getExpiredTime(REBANNED));
+    }
+
+    @Test
+    void newestBanReplacesOlderPermanentBan() {
+        assertFalse(ban.isBanned(SHORTENED));
+    }
+}
@@ -0,0 +1,70 @@
+package de.murmelmeister.murmelapi.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IdentityCacheTest {
+    private static final UserIdentity ALICE = new UserIdentity(1, new UUID(0L, 1L), "Alice");
+    private static final UserIdentity BOB = new UserIdentity(2, new UUID(0L, 2L), "Bob");
+
+    @Test
+    void loadOverlappingOtherInvalidationIsCached() {
+        IdentityCache cache = new IdentityCache();
+        long version = cache.getVersion();
+        // Another user joins while Alice is loaded
+        cache.invalidateUsername("Bob");
+        cache.invalidate(BOB.uuid());
+        cache.put(ALICE, version);
+        assertEquals(ALICE, cache.getByUniqueId(ALICE.uuid()));
+    }
+
+    @Test
+    void loadOverlappingOwnInvalidationIsNotCached() {
+        IdentityCache cache = new IdentityCache();
+        long version = cache.getVersion();
+        cache.invalidate(ALICE.uuid());
+        cache.put(ALICE, version);
+        assertNull(cache.getByUniqueId(ALICE.uuid()));
+    }
+
+    @Test
+    void loadOverlappingUsernameInvalidationIsNotCached() {
+        IdentityCache cache = new IdentityCache();
+        long version = cache.getVersion();
+        cache.invalidateUsername("alice");
+        cache.put(ALICE, version);
+        assertNull(cache.getByUsername("Alice"));
+    }
+
+    @Test
+    void invalidationOfCachedUserCoversAllKeys() {
+        IdentityCache cache = new IdentityCache();
+        cache.put(ALICE, cache.getVersion());
+        long version = cache.getVersion();
+        cache.invalidate(ALICE.uuid());
+        // A load by id that started before the invalidation
+        cache.put(ALICE, version);
+        assertNull(cache.getById(ALICE.id()));
+    }
+
+    @Test
+    void loadStartedAfterInvalidationIsCached() {
+        IdentityCache cache = new IdentityCache();
+        cache.invalidate(ALICE.uuid());
+        cache.put(ALICE, cache.getVersion());
+        assertEquals(ALICE, cache.getById(ALICE.id()));
+    }
+
+    @Test
+    void clearRefusesEarlierLoads() {
+        IdentityCache cache = new IdentityCache();
+        long version = cache.getVersion();
+        cache.clear();
+        cache.put(ALICE, version);
+        assertNull(cache.getByUniqueId(ALICE.uuid()));
+    }
+}
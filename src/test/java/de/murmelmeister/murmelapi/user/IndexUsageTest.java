@@ -0,0 +1,62 @@
+package de.murmelmeister.murmelapi.user;
+
+import de.murmelmeister.murmelapi.TestDatabase;
+import de.murmelmeister.murmelapi.utils.Database;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks with EXPLAIN that the hot lookups of the user tables use their declared keys.
+ * The statements match the bodies of the procedures and scans declared by the providers.
+ */
+class IndexUsageTest {
+    private static final int USERS = 1000;
+    private static final UUID UNIQUE_ID = new UUID(0L, 42L);
+
+    @BeforeAll
+    static void createTables() {
+        TestDatabase.start();
+        new UserProvider();
+        // The optimizer scans tiny or empty tables instead of using an index, so every table gets some rows
+        List<Object[]> users = new ArrayList<>(USERS);
+        List<Object[]> permissions = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{i == 0 ? UNIQUE_ID : new UUID(i, i), "Player" + i});
+            // Only a few grants expire, like on a real server
+            permissions.add(new Object[]{i, -1, "murmel.permission." + i, 0L, i % 100 == 0 ? 1000L : -1L});
+        }
+        Database.batchUpdate("INSERT INTO User (UUID, Username) VALUES (?, ?)", users);
+        Database.batchUpdate("INSERT INTO UserPermission (UserID, CreatorID, Permission, CreatedTime, ExpiredTime) VALUES (?, ?, ?, ?, ?)", permissions);
+        Database.query(null, "Msg_text", String.class, "ANALYZE TABLE User, UserPermission");
+    }
+
+    @Test
+    void identityByUniqueIdUsesUniqueKey() {
+        assertEquals("UniqueID", explain("SELECT * FROM User WHERE UUID=? LIMIT 1", UNIQUE_ID));
+    }
+
+    @Test
+    void identityByUsernameUsesIndex() {
+        assertEquals("Username", explain("SELECT * FROM User WHERE Username=? LIMIT 1", "Player7"));
+    }
+
+    @Test
+    void permissionGrantUsesIndex() {
+        assertEquals("UserPermission", explain("SELECT * FROM UserPermission WHERE UserID=? AND Permission=? LIMIT 1", 7, "murmel.permission.7"));
+    }
+
+    @Test
+    void expirySweepUsesExpiredTimeIndex() {
+        assertEquals("ExpiredTime", explain("SELECT * FROM UserPermission WHERE ExpiredTime <> -1 AND ExpiredTime <= ?", 2000L));
+    }
+
+    private static String explain(String sql, Object... objects) {
+        return Database.query(null, "key", String.class, "EXPLAIN " + sql, objects);
+    }
+}
@@ -0,0 +1,83 @@
+package de.murmelmeister.murmelapi.user;
+
+import de.murmelmeister.murmelapi.TestDatabase;
+import de.murmelmeister.murmelapi.utils.Database;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Database calls per login and the latency of {@link User#joinUser(UUID, String)} while many players join at once.
+ */
+@Tag("benchmark")
+class LoginBenchmarkTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginBenchmarkTest.class);
+    private static final int PLAYERS = 2000;
+    private static final int JOINING_THREADS = 64;
+    private static User user;
+
+    @BeforeAll
+    static void createTables() {
+        TestDatabase.start();
+        user = new UserProvider();
+    }
+
+    @Test
+    void loginTakesAtMostTwoCalls() {
+        UUID uuid = new UUID(3L, 1L);
+        long first = calls(() -> user.joinUser(uuid, "LoginCalls"));
+        user.quitUser(uuid);
+        long again = calls(() -> user.joinUser(uuid, "LoginCalls"));
+        user.quitUser(uuid);
+        LOGGER.info("Calls per login: {} for a new user, {} for a known user", first, again);
+        // The login and the session, the write-behind queue is only flushed if it holds updates of the user
+        assertTrue(first <= 2, "A new user took " + first + " calls");
+        assertTrue(again <= 2, "A known user took " + again + " calls");
+    }
+
+    @Test
+    void joinStorm() throws Exception {
+        long[] latencies = new long[PLAYERS];
+        try (ExecutorService executor = Executors.newFixedThreadPool(JOINING_THREADS)) {
+            List<Future<?>> joins = new ArrayList<>(PLAYERS);
+            for (int i = 0; i < PLAYERS; i++) {
+                int player = i;
+                joins.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    user.joinUser(new UUID(4L, player), "Storm" + player);
+                    latencies[player] = System.nanoTime() - start;
+                }));
+            }
+            for (Future<?> join : joins) join.get();
+        }
+        for (int i = 0; i < PLAYERS; i++) user.quitUser(new UUID(4L, i));
+        Arrays.sort(latencies);
+        LOGGER.info("{} joins on {} threads: p50 {} µs, p99 {} µs, max {} µs", PLAYERS, JOINING_THREADS,
+                micros(latencies, 0.5), micros(latencies, 0.99), TimeUnit.NANOSECONDS.toMicros(latencies[PLAYERS - 1]));
+        assertEquals(PLAYERS, user.getUniqueIds().stream().filter(uuid -> uuid.getMostSignificantBits() == 4L).count());
+    }
+
+    private static long calls(Runnable action) {
+        long before = Database.getThreadCallCount();
+        action.run();
+        return Database.getThreadCallCount() - before;
+    }
+
+    private static long micros(long[] sorted, double percentile) {
+        return TimeUnit.NANOSECONDS.toMicros(sorted[(int) Math.ceil(percentile * sorted.length) - 1]);
+    }
+}
@@ -0,0 +1,43 @@
+package de.murmelmeister.murmelapi.user;
+
+import de.murmelmeister.murmelapi.TestDatabase;
+import de.murmelmeister.murmelapi.utils.Database;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a missing key on the UUID column is added back on startup, after the users created twice are removed.
+ */
+class UniqueIdKeyTest {
+    private static final UUID UNIQUE_ID = new UUID(0L, 4711L);
+
+    @BeforeAll
+    static void createTables() {
+        TestDatabase.start();
+        new UserProvider();
+    }
+
+    @Test
+    void duplicatesAreRemovedAndKeyIsAdded() {
+        Database.update("ALTER TABLE User DROP INDEX UniqueID");
+        Database.update("INSERT INTO User (UUID, Username) VALUES (?, ?)", UNIQUE_ID, "First");
+        Database.update("INSERT INTO User (UUID, Username) VALUES (?, ?)", UNIQUE_ID, "Second");
+        int first = Database.query(0, "ID", Integer.class, "SELECT MIN(ID) AS ID FROM User WHERE UUID=?", UNIQUE_ID);
+
+        User user = new UserProvider();
+
+        assertTrue(Database.exists("SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='User' AND INDEX_NAME='UniqueID'"));
+        long count = Database.query(0L, "count", long.class, "SELECT COUNT(*) AS count FROM User WHERE UUID=?", UNIQUE_ID);
+        assertEquals(1L, count);
+        assertEquals(first, user.getId(UNIQUE_ID));
+        // A join updates the kept user instead of inserting another one
+        user.joinUser(UNIQUE_ID, "Renamed");
+        user.quitUser(UNIQUE_ID);
+        assertEquals("Renamed", user.getUsername(UNIQUE_ID));
+    }
+}
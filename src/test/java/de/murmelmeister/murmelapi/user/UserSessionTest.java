@@ -0,0 +1,72 @@
+package de.murmelmeister.murmelapi.user;
+
+import de.murmelmeister.murmelapi.TestDatabase;
+import de.murmelmeister.murmelapi.bansystem.ban.Ban;
+import de.murmelmeister.murmelapi.bansystem.ban.BanProvider;
+import de.murmelmeister.murmelapi.utils.Database;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a session sees the queued updates of a quick rejoin, that bans are not answered from it
+ * and that grants revoked by another server stop applying once they expired in the session.
+ */
+class UserSessionTest {
+    private static User user;
+    private static Ban ban;
+
+    @BeforeAll
+    static void createTables() {
+        TestDatabase.start();
+        user = new UserProvider();
+        ban = new BanProvider();
+    }
+
+    @Test
+    void rejoinKeepsQueuedPlayTime() {
+        UUID uuid = new UUID(1L, 1001L);
+        user.joinUser(uuid, "Rejoin");
+        int id = user.getId(uuid);
+        user.getPlayTime().setTime(id, 120);
+        user.getSettings().setOnline(id, false);
+        user.quitUser(uuid);
+        // Rejoins before the queue is flushed
+        user.joinUser(uuid, "Rejoin");
+        int time = user.getPlayTime().getTime(id);
+        assertEquals(120, time);
+        assertFalse(user.getSettings().isOnline(id));
+        user.quitUser(uuid);
+    }
+
+    @Test
+    void banOfAnotherServerIsSeenWhileOnline() {
+        UUID uuid = new UUID(1L, 1002L);
+        user.joinUser(uuid, "Banned");
+        int id = user.getId(uuid);
+        assertFalse(ban.isBanned(id));
+        // Written by another server
+        Database.update("INSERT INTO Ban_List (UserID, ExpiredTime) VALUES (?, -1)", id);
+        assertTrue(ban.isBanned(id));
+        user.quitUser(uuid);
+    }
+
+    @Test
+    void permissionRevokedByAnotherServerExpires() throws InterruptedException {
+        UUID uuid = new UUID(1L, 1003L);
+        user.joinUser(uuid, "Revoked");
+        int id = user.getId(uuid);
+        user.getPermission().addPermission(id, -1, "murmel.revoked", -1L);
+        assertTrue(user.getPermission().existsPermission(id, "murmel.revoked"));
+        // Written by another server
+        Database.update("DELETE FROM UserPermission WHERE UserID=? AND Permission=?", id, "murmel.revoked");
+        Thread.sleep(UserSession.GRANTS_TIME_TO_LIVE.toMillis() + 100L);
+        assertFalse(user.getPermission().existsPermission(id, "murmel.revoked"));
+        user.quitUser(uuid);
+    }
+}
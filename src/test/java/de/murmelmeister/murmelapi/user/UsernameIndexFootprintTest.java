@@ -0,0 +1,66 @@
+package de.murmelmeister.murmelapi.user;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retained heap of the {@link UsernameIndex} for a million generated names, compared with a sorted list of strings
+ * and with {@link UsernameIndex#getMemoryFootprint()}.
+ */
+@Tag("benchmark")
+class UsernameIndexFootprintTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UsernameIndexFootprintTest.class);
+    private static final int NAMES = 1_000_000;
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789_";
+    private static final long MIB = 1024 * 1024;
+
+    @Test
+    void millionNames() {
+        long before = usedHeap();
+        UsernameIndex index = new UsernameIndex();
+        index.load(UsernameIndexFootprintTest::generate);
+        long indexSize = usedHeap() - before;
+        long estimate = index.getMemoryFootprint();
+
+        before = usedHeap();
+        List<String> list = new ArrayList<>(NAMES);
+        generate(list::add);
+        list.sort(String.CASE_INSENSITIVE_ORDER);
+        long listSize = usedHeap() - before;
+
+        LOGGER.info("{} names: index {} MiB (estimated {} MiB), sorted list of strings {} MiB",
+                NAMES, indexSize / MIB, estimate / MIB, listSize / MIB);
+        assertTrue(indexSize < 40 * MIB, "The index retains " + indexSize / MIB + " MiB");
+        assertTrue(Math.abs(indexSize - estimate) < estimate / 10, "The estimate is off by more than 10 percent");
+        assertTrue(indexSize < listSize / 2);
+        // Keeps both reachable until both were measured
+        assertEquals(list.getFirst().toLowerCase(), index.complete("", 1).getFirst().toLowerCase());
+    }
+
+    // Minecraft usernames of 3 to 16 characters, the same ones on every run
+    private static void generate(Consumer<String> consumer) {
+        SplittableRandom random = new SplittableRandom(42);
+        char[] name = new char[16];
+        for (int i = 0; i < NAMES; i++) {
+            int length = random.nextInt(3, 17);
+            for (int j = 0; j < length; j++) name[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            consumer.accept(new String(name, 0, length));
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,96 @@
+package de.murmelmeister.murmelapi.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UsernameIndexTest {
+    // More changes than the merge threshold, so the overlay is merged into the array
+    private static final int MERGE = 5000;
+
+    @Test
+    void completeInterleavesOverlayAndArray() {
+        UsernameIndex index = loaded("Alpha", "alpine", "Bravo", "Charlie");
+        index.add("Alps");
+        index.add("Beta");
+        assertEquals(List.of("Alpha", "alpine", "Alps"), index.complete("al", 10));
+        assertEquals(List.of("Alpha", "alpine", "Alps", "Beta", "Bravo", "Charlie"), index.complete("", 10));
+    }
+
+    @Test
+    void completeRespectsLimit() {
+        UsernameIndex index = loaded("Anna", "Anton");
+        index.add("Andy");
+        assertEquals(List.of("Andy", "Anna"), index.complete("an", 2));
+    }
+
+    @Test
+    void caseChangeReplacesName() {
+        UsernameIndex index = loaded("Steve", "Alex");
+        index.rename("Steve", "STEVE");
+        assertEquals(List.of("STEVE"), index.complete("st", 10));
+    }
+
+    @Test
+    void removedNameIsNotCompleted() {
+        UsernameIndex index = loaded("Notch", "Jeb", "Dinnerbone");
+        index.remove("notch");
+        assertEquals(List.of(), index.complete("no", 10));
+        index.add("Notch");
+        assertEquals(List.of("Notch"), index.complete("no", 10));
+    }
+
+    @Test
+    void mergeKeepsOrderAndChanges() {
+        UsernameIndex index = loaded("Alpha", "Bravo", "Charlie", "Delta");
+        index.rename("Bravo", "BRAVO");
+        index.remove("Charlie");
+        List<String> expected = new ArrayList<>(List.of("Alpha", "BRAVO", "Delta"));
+        for (int i = 0; i < MERGE; i++) {
+            String name = "Player" + (10000 + i);
+            index.add(name);
+            expected.add(name);
+        }
+        expected.sort(String.CASE_INSENSITIVE_ORDER);
+        assertEquals(expected, index.complete("", Integer.MAX_VALUE));
+        assertEquals(List.of("BRAVO"), index.complete("br", 10));
+        assertEquals(List.of(), index.complete("ch", 10));
+        assertEquals(expected.size(), index.size());
+    }
+
+    @Test
+    void changesDuringLoadAreKept() {
+        UsernameIndex index = new UsernameIndex();
+        index.load(consumer -> {
+            consumer.accept("Alpha");
+            consumer.accept("Bravo");
+            // Another thread renames and adds users while the names are streamed
+            index.rename("Alpha", "ALPHA");
+            index.remove("Bravo");
+            index.add("Charlie");
+        });
+        assertEquals(List.of("ALPHA", "Charlie"), index.complete("", 10));
+    }
+
+    @Test
+    void changesBeforeLoadAreNotCollected() {
+        UsernameIndex index = new UsernameIndex();
+        for (int i = 0; i < MERGE; i++) index.add("Player" + i);
+        assertEquals(0, index.size());
+        assertTrue(index.getMemoryFootprint() < 100);
+        index.load(consumer -> consumer.accept("Player1"));
+        assertEquals(List.of("Player1"), index.complete("", 10));
+    }
+
+    private static UsernameIndex loaded(String... names) {
+        UsernameIndex index = new UsernameIndex();
+        index.load(consumer -> {
+            for (String name : names) consumer.accept(name);
+        });
+        return index;
+    }
+}
@@ -0,0 +1,78 @@
+package de.murmelmeister.murmelapi.utils;
+
+import de.murmelmeister.murmelapi.TestDatabase;
+import de.murmelmeister.murmelapi.utils.database.ConcurrencyMode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Write throughput of the {@link Database} with the global lock of {@link ConcurrencyMode#SERIALIZED}
+ * and with the pool-bounded parallelism of {@link ConcurrencyMode#POOLED}, for a growing number of writers.
+ */
+@Tag("benchmark")
+class ConcurrencyThroughputTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyThroughputTest.class);
+    private static final int ROWS = 1024;
+    private static final int[] WRITERS = {1, 2, 4, 8};
+    private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    @BeforeAll
+    static void createTable() {
+        TestDatabase.start();
+        Database.createTable("ThroughputBenchmark", "ID INT PRIMARY KEY, Value BIGINT");
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) rows.add(new Object[]{i, 0L});
+        Database.batchUpdate("INSERT IGNORE INTO ThroughputBenchmark (ID, Value) VALUES (?, ?)", rows);
+    }
+
+    @AfterAll
+    static void restoreMode() {
+        Database.setConcurrencyMode(ConcurrencyMode.POOLED);
+    }
+
+    @Test
+    void writesScaleWithWriters() throws InterruptedException {
+        double[] serialized = measure(ConcurrencyMode.SERIALIZED);
+        double[] pooled = measure(ConcurrencyMode.POOLED);
+        for (int i = 0; i < WRITERS.length; i++)
+            LOGGER.info("{} writers: serialized {} writes/s, pooled {} writes/s", WRITERS[i], Math.round(serialized[i]), Math.round(pooled[i]));
+        int last = WRITERS.length - 1;
+        assertTrue(pooled[last] > serialized[last], "Pooled writes do not scale past the serialized ones");
+    }
+
+    private static double[] measure(ConcurrencyMode mode) throws InterruptedException {
+        Database.setConcurrencyMode(mode);
+        double[] throughput = new double[WRITERS.length];
+        for (int i = 0; i < WRITERS.length; i++) throughput[i] = run(WRITERS[i]);
+        return throughput;
+    }
+
+    private static double run(int writers) throws InterruptedException {
+        LongAdder writes = new LongAdder();
+        long end = System.nanoTime() + DURATION_NANOS;
+        List<Thread> threads = new ArrayList<>(writers);
+        for (int i = 0; i < writers; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    Database.update("UPDATE ThroughputBenchmark SET Value=Value+1 WHERE ID=?", random.nextInt(ROWS));
+                    writes.increment();
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+        return writes.sum() * 1e9 / DURATION_NANOS;
+    }
+}
@@ -0,0 +1,113 @@
+package de.murmelmeister.murmelapi.utils;
+
+import de.murmelmeister.murmelapi.TestDatabase;
+import de.murmelmeister.murmelapi.utils.database.ProcedureRegistry;
+import de.murmelmeister.murmelapi.utils.database.StoredProcedure;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Per-call latency, round trips and statement cache hit rate of the driver with its defaults, with uncached server statements
+ * and with the statement cache the {@link Database} enables, for a procedure call and a prepared select.
+ * A call is a hit if its server statement was reused instead of prepared again.
+ */
+@Tag("benchmark")
+class StatementCacheTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementCacheTest.class);
+    private static final int WARMUP = 500;
+    private static final int CALLS = 5000;
+    private static String call;
+    private static String select;
+
+    @BeforeAll
+    static void createProcedure() {
+        TestDatabase.start();
+        ProcedureRegistry procedures = new ProcedureRegistry("StatementCacheBenchmark", "ID INT PRIMARY KEY, Name VARCHAR(100)");
+        StoredProcedure row = procedures.selectRow("Row", "uid INT", "ID=uid");
+        procedures.createAll();
+        Database.update("INSERT IGNORE INTO StatementCacheBenchmark (ID, Name) VALUES (1, 'Name')");
+        call = "{CALL " + row.name() + "(?)}";
+        select = "SELECT * FROM StatementCacheBenchmark WHERE ID=?";
+    }
+
+    @Test
+    void cacheAvoidsRoundTrips() throws SQLException {
+        Properties baseline = new Properties();
+        Properties uncached = new Properties();
+        uncached.setProperty("useServerPrepStmts", "true");
+        Properties cached = new Properties();
+        cached.setProperty("useServerPrepStmts", "true");
+        cached.setProperty("cachePrepStmts", "true");
+        cached.setProperty("cacheCallableStmts", "true");
+        cached.setProperty("prepStmtCacheSize", "250");
+        cached.setProperty("callableStmtCacheSize", "250");
+        for (boolean procedure : new boolean[]{true, false}) {
+            Result before = measure(baseline, procedure);
+            Result server = measure(uncached, procedure);
+            Result after = measure(cached, procedure);
+            String kind = procedure ? "Procedure call" : "Prepared select";
+            LOGGER.info("{} without statement settings: {}", kind, before);
+            LOGGER.info("{} with server statements, uncached: {}", kind, server);
+            LOGGER.info("{} with the statement cache of the Database: {}", kind, after);
+            assertTrue(after.roundTrips() <= before.roundTrips());
+            if (!procedure) assertTrue(after.hitRate() > 0.99);
+        }
+    }
+
+    private static Result measure(Properties properties, boolean procedure) throws SQLException {
+        try (Connection connection = TestDatabase.openConnection(properties)) {
+            for (int i = 0; i < WARMUP; i++) execute(connection, procedure);
+            long questions = status(connection, "Questions");
+            long prepares = status(connection, "Com_stmt_prepare");
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) execute(connection, procedure);
+            long nanos = System.nanoTime() - start;
+            // The two status queries after the first one count as questions as well
+            double roundTrips = (status(connection, "Questions") - questions - 2) / (double) CALLS;
+            double prepared = (status(connection, "Com_stmt_prepare") - prepares) / (double) CALLS;
+            return new Result(nanos / 1000.0 / CALLS, roundTrips, prepared);
+        }
+    }
+
+    private static void execute(Connection connection, boolean procedure) throws SQLException {
+        try (PreparedStatement statement = procedure ? connection.prepareCall(call) : connection.prepareStatement(select)) {
+            statement.setInt(1, 1);
+            try (ResultSet resultSet = statement instanceof CallableStatement callable ? callable.executeQuery() : statement.executeQuery()) {
+                while (resultSet.next()) resultSet.getString("Name");
+            }
+        }
+    }
+
+    private static long status(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SHOW SESSION STATUS LIKE ?")) {
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong("Value") : 0L;
+            }
+        }
+    }
+
+    private record Result(double micros, double roundTrips, double prepares) {
+        // Server prepared statements that were reused instead of prepared again
+        double hitRate() {
+            return 1.0 - Math.min(1.0, prepares);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f us, %.2f round trips and %.2f prepares per call, hit rate %.3f", micros, roundTrips, prepares, hitRate());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncDatabaseTest {
+
+    @Test
+    void nestedCallDoesNotWaitForPermit() throws Exception {
+        AsyncDatabase async = new AsyncDatabase(1);
+        int value = async.supply(() -> async.supply(() -> 42).join()).get(5, TimeUnit.SECONDS);
+        assertEquals(42, value);
+        async.close(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void loweredLimitAppliesOnceRunningCallsFinish() throws Exception {
+        AsyncDatabase async = new AsyncDatabase(2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            async.run(() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        async.setMaxConcurrentCalls(1);
+        release.countDown();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maximum = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            async.run(() -> {
+                maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep();
+                running.decrementAndGet();
+                finished.countDown();
+            });
+        }
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maximum.get());
+        async.close(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void raisedLimitAllowsMoreCalls() throws Exception {
+        AsyncDatabase async = new AsyncDatabase(1);
+        async.setMaxConcurrentCalls(3);
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            async.run(() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertEquals(3, async.getMaxConcurrentCalls());
+        async.close(1, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
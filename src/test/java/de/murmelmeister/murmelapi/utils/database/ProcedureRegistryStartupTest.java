@@ -0,0 +1,68 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import de.murmelmeister.murmelapi.TestDatabase;
+import de.murmelmeister.murmelapi.utils.Database;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Startup benchmark of the schema bootstrap and its protection against downgrades.
+ */
+class ProcedureRegistryStartupTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcedureRegistryStartupTest.class);
+    private static final String COLUMNS = "ID INT PRIMARY KEY AUTO_INCREMENT, Name VARCHAR(100)";
+    private static final int PROCEDURES = 40;
+
+    @BeforeAll
+    static void connect() {
+        TestDatabase.start();
+    }
+
+    @Test
+    void unchangedSchemaIsOnlyRead() {
+        long start = System.nanoTime();
+        declare("StartupBenchmark").createAll();
+        long cold = System.nanoTime() - start;
+
+        // A restart forgets the checksums and reads them again
+        SchemaVersion.reset();
+        ProcedureRegistry registry = declare("StartupBenchmark");
+        long calls = Database.getThreadCallCount();
+        start = System.nanoTime();
+        registry.createAll();
+        long warm = System.nanoTime() - start;
+
+        LOGGER.info("Bootstrap of {} procedures: first start {} ms, unchanged restart {} ms", PROCEDURES,
+                TimeUnit.NANOSECONDS.toMillis(cold), TimeUnit.NANOSECONDS.toMillis(warm));
+        // CREATE TABLE IF NOT EXISTS of the version table and the read of the checksums
+        assertEquals(2, Database.getThreadCallCount() - calls);
+    }
+
+    @Test
+    void olderGenerationKeepsNewerDefinition() {
+        ProcedureRegistry newer = new ProcedureRegistry("GenerationTest", COLUMNS);
+        StoredProcedure procedure = newer.statement("Value", "", "SELECT 2 AS value;");
+        newer.createAll();
+        Database.update("UPDATE SchemaVersion SET Generation=? WHERE Name=?", SchemaVersion.GENERATION + 1, "PROCEDURE " + procedure.name());
+
+        SchemaVersion.reset();
+        ProcedureRegistry older = new ProcedureRegistry("GenerationTest", COLUMNS);
+        older.statement("Value", "", "SELECT 1 AS value;");
+        older.createAll();
+
+        int value = Database.callQuery(0, "value", int.class, procedure.name());
+        assertEquals(2, value);
+    }
+
+    private static ProcedureRegistry declare(String tableName) {
+        ProcedureRegistry registry = new ProcedureRegistry(tableName, COLUMNS).index("Name", "Name");
+        for (int i = 0; i < PROCEDURES; i++) registry.selectRow("Row" + i, "uid INT", "ID=uid");
+        return registry;
+    }
+}
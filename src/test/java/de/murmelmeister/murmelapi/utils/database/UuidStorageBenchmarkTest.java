@@ -0,0 +1,76 @@
+package de.murmelmeister.murmelapi.utils.database;
+
+import de.murmelmeister.murmelapi.TestDatabase;
+import de.murmelmeister.murmelapi.utils.Database;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Size of the unique key and latency of the lookup by UUID for the {@link UuidStorage#TEXT} and {@link UuidStorage#BINARY} columns.
+ */
+@Tag("benchmark")
+class UuidStorageBenchmarkTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UuidStorageBenchmarkTest.class);
+    private static final int ROWS = 200000;
+    private static final int LOOKUPS = 20000;
+    private static final List<UUID> UUIDS = new ArrayList<>(ROWS);
+
+    @BeforeAll
+    static void createTables() {
+        TestDatabase.start();
+        for (int i = 0; i < ROWS; i++) UUIDS.add(UUID.randomUUID());
+        fill("UuidTextBenchmark", "VARCHAR(36)", UUID::toString);
+        fill("UuidBinaryBenchmark", "BINARY(16)", UuidCodec::toBytes);
+        Database.query(null, "Msg_text", String.class, "ANALYZE TABLE UuidTextBenchmark, UuidBinaryBenchmark");
+    }
+
+    @Test
+    void binaryKeyIsSmaller() {
+        long textSize = indexSize("UuidTextBenchmark");
+        long binarySize = indexSize("UuidBinaryBenchmark");
+        double textMicros = lookup("UuidTextBenchmark", UUID::toString);
+        double binaryMicros = lookup("UuidBinaryBenchmark", UuidCodec::toBytes);
+        LOGGER.info("Unique key over {} UUIDs: VARCHAR(36) {} KiB, BINARY(16) {} KiB", ROWS, textSize / 1024, binarySize / 1024);
+        LOGGER.info("Lookup by UUID: VARCHAR(36) {} us, BINARY(16) {} us", String.format("%.1f", textMicros), String.format("%.1f", binaryMicros));
+        assertTrue(binarySize < textSize);
+    }
+
+    private static void fill(String tableName, String type, Function<UUID, Object> encoder) {
+        Database.update("DROP TABLE IF EXISTS " + tableName);
+        Database.createTable(tableName, "ID INT PRIMARY KEY AUTO_INCREMENT, UUID " + type + ", UNIQUE KEY UniqueID (UUID)");
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (UUID uuid : UUIDS) rows.add(new Object[]{encoder.apply(uuid)});
+        Database.batchUpdate("INSERT INTO " + tableName + " (UUID) VALUES (?)", rows);
+    }
+
+    // The size statistic counts pages of the index
+    private static long indexSize(String tableName) {
+        long pages = Database.query(0L, "stat_value", long.class, "SELECT stat_value FROM mysql.innodb_index_stats " +
+                "WHERE database_name=DATABASE() AND table_name=? AND index_name='UniqueID' AND stat_name='size'", tableName);
+        long pageSize = Database.query(16384L, "size", long.class, "SELECT @@innodb_page_size AS size");
+        return pages * pageSize;
+    }
+
+    private static double lookup(String tableName, Function<UUID, Object> encoder) {
+        String sql = "SELECT ID FROM " + tableName + " WHERE UUID=? LIMIT 1";
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < LOOKUPS / 10; i++) Database.query(-1, "ID", int.class, sql, encoder.apply(UUIDS.get(random.nextInt(ROWS))));
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            int id = Database.query(-1, "ID", int.class, sql, encoder.apply(UUIDS.get(random.nextInt(ROWS))));
+            assertTrue(id > 0);
+        }
+        return (System.nanoTime() - start) / 1000.0 / LOOKUPS;
+    }
+}